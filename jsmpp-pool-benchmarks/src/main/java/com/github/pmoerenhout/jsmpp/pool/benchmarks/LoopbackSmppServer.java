@@ -0,0 +1,126 @@
+package com.github.pmoerenhout.jsmpp.pool.benchmarks;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.CancelSm;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.InterfaceVersion;
+import org.jsmpp.bean.QuerySm;
+import org.jsmpp.bean.ReplaceSm;
+import org.jsmpp.bean.SubmitMulti;
+import org.jsmpp.bean.SubmitMultiResult;
+import org.jsmpp.bean.SubmitSm;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.BindRequest;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.QuerySmResult;
+import org.jsmpp.session.SMPPServerSession;
+import org.jsmpp.session.SMPPServerSessionListener;
+import org.jsmpp.session.ServerMessageReceiverListener;
+import org.jsmpp.session.Session;
+import org.jsmpp.util.MessageId;
+import org.jsmpp.util.MessageIDGenerator;
+import org.jsmpp.util.RandomMessageIDGenerator;
+
+/**
+ * Minimal in-process SMSC on loopback, accepting every bind and answering every submit_sm with a random message id.
+ */
+public class LoopbackSmppServer implements Runnable, ServerMessageReceiverListener, AutoCloseable {
+
+  private final MessageIDGenerator messageIDGenerator = new RandomMessageIDGenerator();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Map<String, SMPPServerSession> sessions = new ConcurrentHashMap<>();
+  private final AtomicLong submitted = new AtomicLong();
+  private final SMPPServerSessionListener sessionListener;
+  private final int port;
+  private volatile boolean running = true;
+
+  public LoopbackSmppServer(final int processorDegree) throws IOException {
+    this.port = freePort();
+    this.sessionListener = new SMPPServerSessionListener(port);
+    this.sessionListener.setPduProcessorDegree(processorDegree);
+    this.executor.execute(this);
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public long getSubmitted() {
+    return submitted.get();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        final SMPPServerSession serverSession = sessionListener.accept();
+        sessions.put(serverSession.getSessionId(), serverSession);
+        serverSession.setMessageReceiverListener(this);
+        executor.execute(() -> {
+          try {
+            final BindRequest bindRequest = serverSession.waitForBind(5000);
+            bindRequest.accept("loopback", InterfaceVersion.IF_34);
+          } catch (Exception e) {
+            serverSession.close();
+          }
+        });
+      }
+    } catch (SocketException e) {
+      // listener closed
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    sessionListener.close();
+    sessions.values().forEach(Session::unbindAndClose);
+    executor.shutdownNow();
+  }
+
+  public MessageId onAcceptSubmitSm(final SubmitSm submitSm, final SMPPServerSession source) {
+    submitted.incrementAndGet();
+    return messageIDGenerator.newMessageId();
+  }
+
+  public SubmitMultiResult onAcceptSubmitMulti(final SubmitMulti submitMulti, final SMPPServerSession source)
+      throws ProcessRequestException {
+    throw new ProcessRequestException("submit_multi not implemented", SMPPConstant.STAT_ESME_RSYSERR);
+  }
+
+  public QuerySmResult onAcceptQuerySm(final QuerySm querySm, final SMPPServerSession source)
+      throws ProcessRequestException {
+    throw new ProcessRequestException("query_sm not implemented", SMPPConstant.STAT_ESME_RQUERYFAIL);
+  }
+
+  public void onAcceptReplaceSm(final ReplaceSm replaceSm, final SMPPServerSession source)
+      throws ProcessRequestException {
+    throw new ProcessRequestException("replace_sm not implemented", SMPPConstant.STAT_ESME_RREPLACEFAIL);
+  }
+
+  public void onAcceptCancelSm(final CancelSm cancelSm, final SMPPServerSession source)
+      throws ProcessRequestException {
+    throw new ProcessRequestException("cancel_sm not implemented", SMPPConstant.STAT_ESME_RCANCELFAIL);
+  }
+
+  public DataSmResult onAcceptDataSm(final DataSm dataSm, final Session source) throws ProcessRequestException {
+    throw new ProcessRequestException("data_sm not implemented", SMPPConstant.STAT_ESME_RSYSERR);
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.pmoerenhout.jsmpp.pool.benchmarks;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUSender;
+import org.jsmpp.bean.Alphabet;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pmoerenhout.jsmpp.pool.ByteBufferPDUSender;
+
+/**
+ * Encoding and writing a submit_sm with the default jSMPP sender and with the {@link ByteBufferPDUSender}, to an output
+ * stream that discards the bytes. Run with {@code -prof gc} to compare the allocation per PDU.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PduSenderBenchmark {
+
+  @Param({ "DEFAULT", "BYTE_BUFFER" })
+  public String sender;
+
+  private PDUSender pduSender;
+  private OutputStream out;
+  private ESMClass esmClass;
+  private RegisteredDelivery registeredDelivery;
+  private GeneralDataCoding dataCoding;
+  private byte[] shortMessage;
+
+  @Setup
+  public void setUp() {
+    pduSender = "DEFAULT".equals(sender) ? new DefaultPDUSender() : new ByteBufferPDUSender();
+    out = new OutputStream() {
+      @Override
+      public void write(final int b) {
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) {
+      }
+    };
+    esmClass = new ESMClass();
+    registeredDelivery = new RegisteredDelivery();
+    dataCoding = new GeneralDataCoding(Alphabet.ALPHA_DEFAULT);
+    shortMessage = "This is a benchmark message".getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public byte[] sendSubmitSm() throws Exception {
+    return pduSender.sendSubmitSm(out, 1, "CMT", TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN, "5252",
+        TypeOfNumber.INTERNATIONAL, NumberingPlanIndicator.ISDN, "31614240689", esmClass, (byte) 0, (byte) 0,
+        null, null, registeredDelivery, (byte) 0, dataCoding, (byte) 0, shortMessage);
+  }
+}
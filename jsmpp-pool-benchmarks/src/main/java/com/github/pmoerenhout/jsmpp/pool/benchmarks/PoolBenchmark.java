@@ -0,0 +1,154 @@
+package com.github.pmoerenhout.jsmpp.pool.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pmoerenhout.jsmpp.pool.DisabledEvictionPolicy;
+import com.github.pmoerenhout.jsmpp.pool.PooledSMPPSession;
+import com.github.pmoerenhout.jsmpp.pool.PooledSmppSessionFactory;
+import com.github.pmoerenhout.jsmpp.pool.ThrottledSMPPSession;
+
+/**
+ * Throughput and latency of borrowObject/returnObject, both through {@link PooledSMPPSession} as shipped and through
+ * a plain {@link GenericObjectPool} with the fairness and test-on-borrow/return settings as parameters.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+  @Benchmark
+  @Threads(1)
+  public ThrottledSMPPSession pooledSession_1(final PooledSessionState state) throws Exception {
+    return borrowAndReturn(state.pooledSession);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ThrottledSMPPSession pooledSession_4(final PooledSessionState state) throws Exception {
+    return borrowAndReturn(state.pooledSession);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public ThrottledSMPPSession pooledSession_16(final PooledSessionState state) throws Exception {
+    return borrowAndReturn(state.pooledSession);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public ThrottledSMPPSession configuredPool_1(final ConfiguredPoolState state) throws Exception {
+    return borrowAndReturn(state.pool);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ThrottledSMPPSession configuredPool_4(final ConfiguredPoolState state) throws Exception {
+    return borrowAndReturn(state.pool);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public ThrottledSMPPSession configuredPool_16(final ConfiguredPoolState state) throws Exception {
+    return borrowAndReturn(state.pool);
+  }
+
+  private static ThrottledSMPPSession borrowAndReturn(final PooledSMPPSession<ThrottledSMPPSession> pooledSession)
+      throws Exception {
+    final ThrottledSMPPSession session = pooledSession.borrowObject();
+    pooledSession.returnObject(session);
+    return session;
+  }
+
+  private static ThrottledSMPPSession borrowAndReturn(final GenericObjectPool<ThrottledSMPPSession> pool)
+      throws Exception {
+    final ThrottledSMPPSession session = pool.borrowObject();
+    pool.returnObject(session);
+    return session;
+  }
+
+  @State(Scope.Benchmark)
+  public static class PooledSessionState {
+
+    @Param({ "4" })
+    public int maxTotal;
+
+    LoopbackSmppServer server;
+    PooledSMPPSession<ThrottledSMPPSession> pooledSession;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      server = new LoopbackSmppServer(3);
+      pooledSession = new PooledSMPPSession<>("localhost", server.getPort(), false, "bench", "bench", "cp",
+          null, (newState, oldState, source) -> {
+      }, 30000, 5000L, 5000L, maxTotal, maxTotal, maxTotal, 1.0e6, 10, 3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      pooledSession.close();
+      server.close();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ConfiguredPoolState {
+
+    @Param({ "4" })
+    public int maxTotal;
+    @Param({ "true", "false" })
+    public boolean fairness;
+    @Param({ "true", "false" })
+    public boolean testOnBorrow;
+    @Param({ "true", "false" })
+    public boolean testOnReturn;
+
+    LoopbackSmppServer server;
+    GenericObjectPool<ThrottledSMPPSession> pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      server = new LoopbackSmppServer(3);
+      final GenericObjectPoolConfig<ThrottledSMPPSession> config = new GenericObjectPoolConfig<>();
+      config.setLifo(false);
+      config.setFairness(fairness);
+      config.setEvictionPolicyClassName(DisabledEvictionPolicy.class.getName());
+      config.setTimeBetweenEvictionRuns(Duration.ofMillis(-1));
+      config.setMaxTotal(maxTotal);
+      config.setMinIdle(maxTotal);
+      config.setMaxIdle(maxTotal);
+      config.setTestOnBorrow(testOnBorrow);
+      config.setTestOnReturn(testOnReturn);
+      pool = new GenericObjectPool<>(
+          new PooledSmppSessionFactory("localhost", server.getPort(), false, "bench", "bench", "cp",
+              null, (newState, oldState, source) -> {
+          }, 30000, 5000L, 5000L, 1.0e6, 10, 3), config);
+      pool.addObjects(maxTotal);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      pool.close();
+      server.close();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.github.pmoerenhout.jsmpp.pool.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pmoerenhout.jsmpp.pool.DispatchStrategy;
+import com.github.pmoerenhout.jsmpp.pool.PooledSMPPSession;
+import com.github.pmoerenhout.jsmpp.pool.SubmitRequest;
+import com.github.pmoerenhout.jsmpp.pool.SubmitResult;
+import com.github.pmoerenhout.jsmpp.pool.ThrottledSMPPSession;
+
+/**
+ * End-to-end submit_sm throughput against a {@link LoopbackSmppServer}, blocking per message through borrow/return
+ * and pipelined through {@link PooledSMPPSession#submitAsync(SubmitRequest)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmitBenchmark {
+
+  private static final int BATCH = 100;
+
+  @Param({ "2" })
+  public int maxTotal;
+  @Param({ "10" })
+  public int maxConcurrentRequests;
+  @Param({ "POOL", "ROUND_ROBIN", "LEAST_OUTSTANDING" })
+  public String mode;
+
+  private LoopbackSmppServer server;
+  private PooledSMPPSession<ThrottledSMPPSession> pooledSession;
+  private SubmitRequest request;
+  private List<SubmitRequest> batch;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    server = new LoopbackSmppServer(8);
+    pooledSession = new PooledSMPPSession<>("localhost", server.getPort(), false, "bench", "bench", "cp",
+        null, (newState, oldState, source) -> {
+    }, 30000, 5000L, 5000L, maxTotal, maxTotal, maxTotal, 1.0e6, maxConcurrentRequests, 3);
+    if (!"POOL".equals(mode)) {
+      pooledSession.enableDispatcher(DispatchStrategy.valueOf(mode));
+    }
+    request = SubmitRequest.builder()
+        .sourceAddr("5252")
+        .destinationAddr("31614240689")
+        .shortMessage("This is a benchmark message".getBytes(StandardCharsets.ISO_8859_1))
+        .build();
+    batch = Collections.nCopies(BATCH, request);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    pooledSession.close();
+    server.close();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String submitBlocking() throws Exception {
+    final ThrottledSMPPSession session = pooledSession.isDispatcherEnabled() ?
+        pooledSession.nextSession() : pooledSession.borrowObject();
+    session.acquire();
+    try {
+      return session.submitShortMessage(request);
+    } finally {
+      session.release();
+      if (!pooledSession.isDispatcherEnabled()) {
+        pooledSession.returnObject(session);
+      }
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  @OperationsPerInvocation(BATCH)
+  public Object submitAsync() {
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[BATCH];
+    for (int i = 0; i < BATCH; i++) {
+      futures[i] = pooledSession.submitAsync(request);
+    }
+    return CompletableFuture.allOf(futures).join();
+  }
+
+  @Benchmark
+  @Threads(1)
+  @OperationsPerInvocation(BATCH)
+  public List<SubmitResult> submitBatch() {
+    return pooledSession.submitBatch(batch).join();
+  }
+}
@@ -0,0 +1,81 @@
+package com.github.pmoerenhout.jsmpp.pool.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.pmoerenhout.jsmpp.pool.RateLimiterThrottle;
+import com.github.pmoerenhout.jsmpp.pool.Throttle;
+import com.github.pmoerenhout.jsmpp.pool.ThrottledSMPPSession;
+import com.github.pmoerenhout.jsmpp.pool.TokenBucketThrottle;
+
+/**
+ * Overhead of {@link ThrottledSMPPSession#acquire()} and {@link ThrottledSMPPSession#release()} on an unbound session,
+ * and of the non-blocking {@link Throttle#tryAcquire(int)}, with a rate high enough that the throttle never has to wait.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThrottleBenchmark {
+
+  @Param({ "1000000000" })
+  public double rate;
+  @Param({ "64" })
+  public int maxConcurrentRequests;
+  @Param({ "TOKEN_BUCKET", "GUAVA" })
+  public String implementation;
+
+  private Throttle throttle;
+  private ThrottledSMPPSession session;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    throttle = "GUAVA".equals(implementation) ? new RateLimiterThrottle(rate) : new TokenBucketThrottle(rate);
+    session = new ThrottledSMPPSession(throttle, maxConcurrentRequests);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public double acquireRelease_1() throws InterruptedException {
+    return acquireRelease();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public double acquireRelease_4() throws InterruptedException {
+    return acquireRelease();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public double acquireRelease_16() throws InterruptedException {
+    return acquireRelease();
+  }
+
+  private double acquireRelease() throws InterruptedException {
+    final double waited = session.acquire();
+    session.release();
+    return waited;
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long tryAcquire_16() {
+    return throttle.tryAcquire(1);
+  }
+}
@@ -20,42 +20,44 @@ import java.nio.charset.StandardCharsets;
 import org.jsmpp.bean.AlertNotification;
 import org.jsmpp.bean.DataSm;
 import org.jsmpp.bean.DeliverSm;
-import org.jsmpp.bean.DeliveryReceipt;
 import org.jsmpp.bean.MessageType;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.session.DataSmResult;
 import org.jsmpp.session.MessageReceiverListener;
 import org.jsmpp.session.Session;
-import org.jsmpp.util.InvalidDeliveryReceiptException;
 
+import com.github.pmoerenhout.jsmpp.pool.DeliveryReceiptView;
+import com.github.pmoerenhout.jsmpp.pool.MessageIds;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class MessageReceiverListenerImpl implements MessageReceiverListener {
   
   private Charset charset = StandardCharsets.ISO_8859_1;
+  private final ThreadLocal<DeliveryReceiptView> receiptView = ThreadLocal.withInitial(DeliveryReceiptView::new);
 
   public void onAcceptDeliverSm(final DeliverSm deliverSm)
       throws ProcessRequestException {
 
     if (MessageType.SMSC_DEL_RECEIPT.containedIn(deliverSm.getEsmClass())) {
       // this message is delivery receipt
-      try {
-        final DeliveryReceipt delReceipt = deliverSm.getShortMessageAsDeliveryReceipt();
-
-        // lets cover the id to hex string format
-        long id = Long.parseLong(delReceipt.getId()) & 0xffffffff;
-        final String messageId = Long.toString(id, 16).toUpperCase();
+      final DeliveryReceiptView delReceipt = receiptView.get();
+      if (delReceipt.wrap(deliverSm.getShortMessage())) {
+        // the receipt has the id in decimal, the submit_sm_resp had it in hex
+        final long messageId = delReceipt.getId(10);
 
         /*
          * you can update the status of your submitted message on the
          * database based on messageId
          */
 
-        log.info("Receiving delivery receipt for message '{}' from {} to {} : {}", messageId, deliverSm.getSourceAddr(), deliverSm.getDestAddress(),
-            delReceipt);
-      } catch (InvalidDeliveryReceiptException e) {
-        log.error("Failed getting delivery receipt", e);
+        if (log.isInfoEnabled()) {
+          log.info("Receiving delivery receipt for message '{}' from {} to {} : {}",
+              MessageIds.appendHex(new StringBuilder(), messageId), deliverSm.getSourceAddr(), deliverSm.getDestAddress(),
+              delReceipt);
+        }
+      } else {
+        log.error("Failed getting delivery receipt");
       }
     } else {
       // this message is regular short message
@@ -1,9 +1,13 @@
 package com.github.pmoerenhout.jsmpp.pool.demo.client;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.jsmpp.InvalidResponseException;
 import org.jsmpp.PDUException;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.ESMClass;
 import org.jsmpp.bean.GeneralDataCoding;
 import org.jsmpp.bean.NumberingPlanIndicator;
@@ -13,11 +17,14 @@ import org.jsmpp.extra.NegativeResponseException;
 import org.jsmpp.extra.ResponseTimeoutException;
 import org.jsmpp.session.MessageReceiverListener;
 import org.jsmpp.session.SessionStateListener;
+import org.jsmpp.util.MessageId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.github.pmoerenhout.jsmpp.pool.PooledSMPPSession;
+import com.github.pmoerenhout.jsmpp.pool.SubmitRequest;
+import com.github.pmoerenhout.jsmpp.pool.SubmitResult;
 import com.github.pmoerenhout.jsmpp.pool.ThrottledSMPPSession;
 import com.github.pmoerenhout.jsmpp.pool.demo.server.MetricsService;
 import lombok.extern.slf4j.Slf4j;
@@ -71,9 +78,13 @@ public class ClientSmppService {
         host, port, ssl, systemId, password, systemType, messageReceiverListener,
         sessionStateListener, enquireLinkTimer, transactionTimer, bindTimeout,
         maxTotal, minIdle, maxIdle, rate, maxConcurrentRequests, pduProcessorDegree);
+    pooledSMPPSession.enableAdaptiveThrottling();
+    pooledSMPPSession.enableSlowBindEjection();
+    pooledSMPPSession.registerMBean();
   }
 
   public void stop() throws Exception {
+    log.info("Pool metrics: {}", pooledSMPPSession.getMetrics());
     pooledSMPPSession.close();
   }
 
@@ -131,7 +142,13 @@ public class ClientSmppService {
       } catch (NegativeResponseException e) {
         log.error("Negative response: {}", e.getMessage());
         metricsService.increment("client", "submit_sm_negative_response");
-        pooledSMPPSession.invalidateObject(session);
+        if (e.getCommandStatus() == SMPPConstant.STAT_ESME_RTHROTTLED || e.getCommandStatus() == SMPPConstant.STAT_ESME_RMSGQFUL) {
+          // The session is fine, the adaptive rate controller backs off
+          session.release();
+          pooledSMPPSession.returnObject(session);
+        } else {
+          pooledSMPPSession.invalidateObject(session);
+        }
       } catch (InvalidResponseException e) {
         log.error("Invalid response: {}", e.getMessage());
         metricsService.increment("client", "submit_sm_invalid_response");
@@ -151,4 +168,46 @@ public class ClientSmppService {
     }
   }
 
+  public void sendMessagesAsync(final int numberOfMessages) throws Exception {
+    final List<CompletableFuture<MessageId>> futures = new ArrayList<>(numberOfMessages);
+    for (int i = 0; i < numberOfMessages; i++) {
+      final SubmitRequest request = SubmitRequest.builder()
+          .sourceAddrTon(TypeOfNumber.ABBREVIATED).sourceAddrNpi(NumberingPlanIndicator.ISDN).sourceAddr("5252")
+          .destAddrTon(TypeOfNumber.INTERNATIONAL).destAddrNpi(NumberingPlanIndicator.ISDN).destinationAddr("31614240689")
+          .shortMessage(String.format("This is a message %d", i).getBytes())
+          .build();
+      metricsService.increment("client", "submit_sm");
+      futures.add(pooledSMPPSession.submitAsync(request).whenComplete((messageId, throwable) -> {
+        if (throwable != null) {
+          log.error("Submit failed: {}", throwable.getMessage());
+          metricsService.increment("client", "submit_sm_failed");
+        } else {
+          log.debug("Submitted message ID {}", messageId);
+          metricsService.increment("client", "submit_sm_ok");
+        }
+      }));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).exceptionally(t -> null).join();
+  }
+
+  public void sendMessagesBatch(final int numberOfMessages) {
+    final List<SubmitRequest> requests = new ArrayList<>(numberOfMessages);
+    for (int i = 0; i < numberOfMessages; i++) {
+      requests.add(SubmitRequest.builder()
+          .sourceAddrTon(TypeOfNumber.ABBREVIATED).sourceAddrNpi(NumberingPlanIndicator.ISDN).sourceAddr("5252")
+          .destAddrTon(TypeOfNumber.INTERNATIONAL).destAddrNpi(NumberingPlanIndicator.ISDN).destinationAddr("31614240689")
+          .shortMessage(String.format("This is a message %d", i).getBytes())
+          .build());
+    }
+    for (final SubmitResult result : pooledSMPPSession.submitBatch(requests).join()) {
+      metricsService.increment("client", "submit_sm");
+      if (result.isSuccess()) {
+        metricsService.increment("client", "submit_sm_ok");
+      } else {
+        log.error("Submit failed: {}", result.getFailure().getMessage());
+        metricsService.increment("client", "submit_sm_failed");
+      }
+    }
+  }
+
 }
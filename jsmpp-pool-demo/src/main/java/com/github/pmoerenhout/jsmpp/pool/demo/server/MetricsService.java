@@ -14,22 +14,16 @@ public class MetricsService {
 
   private Map<String, Map<String, AtomicInteger>> counters = new ConcurrentHashMap<>();
 
-  public synchronized int increment(String sessionId, String name) {
+  public int increment(String sessionId, String name) {
     Map<String, AtomicInteger> counter = counters.get(sessionId);
-    if (counter != null) {
-      AtomicInteger i = counter.get(name);
-      if (i != null) {
-        return i.incrementAndGet();
-      } else {
-        counter.put(name, new AtomicInteger(1));
-        return 1;
-      }
-    } else {
-      Map<String, AtomicInteger> c = new ConcurrentHashMap<>();
-      c.put(name, new AtomicInteger(1));
-      counters.put(sessionId, c);
-      return 1;
+    if (counter == null) {
+      counter = counters.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>());
     }
+    AtomicInteger i = counter.get(name);
+    if (i == null) {
+      i = counter.computeIfAbsent(name, k -> new AtomicInteger());
+    }
+    return i.incrementAndGet();
   }
 
   public int get(String sessionId, String name) {
@@ -0,0 +1,17 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+/**
+ * When a {@link DeliverSmPipeline} lets the deliver_sm_resp go out.
+ */
+public enum AckMode {
+  /**
+   * As soon as the deliver_sm is queued in its partition.
+   */
+  ON_QUEUE,
+  /**
+   * After the handler has processed the deliver_sm, so a failed handler makes the SMSC deliver it again. This holds a
+   * PDU processor thread of the session per deliver_sm in progress, raise the {@code pduProcessorDegree} for
+   * parallelism.
+   */
+  ON_COMMIT
+}
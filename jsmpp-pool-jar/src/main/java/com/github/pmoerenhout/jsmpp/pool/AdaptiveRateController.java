@@ -0,0 +1,234 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.SMPPConstant;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adjusts the rate of each bind, and of the account throttle of the pool, in an AIMD fashion. The rate is cut
+ * multiplicatively when the SMSC answers with ESME_RTHROTTLED or ESME_RMSGQFUL, or when the response time percentile
+ * of an interval exceeds the threshold, and probes back up additively to the configured rate in every interval without
+ * congestion. A throttled response of a submit_sm that was sent before the last decrease does not decrease again.
+ */
+@Slf4j
+public class AdaptiveRateController implements SubmitResponseListener, AutoCloseable {
+
+  private static final int SAMPLES = 256;
+
+  private final Map<ThrottledSMPPSession, Control> sessions = new ConcurrentHashMap<>();
+  private final Control account;
+  private final Throttle accountThrottle;
+  private double minRate = 1;
+  private double decreaseFactor = 0.7;
+  private double increaseRatio = 0.05;
+  private double latencyPercentile = 0.95;
+  private long latencyThresholdMillis = 0;
+  private long intervalMillis = 1000;
+  private ScheduledExecutorService scheduler;
+
+  public AdaptiveRateController() {
+    this(null);
+  }
+
+  /**
+   * @param accountThrottle the account throttle of the pool to control as well, or null
+   */
+  public AdaptiveRateController(final Throttle accountThrottle) {
+    this.accountThrottle = accountThrottle;
+    this.account = accountThrottle != null ? new Control(accountThrottle.getRate()) : null;
+  }
+
+  public void setMinRate(final double minRate) {
+    if (minRate <= 0) {
+      throw new IllegalArgumentException("The minRate parameter must be > 0");
+    }
+    this.minRate = minRate;
+  }
+
+  public void setDecreaseFactor(final double decreaseFactor) {
+    if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+      throw new IllegalArgumentException("The decreaseFactor parameter must be between 0 and 1");
+    }
+    this.decreaseFactor = decreaseFactor;
+  }
+
+  /**
+   * @param increaseRatio the part of the configured rate to add in every interval without congestion
+   */
+  public void setIncreaseRatio(final double increaseRatio) {
+    if (increaseRatio <= 0) {
+      throw new IllegalArgumentException("The increaseRatio parameter must be > 0");
+    }
+    this.increaseRatio = increaseRatio;
+  }
+
+  public void setLatencyPercentile(final double latencyPercentile) {
+    if (latencyPercentile <= 0 || latencyPercentile > 1) {
+      throw new IllegalArgumentException("The latencyPercentile parameter must be between 0 and 1");
+    }
+    this.latencyPercentile = latencyPercentile;
+  }
+
+  /**
+   * @param latencyThresholdMillis the response time percentile that counts as congestion, or 0 to only react on the
+   *                               command status
+   */
+  public void setLatencyThresholdMillis(final long latencyThresholdMillis) {
+    this.latencyThresholdMillis = latencyThresholdMillis;
+  }
+
+  public void setIntervalMillis(final long intervalMillis) {
+    this.intervalMillis = intervalMillis;
+  }
+
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("smpp-adaptive-rate-%d").setDaemon(true).build());
+      scheduler.scheduleWithFixedDelay(this::adjust, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler = null;
+    }
+  }
+
+  @Override
+  public void onSubmitResponse(final ThrottledSMPPSession session, final int commandStatus, final long responseTimeNanos) {
+    final Control control = control(session);
+    if (commandStatus == SMPPConstant.STAT_ESME_RTHROTTLED || commandStatus == SMPPConstant.STAT_ESME_RMSGQFUL) {
+      final long sentNanos = System.nanoTime() - responseTimeNanos;
+      if (control != null && control.congested(sentNanos)) {
+        decrease(session, "command status " + commandStatus);
+      }
+      if (account != null && account.congested(sentNanos)) {
+        decreaseAccount("command status " + commandStatus);
+      }
+    } else if (control != null) {
+      control.record(responseTimeNanos);
+    }
+  }
+
+  private Control control(final ThrottledSMPPSession session) {
+    if (session.getThrottle() == null) {
+      return null;
+    }
+    final Control control = sessions.get(session);
+    if (control != null) {
+      return control;
+    }
+    return sessions.computeIfAbsent(session, s -> new Control(s.getRate()));
+  }
+
+  private void decrease(final ThrottledSMPPSession session, final String reason) {
+    final double rate = session.getRate();
+    final double decreased = Math.max(minRate, rate * decreaseFactor);
+    session.setRate(decreased);
+    log.info("Session {} rate {} -> {} msg/s ({})", session.getSessionId(), rate, decreased, reason);
+  }
+
+  private void decreaseAccount(final String reason) {
+    final double rate = accountThrottle.getRate();
+    final double decreased = Math.max(minRate, rate * decreaseFactor);
+    accountThrottle.setRate(decreased);
+    log.info("Account rate {} -> {} msg/s ({})", rate, decreased, reason);
+  }
+
+  void adjust() {
+    try {
+      boolean anyCongested = false;
+      for (final Map.Entry<ThrottledSMPPSession, Control> entry : sessions.entrySet()) {
+        final ThrottledSMPPSession session = entry.getKey();
+        final Control control = entry.getValue();
+        if (!session.getSessionState().isBound()) {
+          sessions.remove(session);
+          continue;
+        }
+        final long percentileMillis = control.percentileMillis(latencyPercentile);
+        if (latencyThresholdMillis > 0 && percentileMillis > latencyThresholdMillis) {
+          control.congested(System.nanoTime());
+          decrease(session, "p" + (int) (latencyPercentile * 100) + " " + percentileMillis + "ms");
+        }
+        if (control.endInterval()) {
+          anyCongested = true;
+        } else if (session.getRate() < control.ceiling) {
+          final double increased = Math.min(control.ceiling, session.getRate() + control.ceiling * increaseRatio);
+          log.debug("Session {} rate {} -> {} msg/s", session.getSessionId(), session.getRate(), increased);
+          session.setRate(increased);
+        }
+      }
+      if (account != null) {
+        if (!account.endInterval() && !anyCongested && accountThrottle.getRate() < account.ceiling) {
+          final double increased = Math.min(account.ceiling, accountThrottle.getRate() + account.ceiling * increaseRatio);
+          log.debug("Account rate {} -> {} msg/s", accountThrottle.getRate(), increased);
+          accountThrottle.setRate(increased);
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("Adaptive rate adjustment failed", e);
+    }
+  }
+
+  private static final class Control {
+
+    private final double ceiling;
+    private final long[] samples = new long[SAMPLES];
+    private final AtomicInteger count = new AtomicInteger();
+    private long lastDecreaseNanos;
+    private boolean decreased;
+    private volatile boolean congested;
+
+    private Control(final double ceiling) {
+      this.ceiling = ceiling;
+    }
+
+    private void record(final long responseTimeNanos) {
+      samples[count.getAndIncrement() & (SAMPLES - 1)] = responseTimeNanos;
+    }
+
+    /**
+     * Mark the interval as congested.
+     *
+     * @return true when the rate should be decreased, i.e. the request was sent after the last decrease, or there was
+     * no decrease yet. The control of a session is created on its first response, so any earlier request counts.
+     */
+    private synchronized boolean congested(final long sentNanos) {
+      congested = true;
+      if (decreased && sentNanos - lastDecreaseNanos <= 0) {
+        return false;
+      }
+      decreased = true;
+      lastDecreaseNanos = System.nanoTime();
+      return true;
+    }
+
+    private long percentileMillis(final double percentile) {
+      final int n = Math.min(count.getAndSet(0), SAMPLES);
+      if (n == 0) {
+        return 0;
+      }
+      final long[] sorted = Arrays.copyOf(samples, n);
+      Arrays.sort(sorted);
+      return TimeUnit.NANOSECONDS.toMillis(sorted[Math.min(n - 1, (int) Math.ceil(percentile * n) - 1)]);
+    }
+
+    private boolean endInterval() {
+      final boolean wasCongested = congested;
+      congested = false;
+      return wasCongested;
+    }
+  }
+}
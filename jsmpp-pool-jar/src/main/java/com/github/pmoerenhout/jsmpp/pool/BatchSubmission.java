@@ -0,0 +1,207 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.util.MessageId;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A batch of submits spread over several sessions. Every session is fed by its own feeder, which waits for a slot in
+ * the send window of the session like {@link ThrottledSMPPSession#submitAsync(SubmitRequest, Executor)}, claims the
+ * next messages of the batch for the free slots, takes the rate permits for all of them at once and sends them. No
+ * thread waits for a slot, the permits or a response. A session that responds faster claims more messages. A feeder
+ * stops when its session is no longer bound or a submit fails with an I/O error, and hands the messages it claimed but
+ * did not send back to the other feeders.
+ */
+@Slf4j
+class BatchSubmission {
+
+  private final List<SubmitRequest> requests;
+  private final SubmitResult[] results;
+  private final Executor submitExecutor;
+  private final AtomicInteger cursor = new AtomicInteger();
+  private final Queue<Integer> handedBack = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger remaining;
+  private final AtomicInteger feeders = new AtomicInteger();
+  private final CompletableFuture<List<SubmitResult>> future = new CompletableFuture<>();
+
+  BatchSubmission(final List<SubmitRequest> requests, final Executor submitExecutor) {
+    this.requests = requests;
+    this.results = new SubmitResult[requests.size()];
+    this.submitExecutor = submitExecutor;
+    this.remaining = new AtomicInteger(requests.size());
+    if (requests.isEmpty()) {
+      future.complete(Arrays.asList(results));
+    }
+  }
+
+  CompletableFuture<List<SubmitResult>> getFuture() {
+    return future;
+  }
+
+  /**
+   * Register a feeder before it is started, so the batch is not failed while other feeders are still starting.
+   */
+  void addFeeder() {
+    feeders.incrementAndGet();
+  }
+
+  /**
+   * Feed the session until all messages of the batch are claimed, or the session fails.
+   *
+   * @return completes when the feeder stopped claiming messages, its last submits may still be in flight
+   */
+  CompletableFuture<Void> feed(final ThrottledSMPPSession session) {
+    final Feeder feeder = new Feeder(session);
+    feeder.next();
+    return feeder.done;
+  }
+
+  /**
+   * A feeder ended, when it was the last one all unclaimed messages fail.
+   */
+  void feederDone(final Throwable cause) {
+    if (feeders.decrementAndGet() == 0) {
+      final Throwable failure = cause != null ? cause : new IllegalStateException("No session left to submit the batch");
+      Integer index;
+      while ((index = handedBack.poll()) != null) {
+        complete(index, null, failure);
+      }
+      final int from = cursor.getAndSet(requests.size());
+      for (int i = from; i < requests.size(); i++) {
+        complete(i, null, failure);
+      }
+    }
+  }
+
+  private boolean hasUnclaimed() {
+    return cursor.get() < requests.size() || !handedBack.isEmpty();
+  }
+
+  /**
+   * Claim up to {@code slots} messages, the ones handed back by a stopped feeder first.
+   *
+   * @return the number of indexes claimed into {@code claimed}
+   */
+  private int claim(final int[] claimed, final int slots) {
+    int count = 0;
+    Integer index;
+    while (count < slots && (index = handedBack.poll()) != null) {
+      claimed[count++] = index;
+    }
+    if (count < slots && cursor.get() < requests.size()) {
+      final int from = cursor.getAndAdd(slots - count);
+      final int to = Math.min(requests.size(), from + slots - count);
+      for (int i = from; i < to; i++) {
+        claimed[count++] = i;
+      }
+    }
+    return count;
+  }
+
+  private void complete(final int index, final MessageId messageId, final Throwable failure) {
+    results[index] = new SubmitResult(requests.get(index), messageId, failure);
+    if (remaining.decrementAndGet() == 0) {
+      future.complete(Arrays.asList(results));
+    }
+  }
+
+  private final class Feeder {
+
+    private final ThrottledSMPPSession session;
+    private final int bulk;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile Throwable failure;
+
+    private Feeder(final ThrottledSMPPSession session) {
+      this.session = session;
+      this.bulk = session.getBulkPermits();
+    }
+
+    private boolean isUsable() {
+      return failure == null && session.getSessionState().isBound() && !session.isEjected();
+    }
+
+    private void next() {
+      if (!isUsable() || !hasUnclaimed()) {
+        stop();
+        return;
+      }
+      session.acquireWindowAsync().whenComplete((v, e) -> {
+        try {
+          onWindow();
+        } catch (RuntimeException runtimeException) {
+          log.warn("Batch feeder of session {} failed", session.getSessionId(), runtimeException);
+          failure = runtimeException;
+          stop();
+        }
+      });
+    }
+
+    private void onWindow() {
+      final int slots = 1 + session.tryAcquireWindow(bulk - 1);
+      final int[] claimed = new int[slots];
+      final int count = isUsable() ? claim(claimed, slots) : 0;
+      for (int i = count; i < slots; i++) {
+        session.release();
+      }
+      if (count == 0) {
+        stop();
+        return;
+      }
+      session.throttleAsync(count).whenComplete((v, throttleFailure) -> {
+        if (throttleFailure != null || !isUsable()) {
+          if (throttleFailure != null) {
+            failure = throttleFailure instanceof CompletionException ? throttleFailure.getCause() : throttleFailure;
+          }
+          handBack(claimed, count);
+          stop();
+          return;
+        }
+        for (int i = 0; i < count; i++) {
+          submit(claimed[i]);
+        }
+        try {
+          submitExecutor.execute(this::next);
+        } catch (RejectedExecutionException e) {
+          failure = e;
+          stop();
+        }
+      });
+    }
+
+    private void handBack(final int[] claimed, final int count) {
+      for (int i = 0; i < count; i++) {
+        session.release();
+        handedBack.add(claimed[i]);
+      }
+    }
+
+    private void submit(final int index) {
+      session.submitAcquired(requests.get(index), submitExecutor).whenComplete((messageId, e) -> {
+        final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof IOException && failure == null) {
+          log.debug("Batch feeder of session {} stops: {}", session.getSessionId(), cause.getMessage());
+          failure = cause;
+        }
+        complete(index, messageId, cause);
+      });
+    }
+
+    private void stop() {
+      if (done.complete(null)) {
+        feederDone(failure);
+      }
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stops the pool from binding to an SMSC that is down. After {@code failureThreshold} consecutive failed binds the
+ * breaker opens and every bind fails fast with a {@link BindCircuitOpenException}, instead of each caller waiting the
+ * full bind timeout. While open, a single background re-binder of the pool tries one bind at a time, after a jittered
+ * exponential backoff, and closes the breaker when it succeeds.
+ */
+@Slf4j
+public class BindCircuitBreaker {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  interface Listener {
+
+    void onOpen(long backoffNanos);
+
+    void onClose();
+  }
+
+  private final int failureThreshold;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private final AtomicInteger consecutiveOpens = new AtomicInteger();
+  private final AtomicBoolean trialPermit = new AtomicBoolean();
+  private final LongAdder rejected = new LongAdder();
+  private volatile Listener listener;
+
+  /**
+   * A breaker that opens after 3 failed binds and retries after 1 second, doubling up to 1 minute.
+   */
+  public BindCircuitBreaker() {
+    this(3, Duration.ofSeconds(1), Duration.ofMinutes(1));
+  }
+
+  public BindCircuitBreaker(final int failureThreshold, final Duration initialBackoff, final Duration maxBackoff) {
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("The failureThreshold parameter must be >= 1");
+    }
+    this.failureThreshold = failureThreshold;
+    this.initialBackoffNanos = initialBackoff.toNanos();
+    this.maxBackoffNanos = Math.max(initialBackoffNanos, maxBackoff.toNanos());
+  }
+
+  void setListener(final Listener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Permit a bind, or fail fast when the breaker is open or its half-open trial bind is already taken.
+   */
+  void acquireBind() throws BindCircuitOpenException {
+    final State current = state.get();
+    if (current == State.CLOSED || (current == State.HALF_OPEN && trialPermit.compareAndSet(true, false))) {
+      return;
+    }
+    rejected.increment();
+    throw new BindCircuitOpenException("Bind circuit breaker is open after " + consecutiveFailures.get() + " failed binds");
+  }
+
+  void recordSuccess() {
+    consecutiveFailures.set(0);
+    final State previous = state.getAndSet(State.CLOSED);
+    if (previous != State.CLOSED) {
+      consecutiveOpens.set(0);
+      log.info("Bind circuit breaker closed");
+      final Listener current = listener;
+      if (current != null) {
+        current.onClose();
+      }
+    }
+  }
+
+  void recordFailure() {
+    final int failures = consecutiveFailures.incrementAndGet();
+    if (state.compareAndSet(State.HALF_OPEN, State.OPEN)
+        || (failures >= failureThreshold && state.compareAndSet(State.CLOSED, State.OPEN))) {
+      final long backoffNanos = nextBackoffNanos();
+      log.warn("Bind circuit breaker opened after {} failed binds, next bind in {}ms", failures, backoffNanos / 1_000_000);
+      final Listener current = listener;
+      if (current != null) {
+        current.onOpen(backoffNanos);
+      }
+    }
+  }
+
+  /**
+   * Move from open to half-open and permit a single trial bind.
+   *
+   * @return false when the breaker was not open
+   */
+  boolean halfOpen() {
+    if (!state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+      return false;
+    }
+    trialPermit.set(true);
+    return true;
+  }
+
+  /**
+   * The backoff doubles with every opening up to the maximum, and a random half of it is added so the binds of many
+   * pools do not hit a recovering SMSC at the same moment.
+   */
+  private long nextBackoffNanos() {
+    final int opens = consecutiveOpens.getAndIncrement();
+    long backoff = initialBackoffNanos;
+    for (int i = 0; i < opens && backoff < maxBackoffNanos; i++) {
+      backoff <<= 1;
+    }
+    backoff = Math.min(backoff, maxBackoffNanos);
+    return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+  }
+
+  public State getState() {
+    return state.get();
+  }
+
+  public int getConsecutiveFailures() {
+    return consecutiveFailures.get();
+  }
+
+  /**
+   * The number of binds that failed fast because the breaker was open.
+   */
+  public long getNumRejected() {
+    return rejected.sum();
+  }
+}
@@ -0,0 +1,15 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of binding while the {@link BindCircuitBreaker} of the pool is open.
+ */
+public class BindCircuitOpenException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public BindCircuitOpenException(final String message) {
+    super(message);
+  }
+}
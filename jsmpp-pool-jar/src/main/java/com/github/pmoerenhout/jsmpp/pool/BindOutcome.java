@@ -0,0 +1,25 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import lombok.Value;
+
+/**
+ * The outcome of a single bind of a warm-up.
+ */
+@Value
+public class BindOutcome {
+
+  /**
+   * The session id, or null when the bind failed or timed out
+   */
+  String sessionId;
+  /**
+   * The cause of the failure, a {@link java.util.concurrent.TimeoutException} when the bind did not finish before the
+   * deadline, or null when bound
+   */
+  Throwable failure;
+  long bindTimeNanos;
+
+  public boolean isBound() {
+    return failure == null;
+  }
+}
@@ -0,0 +1,70 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jsmpp.InvalidCommandLengthException;
+import org.jsmpp.PDUReader;
+import org.jsmpp.bean.Command;
+
+/**
+ * A {@link PDUReader} that reads the PDU header with a single read into a reused buffer, where the default reader does a
+ * synchronized read per byte and copies the header through temporary arrays. The PDU itself is still a new byte array,
+ * as jSMPP hands it to the PDU processor threads.
+ * <p>
+ * A reader must not be shared by sessions, use one per session.
+ */
+public class ByteBufferPDUReader implements PDUReader {
+
+  private static final int HEADER_LENGTH = 16;
+
+  private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+  @Override
+  public Command readPDUHeader(final DataInputStream in) throws InvalidCommandLengthException, IOException {
+    final byte[] bytes = header.array();
+    in.readFully(bytes, 0, 4);
+    final int commandLength = header.getInt(0);
+    if (commandLength < HEADER_LENGTH) {
+      if (commandLength > 4) {
+        in.readFully(new byte[commandLength - 4]);
+      }
+      throw new InvalidCommandLengthException("Command length " + commandLength + " is too short");
+    }
+    in.readFully(bytes, 4, HEADER_LENGTH - 4);
+    final Command command = new Command();
+    command.setCommandLength(commandLength);
+    command.setCommandId(header.getInt(4));
+    command.setCommandStatus(header.getInt(8));
+    command.setSequenceNumber(header.getInt(12));
+    return command;
+  }
+
+  @Override
+  public byte[] readPDU(final DataInputStream in, final Command pduHeader) throws IOException {
+    return readPDU(in, pduHeader.getCommandLength(), pduHeader.getCommandId(), pduHeader.getCommandStatus(),
+        pduHeader.getSequenceNumber());
+  }
+
+  @Override
+  public byte[] readPDU(final DataInputStream in, final int commandLength, final int commandId,
+                        final int commandStatus, final int sequenceNumber) throws IOException {
+    final byte[] pdu = new byte[commandLength];
+    putInt(pdu, 0, commandLength);
+    putInt(pdu, 4, commandId);
+    putInt(pdu, 8, commandStatus);
+    putInt(pdu, 12, sequenceNumber);
+    if (commandLength > HEADER_LENGTH) {
+      in.readFully(pdu, HEADER_LENGTH, commandLength - HEADER_LENGTH);
+    }
+    return pdu;
+  }
+
+  private static void putInt(final byte[] bytes, final int offset, final int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+  }
+}
@@ -0,0 +1,284 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUStringException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.util.HexUtil;
+import org.jsmpp.util.StringParameter;
+import org.jsmpp.util.StringValidator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link org.jsmpp.PDUSender} that encodes the PDUs sent at high rates, submit_sm, deliver_sm, their responses and
+ * enquire_link, straight into a buffer of a {@link ByteBufferPool} instead of composing a new byte array per PDU. On a
+ * {@link SocketChannelConnection} a direct buffer is written to the channel, otherwise a heap buffer is written to the
+ * stream. The other PDUs are sent by the {@link DefaultPDUSender}.
+ * <p>
+ * The overridden methods return null instead of the bytes sent; jSMPP does not use the returned bytes.
+ */
+@Slf4j
+public class ByteBufferPDUSender extends DefaultPDUSender {
+
+  private static final int HEADER_LENGTH = 16;
+  private static final byte[] EMPTY_SHORT_MESSAGE = new byte[0];
+
+  private final ByteBufferPool directPool;
+  private final ByteBufferPool heapPool;
+
+  public ByteBufferPDUSender() {
+    this(ByteBufferPool.direct(), ByteBufferPool.heap());
+  }
+
+  public ByteBufferPDUSender(final ByteBufferPool directPool, final ByteBufferPool heapPool) {
+    if (heapPool.isDirect()) {
+      throw new IllegalArgumentException("The heapPool parameter must be a pool of heap buffers");
+    }
+    this.directPool = directPool;
+    this.heapPool = heapPool;
+  }
+
+  @Override
+  public byte[] sendHeader(final OutputStream os, final int commandId, final int commandStatus,
+                           final int sequenceNumber) throws IOException {
+    final ByteBufferPool pool = pool(os);
+    write(os, pool, header(pool, HEADER_LENGTH, commandId, commandStatus, sequenceNumber));
+    return null;
+  }
+
+  @Override
+  public byte[] sendGenericNack(final OutputStream os, final int commandStatus, final int sequenceNumber)
+      throws IOException {
+    return sendHeader(os, SMPPConstant.CID_GENERIC_NACK, commandStatus, sequenceNumber);
+  }
+
+  @Override
+  public byte[] sendEnquireLink(final OutputStream os, final int sequenceNumber) throws IOException {
+    return sendHeader(os, SMPPConstant.CID_ENQUIRE_LINK, 0, sequenceNumber);
+  }
+
+  @Override
+  public byte[] sendEnquireLinkResp(final OutputStream os, final int sequenceNumber) throws IOException {
+    return sendHeader(os, SMPPConstant.CID_ENQUIRE_LINK_RESP, 0, sequenceNumber);
+  }
+
+  @Override
+  public byte[] sendSubmitSm(final OutputStream os, final int sequenceNumber, final String serviceType,
+                             final TypeOfNumber sourceAddrTon, final NumberingPlanIndicator sourceAddrNpi,
+                             final String sourceAddr, final TypeOfNumber destAddrTon,
+                             final NumberingPlanIndicator destAddrNpi, final String destinationAddr,
+                             final ESMClass esmClass, final byte protocolId, final byte priorityFlag,
+                             final String scheduleDeliveryTime, final String validityPeriod,
+                             final RegisteredDelivery registeredDelivery, final byte replaceIfPresentFlag,
+                             final DataCoding dataCoding, final byte smDefaultMsgId, final byte[] shortMessage,
+                             final OptionalParameter... optionalParameters) throws PDUStringException, IOException {
+    final byte[] message = shortMessage != null ? shortMessage : EMPTY_SHORT_MESSAGE;
+    StringValidator.validateString(serviceType, StringParameter.SERVICE_TYPE);
+    StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
+    StringValidator.validateString(destinationAddr, StringParameter.DESTINATION_ADDR);
+    StringValidator.validateString(scheduleDeliveryTime, StringParameter.SCHEDULE_DELIVERY_TIME);
+    StringValidator.validateString(validityPeriod, StringParameter.VALIDITY_PERIOD);
+    StringValidator.validateString(message, StringParameter.SHORT_MESSAGE);
+    final byte[][] tlvs = serialize(optionalParameters);
+    final int size = HEADER_LENGTH + 12 + maxLength(serviceType) + maxLength(sourceAddr) + maxLength(destinationAddr)
+        + maxLength(scheduleDeliveryTime) + maxLength(validityPeriod) + message.length + length(tlvs);
+    final ByteBufferPool pool = pool(os);
+    final ByteBuffer buffer = header(pool, size, SMPPConstant.CID_SUBMIT_SM, 0, sequenceNumber);
+    putCString(buffer, serviceType);
+    buffer.put(sourceAddrTon.value());
+    buffer.put(sourceAddrNpi.value());
+    putCString(buffer, sourceAddr);
+    buffer.put(destAddrTon.value());
+    buffer.put(destAddrNpi.value());
+    putCString(buffer, destinationAddr);
+    buffer.put(esmClass.value());
+    buffer.put(protocolId);
+    buffer.put(priorityFlag);
+    putCString(buffer, scheduleDeliveryTime);
+    putCString(buffer, validityPeriod);
+    buffer.put(registeredDelivery.value());
+    buffer.put(replaceIfPresentFlag);
+    buffer.put(dataCoding.toByte());
+    buffer.put(smDefaultMsgId);
+    buffer.put((byte) message.length);
+    buffer.put(message);
+    putAll(buffer, tlvs);
+    write(os, pool, buffer);
+    return null;
+  }
+
+  @Override
+  public byte[] sendSubmitSmResp(final OutputStream os, final int sequenceNumber, final String messageId)
+      throws PDUStringException, IOException {
+    StringValidator.validateString(messageId, StringParameter.MESSAGE_ID);
+    final ByteBufferPool pool = pool(os);
+    final ByteBuffer buffer = header(pool, HEADER_LENGTH + maxLength(messageId), SMPPConstant.CID_SUBMIT_SM_RESP, 0,
+        sequenceNumber);
+    putCString(buffer, messageId);
+    write(os, pool, buffer);
+    return null;
+  }
+
+  @Override
+  public byte[] sendDeliverSm(final OutputStream os, final int sequenceNumber, final String serviceType,
+                              final TypeOfNumber sourceAddrTon, final NumberingPlanIndicator sourceAddrNpi,
+                              final String sourceAddr, final TypeOfNumber destAddrTon,
+                              final NumberingPlanIndicator destAddrNpi, final String destinationAddr,
+                              final ESMClass esmClass, final byte protocolId, final byte priorityFlag,
+                              final RegisteredDelivery registeredDelivery, final DataCoding dataCoding,
+                              final byte[] shortMessage, final OptionalParameter... optionalParameters)
+      throws PDUStringException, IOException {
+    final byte[] message = shortMessage != null ? shortMessage : EMPTY_SHORT_MESSAGE;
+    StringValidator.validateString(serviceType, StringParameter.SERVICE_TYPE);
+    StringValidator.validateString(sourceAddr, StringParameter.SOURCE_ADDR);
+    StringValidator.validateString(destinationAddr, StringParameter.DESTINATION_ADDR);
+    StringValidator.validateString(message, StringParameter.SHORT_MESSAGE);
+    final byte[][] tlvs = serialize(optionalParameters);
+    final int size = HEADER_LENGTH + 14 + maxLength(serviceType) + maxLength(sourceAddr) + maxLength(destinationAddr)
+        + message.length + length(tlvs);
+    final ByteBufferPool pool = pool(os);
+    final ByteBuffer buffer = header(pool, size, SMPPConstant.CID_DELIVER_SM, 0, sequenceNumber);
+    putCString(buffer, serviceType);
+    buffer.put(sourceAddrTon.value());
+    buffer.put(sourceAddrNpi.value());
+    putCString(buffer, sourceAddr);
+    buffer.put(destAddrTon.value());
+    buffer.put(destAddrNpi.value());
+    putCString(buffer, destinationAddr);
+    buffer.put(esmClass.value());
+    buffer.put(protocolId);
+    buffer.put(priorityFlag);
+    // schedule_delivery_time and validity_period
+    buffer.put((byte) 0);
+    buffer.put((byte) 0);
+    buffer.put(registeredDelivery.value());
+    // replace_if_present_flag
+    buffer.put((byte) 0);
+    buffer.put(dataCoding.toByte());
+    // sm_default_msg_id
+    buffer.put((byte) 0);
+    buffer.put((byte) message.length);
+    buffer.put(message);
+    putAll(buffer, tlvs);
+    write(os, pool, buffer);
+    return null;
+  }
+
+  @Override
+  public byte[] sendDeliverSmResp(final OutputStream os, final int commandStatus, final int sequenceNumber,
+                                  final String messageId) throws IOException {
+    final ByteBufferPool pool = pool(os);
+    final ByteBuffer buffer = header(pool, HEADER_LENGTH + maxLength(messageId), SMPPConstant.CID_DELIVER_SM_RESP,
+        commandStatus, sequenceNumber);
+    putCString(buffer, messageId);
+    write(os, pool, buffer);
+    return null;
+  }
+
+  private ByteBufferPool pool(final OutputStream os) {
+    return os instanceof ChannelOutputStream ? directPool : heapPool;
+  }
+
+  private static ByteBuffer header(final ByteBufferPool pool, final int size, final int commandId,
+                                   final int commandStatus, final int sequenceNumber) {
+    final ByteBuffer buffer = pool.acquire(size);
+    // The command_length is set when the PDU is complete
+    buffer.putInt(0);
+    buffer.putInt(commandId);
+    buffer.putInt(commandStatus);
+    buffer.putInt(sequenceNumber);
+    return buffer;
+  }
+
+  private static void write(final OutputStream os, final ByteBufferPool pool, final ByteBuffer buffer)
+      throws IOException {
+    try {
+      buffer.flip();
+      buffer.putInt(0, buffer.limit());
+      if (log.isDebugEnabled()) {
+        final byte[] bytes = new byte[buffer.limit()];
+        buffer.duplicate().get(bytes);
+        log.debug("Sending PDU {}", HexUtil.convertBytesToHexString(bytes, 0, bytes.length));
+      }
+      if (os instanceof ChannelOutputStream) {
+        ((ChannelOutputStream) os).write(buffer);
+      } else {
+        os.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+      }
+      os.flush();
+    } finally {
+      pool.release(buffer);
+    }
+  }
+
+  /**
+   * The maximum number of bytes of the C-Octet String, with the null terminator.
+   */
+  private static int maxLength(final String value) {
+    return value == null ? 1 : 3 * value.length() + 1;
+  }
+
+  /**
+   * Put the string with the platform encoding, like jSMPP does, without allocating when the string is US-ASCII.
+   */
+  private static void putCString(final ByteBuffer buffer, final String value) {
+    if (value != null) {
+      if (isAscii(value)) {
+        for (int i = 0; i < value.length(); i++) {
+          buffer.put((byte) value.charAt(i));
+        }
+      } else {
+        buffer.put(value.getBytes());
+      }
+    }
+    buffer.put((byte) 0);
+  }
+
+  private static boolean isAscii(final String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte[][] serialize(final OptionalParameter[] optionalParameters) {
+    if (optionalParameters == null || optionalParameters.length == 0) {
+      return null;
+    }
+    final byte[][] tlvs = new byte[optionalParameters.length][];
+    for (int i = 0; i < optionalParameters.length; i++) {
+      tlvs[i] = optionalParameters[i].serialize();
+    }
+    return tlvs;
+  }
+
+  private static int length(final byte[][] tlvs) {
+    int length = 0;
+    if (tlvs != null) {
+      for (final byte[] tlv : tlvs) {
+        length += tlv.length;
+      }
+    }
+    return length;
+  }
+
+  private static void putAll(final ByteBuffer buffer, final byte[][] tlvs) {
+    if (tlvs != null) {
+      for (final byte[] tlv : tlvs) {
+        buffer.put(tlv);
+      }
+    }
+  }
+}
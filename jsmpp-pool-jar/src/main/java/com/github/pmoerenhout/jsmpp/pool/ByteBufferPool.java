@@ -0,0 +1,106 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed number of equally sized buffers, shared by all sessions so the memory used scales with the number of PDUs being
+ * written at the same time instead of with the number of binds. Acquiring and releasing a buffer is a few
+ * compare-and-sets on the slots and does not allocate. The slots are filled as buffers are released; when all buffers
+ * are in use a new one is allocated, and a PDU larger than the buffer size gets a one-off buffer.
+ */
+public class ByteBufferPool {
+
+  public static final int DEFAULT_BUFFER_SIZE = 4096;
+  private static final ByteBufferPool DIRECT = new ByteBufferPool(true, DEFAULT_BUFFER_SIZE,
+      2 * Runtime.getRuntime().availableProcessors());
+  private static final ByteBufferPool HEAP = new ByteBufferPool(false, DEFAULT_BUFFER_SIZE,
+      2 * Runtime.getRuntime().availableProcessors());
+
+  private final boolean direct;
+  private final int bufferSize;
+  private final AtomicReferenceArray<ByteBuffer> slots;
+
+  public ByteBufferPool(final boolean direct, final int bufferSize, final int maxBuffers) {
+    if (bufferSize < 16) {
+      throw new IllegalArgumentException("The bufferSize parameter must be >= 16");
+    }
+    if (maxBuffers < 1) {
+      throw new IllegalArgumentException("The maxBuffers parameter must be >= 1");
+    }
+    this.direct = direct;
+    this.bufferSize = bufferSize;
+    this.slots = new AtomicReferenceArray<>(maxBuffers);
+  }
+
+  /**
+   * The pool of direct buffers for writing to channels.
+   */
+  public static ByteBufferPool direct() {
+    return DIRECT;
+  }
+
+  /**
+   * The pool of heap buffers for writing to streams.
+   */
+  public static ByteBufferPool heap() {
+    return HEAP;
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return a cleared buffer of at least {@code size} bytes
+   */
+  public ByteBuffer acquire(final int size) {
+    if (size <= bufferSize) {
+      final int length = slots.length();
+      final int start = (int) (Thread.currentThread().getId() % length);
+      for (int i = 0; i < length; i++) {
+        final int index = (start + i) % length;
+        if (slots.get(index) != null) {
+          final ByteBuffer buffer = slots.getAndSet(index, null);
+          if (buffer != null) {
+            buffer.clear();
+            return buffer;
+          }
+        }
+      }
+    }
+    final int capacity = Math.max(size, bufferSize);
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
+
+  public void release(final ByteBuffer buffer) {
+    if (buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+      return;
+    }
+    final int length = slots.length();
+    final int start = (int) (Thread.currentThread().getId() % length);
+    for (int i = 0; i < length; i++) {
+      final int index = (start + i) % length;
+      if (slots.get(index) == null && slots.compareAndSet(index, null, buffer)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the number of buffers that can be acquired without allocating
+   */
+  public int getNumAvailable() {
+    int available = 0;
+    for (int i = 0; i < slots.length(); i++) {
+      if (slots.get(i) != null) {
+        available++;
+      }
+    }
+    return available;
+  }
+}
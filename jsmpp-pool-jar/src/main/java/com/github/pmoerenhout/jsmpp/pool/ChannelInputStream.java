@@ -0,0 +1,81 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The input stream of a {@link SocketChannelConnection}. The channel stays in non-blocking mode, a read waits on its own
+ * selector for up to the read timeout jSMPP relies on. Reading through the socket stream instead would switch the
+ * channel between blocking and non-blocking mode on every timed read, under the feet of a concurrent writer.
+ */
+class ChannelInputStream extends InputStream {
+
+  private final SocketChannel channel;
+  private final Selector selector;
+  private volatile int soTimeout;
+
+  ChannelInputStream(final SocketChannel channel) throws IOException {
+    this.channel = channel;
+    this.selector = Selector.open();
+    try {
+      channel.register(selector, SelectionKey.OP_READ);
+    } catch (IOException e) {
+      selector.close();
+      throw e;
+    }
+  }
+
+  void setSoTimeout(final int timeout) {
+    this.soTimeout = timeout;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] b = new byte[1];
+    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+    final int timeout = soTimeout;
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    int read;
+    while ((read = channel.read(buffer)) == 0) {
+      long remainingMillis = 0;
+      if (timeout > 0) {
+        remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0) {
+          throw new SocketTimeoutException("Read timed out");
+        }
+      }
+      try {
+        selector.select(remainingMillis);
+        selector.selectedKeys().clear();
+      } catch (ClosedSelectorException e) {
+        throw new ClosedChannelException();
+      }
+    }
+    return read;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+    } finally {
+      selector.close();
+    }
+  }
+}
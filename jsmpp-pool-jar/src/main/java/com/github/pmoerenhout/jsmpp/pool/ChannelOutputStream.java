@@ -0,0 +1,84 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The output stream of a {@link SocketChannelConnection}. Besides the stream methods used by the default jSMPP PDU
+ * sender, it writes byte buffers to the channel directly, so direct buffers reach the socket without being copied.
+ * When a non-blocking channel takes no bytes, the writer waits until the channel is writable again instead of spinning.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+  private final SocketChannel channel;
+  private volatile Selector selector;
+  private volatile boolean closed;
+
+  public ChannelOutputStream(final SocketChannel channel) {
+    this.channel = channel;
+  }
+
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  public synchronized void write(final ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.write(buffer) == 0) {
+        awaitWritable();
+      }
+    }
+  }
+
+  private void awaitWritable() throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (selector == null) {
+      final Selector writeSelector = Selector.open();
+      selector = writeSelector;
+      try {
+        channel.register(writeSelector, SelectionKey.OP_WRITE);
+      } catch (IOException e) {
+        writeSelector.close();
+        throw e;
+      }
+    }
+    try {
+      selector.select();
+      selector.selectedKeys().clear();
+    } catch (ClosedSelectorException e) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(ByteBuffer.wrap(new byte[]{ (byte) b }));
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    write(ByteBuffer.wrap(b, off, len));
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+    } finally {
+      // Not synchronized, a waiting writer holds the lock; closing the selector wakes it up
+      closed = true;
+      final Selector writeSelector = selector;
+      if (writeSelector != null) {
+        writeSelector.close();
+      }
+    }
+  }
+}
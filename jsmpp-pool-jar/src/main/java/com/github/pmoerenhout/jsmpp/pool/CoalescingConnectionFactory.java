@@ -0,0 +1,106 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+
+/**
+ * Wraps the connections of another factory to coalesce the writes of concurrent senders on a
+ * {@link ThrottledSMPPSession}, so a burst of submits goes out in fewer system calls and TCP segments. The delegate
+ * should disable Nagle's algorithm, like the {@link SocketChannelConnectionFactory} which is the default.
+ */
+public class CoalescingConnectionFactory implements ConnectionFactory {
+
+  private final ConnectionFactory connectionFactory;
+  private final int maxBatchBytes;
+  private final long maxDelayNanos;
+
+  /**
+   * @param maxBatchBytes the maximum number of bytes written at once
+   * @param maxDelay      the maximum time a PDU is held back
+   */
+  public CoalescingConnectionFactory(final int maxBatchBytes, final long maxDelay, final TimeUnit unit) {
+    this(new SocketChannelConnectionFactory(), maxBatchBytes, maxDelay, unit);
+  }
+
+  public CoalescingConnectionFactory(final ConnectionFactory connectionFactory, final int maxBatchBytes,
+                                     final long maxDelay, final TimeUnit unit) {
+    if (maxBatchBytes < 16) {
+      throw new IllegalArgumentException("The maxBatchBytes parameter must be >= 16");
+    }
+    if (maxDelay < 0) {
+      throw new IllegalArgumentException("The maxDelay parameter must be >= 0");
+    }
+    this.connectionFactory = connectionFactory;
+    this.maxBatchBytes = maxBatchBytes;
+    this.maxDelayNanos = unit.toNanos(maxDelay);
+  }
+
+  @Override
+  public Connection createConnection(final String host, final int port) throws IOException {
+    final Connection connection = connectionFactory.createConnection(host, port);
+    return new CoalescingConnection(connection,
+        new CoalescingOutputStream(connection.getOutputStream(), maxBatchBytes, maxDelayNanos));
+  }
+
+  private static class CoalescingConnection implements Connection {
+
+    private final Connection connection;
+    private final CoalescingOutputStream out;
+
+    CoalescingConnection(final Connection connection, final CoalescingOutputStream out) {
+      this.connection = connection;
+      this.out = out;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return connection.isOpen();
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+      return connection.getInetAddress();
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+      return connection.getLocalAddress();
+    }
+
+    @Override
+    public int getPort() {
+      return connection.getPort();
+    }
+
+    @Override
+    public int getLocalPort() {
+      return connection.getLocalPort();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return connection.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+      return out;
+    }
+
+    @Override
+    public void setSoTimeout(final int timeout) throws IOException {
+      connection.setSoTimeout(timeout);
+    }
+
+    @Override
+    public void close() throws IOException {
+      connection.close();
+    }
+  }
+}
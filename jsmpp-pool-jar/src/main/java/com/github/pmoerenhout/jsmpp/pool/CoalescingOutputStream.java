@@ -0,0 +1,196 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gathers the PDUs of concurrent senders on a session and writes them to the socket together. A flush is held back
+ * while another send command of the session is about to write, and the last of them flushes for all. When the queue
+ * of writers drains, the buffer is written at once if the previous write is at least the maximum delay ago, so an idle
+ * session adds no latency; otherwise it is written when that delay has passed. The buffer is also written when the
+ * next PDU does not fit. When a delayed write fails, the connection is closed and the failure is thrown to the next
+ * writer.
+ */
+@Slf4j
+class CoalescingOutputStream extends OutputStream {
+
+  private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("smpp-flush-%d").setDaemon(true).build());
+
+  private final OutputStream out;
+  private final ByteBuffer buffer;
+  private final long maxDelayNanos;
+  private final AtomicInteger writers = new AtomicInteger();
+  private final ReentrantLock lock = new ReentrantLock();
+  private long lastWriteNanos;
+  private boolean flushScheduled;
+  private IOException failure;
+  private long numWrites;
+  private long numFlushes;
+
+  CoalescingOutputStream(final OutputStream out, final int maxBatchBytes, final long maxDelayNanos) {
+    this.out = out;
+    this.buffer = out instanceof ChannelOutputStream ?
+        ByteBuffer.allocateDirect(maxBatchBytes) : ByteBuffer.allocate(maxBatchBytes);
+    this.maxDelayNanos = maxDelayNanos;
+    this.lastWriteNanos = System.nanoTime() - maxDelayNanos;
+  }
+
+  /**
+   * A send command is about to write a PDU.
+   */
+  void enter() {
+    writers.incrementAndGet();
+  }
+
+  /**
+   * The send command wrote its PDU, or failed to. The last writer flushes the PDUs of the others.
+   */
+  void exit() throws IOException {
+    if (writers.decrementAndGet() == 0) {
+      lock.lock();
+      try {
+        writeOrSchedule();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[]{ (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    lock.lock();
+    try {
+      checkFailure();
+      if (len > buffer.remaining()) {
+        writeBuffer();
+        if (len > buffer.capacity()) {
+          out.write(b, off, len);
+          out.flush();
+          return;
+        }
+      }
+      buffer.put(b, off, len);
+      numWrites++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    lock.lock();
+    try {
+      if (writers.get() == 0) {
+        writeOrSchedule();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeOrSchedule() throws IOException {
+    checkFailure();
+    if (buffer.position() == 0 || flushScheduled) {
+      return;
+    }
+    final long delayNanos = lastWriteNanos + maxDelayNanos - System.nanoTime();
+    if (delayNanos <= 0) {
+      writeBuffer();
+    } else {
+      flushScheduled = true;
+      FLUSHER.schedule(this::scheduledFlush, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void scheduledFlush() {
+    lock.lock();
+    try {
+      flushScheduled = false;
+      writeBuffer();
+    } catch (IOException e) {
+      log.debug("Writing the coalesced PDUs failed", e);
+      failure = e;
+      closeQuietly();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("Writing the coalesced PDUs failed", failure);
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      out.close();
+    } catch (IOException e) {
+      log.debug("Closing the connection failed", e);
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    if (buffer.position() == 0) {
+      return;
+    }
+    buffer.flip();
+    try {
+      if (out instanceof ChannelOutputStream) {
+        ((ChannelOutputStream) out).write(buffer);
+      } else {
+        out.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+      }
+      out.flush();
+      numFlushes++;
+    } finally {
+      lastWriteNanos = System.nanoTime();
+      buffer.clear();
+    }
+  }
+
+  /**
+   * @return the number of PDUs written to the buffer
+   */
+  long getNumWrites() {
+    lock.lock();
+    try {
+      return numWrites;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of times the buffer was written to the socket
+   */
+  long getNumFlushes() {
+    lock.lock();
+    try {
+      return numFlushes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
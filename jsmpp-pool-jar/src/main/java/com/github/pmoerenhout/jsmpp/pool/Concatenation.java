@@ -0,0 +1,12 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+public enum Concatenation {
+  /**
+   * A concatenation user data header in front of every segment, with the UDHI flag in the esm_class
+   */
+  UDH,
+  /**
+   * The sar_msg_ref_num, sar_total_segments and sar_segment_seqnum optional parameters
+   */
+  SAR
+}
@@ -0,0 +1,387 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jsmpp.util.DeliveryReceiptState;
+import org.jsmpp.util.MessageId;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Matches delivery receipts to the messages they report on. The message id of each submit_sm_resp is stored with a
+ * reference of the application, e.g. the primary key of the message, and looked up in constant time when the receipt
+ * arrives:
+ * <pre>
+ * store.track(pool.submitAsync(request), messageKey);
+ * ...
+ * if (view.wrap(deliverSm.getShortMessage())) {
+ *   final long messageKey = store.match(view);
+ * }
+ * </pre>
+ * The ids are kept as longs in primitive hash tables of a fixed capacity: numeric ids as their value, other ids as a
+ * 63 bit hash. Entries expire after the time to live. Entries older than the spill age, or that find the memory full,
+ * move to a memory-mapped spill file when one is configured, which also keeps them over a restart of the process.
+ */
+@Slf4j
+public class CorrelationStore implements AutoCloseable {
+
+  public static final long NOT_FOUND = CorrelationTable.NOT_FOUND;
+
+  private static final int SEGMENTS = 16;
+  // A put that finds its segment full sweeps it at most this often, in between it spills or drops straight away
+  private static final long FULL_SWEEP_INTERVAL_MILLIS = 100;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final MappedByteBuffer[] spillBuffers;
+  private final long ttlMillis;
+  private final long spillAfterMillis;
+  private final ScheduledExecutorService sweeper;
+  private final LongAdder stored = new LongAdder();
+  private final LongAdder matched = new LongAdder();
+  private final LongAdder missed = new LongAdder();
+  private final LongAdder spilled = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private final Runnable onSpill = spilled::increment;
+  private volatile int submitRadix = 16;
+  private volatile int receiptRadix = 16;
+
+  /**
+   * @param capacity  the number of entries kept in memory, about 32 bytes each
+   * @param ttlMillis how long an entry waits for its final receipt
+   */
+  public CorrelationStore(final int capacity, final long ttlMillis) {
+    this.ttlMillis = ttlMillis;
+    this.spillAfterMillis = Long.MAX_VALUE;
+    this.spillBuffers = null;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(memoryTable(capacity), null);
+    }
+    this.sweeper = startSweeper();
+  }
+
+  /**
+   * Open the store with a spill file, the entries in an existing file are kept.
+   *
+   * @param spillFile        the memory-mapped file for the entries that wait long for their receipt
+   * @param spillCapacity    the number of entries kept in the file, 24 bytes each
+   * @param spillAfterMillis entries in memory older than this move to the file
+   */
+  public CorrelationStore(final int capacity, final long ttlMillis, final Path spillFile, final int spillCapacity,
+                          final long spillAfterMillis) throws IOException {
+    this.ttlMillis = ttlMillis;
+    this.spillAfterMillis = spillAfterMillis;
+    this.spillBuffers = new MappedByteBuffer[SEGMENTS];
+    final long segmentBytes = (long) CorrelationTable.capacityFor(spillCapacity / SEGMENTS)
+        * CorrelationTable.SLOT_LONGS * Long.BYTES;
+    try (FileChannel channel = FileChannel.open(spillFile,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final long size = channel.size();
+      if (size != 0 && size != segmentBytes * SEGMENTS) {
+        throw new IOException("Spill file " + spillFile + " has " + size + " bytes, expected "
+            + segmentBytes * SEGMENTS + " for a capacity of " + spillCapacity);
+      }
+      for (int i = 0; i < SEGMENTS; i++) {
+        spillBuffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+        segments[i] = new Segment(memoryTable(capacity), new CorrelationTable(spillBuffers[i].asLongBuffer()));
+      }
+    }
+    log.info("Opened spill file {} with {} entries", spillFile, getSpillSize());
+    this.sweeper = startSweeper();
+  }
+
+  private static CorrelationTable memoryTable(final int capacity) {
+    final int slots = CorrelationTable.capacityFor(capacity / SEGMENTS);
+    return new CorrelationTable(LongBuffer.wrap(new long[slots * CorrelationTable.SLOT_LONGS]));
+  }
+
+  private ScheduledExecutorService startSweeper() {
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("smpp-correlation-%d").setDaemon(true).build());
+    executor.scheduleWithFixedDelay(this::sweep, 1, 1, TimeUnit.SECONDS);
+    return executor;
+  }
+
+  /**
+   * @param submitRadix the radix of the message ids in the submit_sm_resp, 16 by default
+   */
+  public void setSubmitRadix(final int submitRadix) {
+    this.submitRadix = submitRadix;
+  }
+
+  /**
+   * @param receiptRadix the radix of the message ids in the delivery receipts, 16 by default. Set it to 10 for an SMSC
+   *                     that returns hex ids and repeats them in decimal in its receipts.
+   */
+  public void setReceiptRadix(final int receiptRadix) {
+    this.receiptRadix = receiptRadix;
+  }
+
+  /**
+   * The key of a message id: its value when it is a number in the radix, otherwise a negative hash.
+   */
+  public static long key(final CharSequence messageId, final int radix) {
+    final long value = MessageIds.parse(messageId, radix);
+    if (value >= 0) {
+      return value;
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < messageId.length(); i++) {
+      hash = (hash ^ messageId.charAt(i)) * 0x100000001b3L;
+    }
+    return hash | Long.MIN_VALUE;
+  }
+
+  /**
+   * @see #key(CharSequence, int)
+   */
+  public static long key(final byte[] source, final int offset, final int length, final int radix) {
+    final long value = MessageIds.parse(source, offset, length, radix);
+    if (value >= 0) {
+      return value;
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ (source[i] & 0xff)) * 0x100000001b3L;
+    }
+    return hash | Long.MIN_VALUE;
+  }
+
+  /**
+   * Store the reference of the message id of a submit_sm_resp.
+   *
+   * @return false when the store is full
+   */
+  public boolean put(final CharSequence messageId, final long reference) {
+    return putKey(key(messageId, submitRadix), reference);
+  }
+
+  /**
+   * Store the reference of a message id key, see {@link #key(CharSequence, int)}.
+   *
+   * @return false when the store is full
+   */
+  public boolean putKey(final long key, final long reference) {
+    final long now = System.currentTimeMillis();
+    final Segment segment = segment(key);
+    synchronized (segment) {
+      if (!segment.memory.put(key, reference, now + ttlMillis, now)) {
+        if (now - segment.lastSweepMillis >= FULL_SWEEP_INTERVAL_MILLIS) {
+          sweep(segment, now);
+        }
+        if (!segment.memory.put(key, reference, now + ttlMillis, now)) {
+          if (segment.spill == null || !segment.spill.put(key, reference, now + ttlMillis, now)) {
+            dropped.increment();
+            return false;
+          }
+          spilled.increment();
+        }
+      }
+    }
+    stored.increment();
+    return true;
+  }
+
+  /**
+   * Store the message id with the reference when the submit succeeds.
+   *
+   * @return the submit
+   */
+  public CompletableFuture<MessageId> track(final CompletableFuture<MessageId> submit, final long reference) {
+    return submit.whenComplete((messageId, throwable) -> {
+      if (messageId != null) {
+        put(messageId.getValue(), reference);
+      }
+    });
+  }
+
+  /**
+   * @return the reference of the message id of a receipt, or {@link #NOT_FOUND}
+   */
+  public long get(final CharSequence messageId) {
+    return getKey(key(messageId, receiptRadix));
+  }
+
+  public long getKey(final long key) {
+    final long now = System.currentTimeMillis();
+    final Segment segment = segment(key);
+    long reference;
+    synchronized (segment) {
+      reference = segment.memory.get(key, now);
+      if (reference == NOT_FOUND && segment.spill != null) {
+        reference = segment.spill.get(key, now);
+      }
+    }
+    count(reference);
+    return reference;
+  }
+
+  /**
+   * @return the reference of the message id of a receipt, or {@link #NOT_FOUND}
+   */
+  public long remove(final CharSequence messageId) {
+    return removeKey(key(messageId, receiptRadix));
+  }
+
+  public long removeKey(final long key) {
+    final long now = System.currentTimeMillis();
+    final Segment segment = segment(key);
+    long reference;
+    synchronized (segment) {
+      reference = segment.memory.remove(key, now);
+      if (segment.spill != null) {
+        final long spilledReference = segment.spill.remove(key, now);
+        if (reference == NOT_FOUND) {
+          reference = spilledReference;
+        }
+      }
+    }
+    count(reference);
+    return reference;
+  }
+
+  /**
+   * Look up the message a receipt reports on. The entry is removed on a final state, and kept for the receipts that
+   * follow an ENROUTE or ACCEPTD state.
+   *
+   * @return the reference, or {@link #NOT_FOUND}
+   */
+  public long match(final DeliveryReceiptView receipt) {
+    final long key = key(receipt.getSource(), receipt.getIdOffset(), receipt.getIdLength(), receiptRadix);
+    final DeliveryReceiptState state = receipt.getState();
+    if (state == null || state == DeliveryReceiptState.ENROUTE || state == DeliveryReceiptState.ACCEPTD) {
+      return getKey(key);
+    }
+    return removeKey(key);
+  }
+
+  private void count(final long reference) {
+    if (reference == NOT_FOUND) {
+      missed.increment();
+    } else {
+      matched.increment();
+    }
+  }
+
+  private Segment segment(final long key) {
+    return segments[(int) (CorrelationTable.mix(key) >>> 60)];
+  }
+
+  private void sweep() {
+    try {
+      final long now = System.currentTimeMillis();
+      for (final Segment segment : segments) {
+        synchronized (segment) {
+          sweep(segment, now);
+          if (segment.spill != null) {
+            expired.add(segment.spill.sweep(now, 0, null, null));
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("Correlation sweep failed", e);
+    }
+  }
+
+  private void sweep(final Segment segment, final long now) {
+    segment.lastSweepMillis = now;
+    final long spillBefore = spillAfterMillis == Long.MAX_VALUE ? 0 : now + ttlMillis - spillAfterMillis;
+    expired.add(segment.memory.sweep(now, spillBefore, segment.spill, onSpill));
+  }
+
+  /**
+   * Stop the sweeper and write the spill file to the storage device.
+   */
+  @Override
+  public void close() {
+    sweeper.shutdownNow();
+    if (spillBuffers != null) {
+      for (final Segment segment : segments) {
+        synchronized (segment) {
+          // Unexpired entries in memory are kept over a restart
+          expired.add(segment.memory.sweep(System.currentTimeMillis(), Long.MAX_VALUE, segment.spill, onSpill));
+        }
+      }
+      for (final MappedByteBuffer buffer : spillBuffers) {
+        buffer.force();
+      }
+    }
+  }
+
+  /**
+   * The entries in memory and in the spill file, including the expired entries not yet swept.
+   */
+  public int getSize() {
+    return getMemorySize() + getSpillSize();
+  }
+
+  public int getMemorySize() {
+    int size = 0;
+    for (final Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.memory.getSize();
+      }
+    }
+    return size;
+  }
+
+  public int getSpillSize() {
+    int size = 0;
+    for (final Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.spill != null ? segment.spill.getSize() : 0;
+      }
+    }
+    return size;
+  }
+
+  public long getNumStored() {
+    return stored.sum();
+  }
+
+  public long getNumMatched() {
+    return matched.sum();
+  }
+
+  public long getNumMissed() {
+    return missed.sum();
+  }
+
+  public long getNumSpilled() {
+    return spilled.sum();
+  }
+
+  /**
+   * The message ids not stored because the memory and the spill file were full.
+   */
+  public long getNumDropped() {
+    return dropped.sum();
+  }
+
+  public long getNumExpired() {
+    return expired.sum();
+  }
+
+  private static final class Segment {
+
+    private final CorrelationTable memory;
+    private final CorrelationTable spill;
+    private long lastSweepMillis;
+
+    private Segment(final CorrelationTable memory, final CorrelationTable spill) {
+      this.memory = memory;
+      this.spill = spill;
+    }
+  }
+}
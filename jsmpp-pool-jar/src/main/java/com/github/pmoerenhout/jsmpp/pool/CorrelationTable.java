@@ -0,0 +1,178 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.nio.LongBuffer;
+
+/**
+ * Open addressing hash table from a long key to a long reference with an expiry time, laid out in a {@link LongBuffer}
+ * of three longs per slot, so the same table works on a heap array and on a memory-mapped file. A slot with expiry 0 is
+ * empty. Collisions are probed linearly and removals shift the following entries back, so there are no tombstones.
+ * Not thread safe.
+ */
+final class CorrelationTable {
+
+  static final int SLOT_LONGS = 3;
+  static final long NOT_FOUND = -1;
+
+  private final LongBuffer slots;
+  private final int mask;
+  private final int maxSize;
+  private int size;
+
+  /**
+   * @param slots a buffer of a power of two number of slots, its existing entries are kept
+   */
+  CorrelationTable(final LongBuffer slots) {
+    final int capacity = slots.capacity() / SLOT_LONGS;
+    if (Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("The capacity must be a power of two");
+    }
+    this.slots = slots;
+    this.mask = capacity - 1;
+    this.maxSize = capacity - (capacity >> 2);
+    for (int i = 0; i < capacity; i++) {
+      if (expiresAt(i) != 0) {
+        size++;
+      }
+    }
+  }
+
+  static int capacityFor(final int entries) {
+    final int slots = Math.max(16, entries + entries / 3);
+    return Integer.highestOneBit(slots - 1) << 1;
+  }
+
+  static long mix(final long key) {
+    long h = key;
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return h ^ (h >>> 33);
+  }
+
+  int getSize() {
+    return size;
+  }
+
+  /**
+   * Store or replace the reference of a key. An expired entry is overwritten.
+   *
+   * @return false when the table is full
+   */
+  boolean put(final long key, final long reference, final long expiresAt, final long now) {
+    int i = index(key);
+    int free = -1;
+    long slotExpiresAt;
+    while ((slotExpiresAt = expiresAt(i)) != 0) {
+      if (key(i) == key) {
+        set(i, key, reference, expiresAt);
+        return true;
+      }
+      if (free < 0 && slotExpiresAt <= now) {
+        free = i;
+      }
+      i = (i + 1) & mask;
+    }
+    if (free >= 0) {
+      set(free, key, reference, expiresAt);
+      return true;
+    }
+    if (size >= maxSize) {
+      return false;
+    }
+    set(i, key, reference, expiresAt);
+    size++;
+    return true;
+  }
+
+  long get(final long key, final long now) {
+    final int i = find(key);
+    return i >= 0 && expiresAt(i) > now ? reference(i) : NOT_FOUND;
+  }
+
+  long remove(final long key, final long now) {
+    final int i = find(key);
+    if (i < 0) {
+      return NOT_FOUND;
+    }
+    final long reference = expiresAt(i) > now ? reference(i) : NOT_FOUND;
+    delete(i);
+    return reference;
+  }
+
+  /**
+   * Remove the expired entries, and move the entries that expire before {@code moveBefore} to the target table while
+   * it has room.
+   *
+   * @return the number of expired entries removed
+   */
+  int sweep(final long now, final long moveBefore, final CorrelationTable target, final Runnable onMove) {
+    int expired = 0;
+    int i = 0;
+    while (i <= mask) {
+      final long slotExpiresAt = expiresAt(i);
+      if (slotExpiresAt != 0 && slotExpiresAt <= now) {
+        delete(i);
+        expired++;
+      } else if (slotExpiresAt != 0 && target != null && slotExpiresAt < moveBefore
+          && target.put(key(i), reference(i), slotExpiresAt, now)) {
+        delete(i);
+        onMove.run();
+      } else {
+        i++;
+      }
+    }
+    return expired;
+  }
+
+  private int find(final long key) {
+    int i = index(key);
+    while (expiresAt(i) != 0) {
+      if (key(i) == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void delete(final int slot) {
+    int gap = slot;
+    int i = slot;
+    while (true) {
+      i = (i + 1) & mask;
+      if (expiresAt(i) == 0) {
+        break;
+      }
+      // An entry can fill the gap when its home slot is not between the gap and itself
+      final int home = index(key(i));
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        set(gap, key(i), reference(i), expiresAt(i));
+        gap = i;
+      }
+    }
+    set(gap, 0, 0, 0);
+    size--;
+  }
+
+  private int index(final long key) {
+    return (int) mix(key) & mask;
+  }
+
+  private long key(final int slot) {
+    return slots.get(slot * SLOT_LONGS);
+  }
+
+  private long reference(final int slot) {
+    return slots.get(slot * SLOT_LONGS + 1);
+  }
+
+  private long expiresAt(final int slot) {
+    return slots.get(slot * SLOT_LONGS + 2);
+  }
+
+  private void set(final int slot, final long key, final long reference, final long expiresAt) {
+    final int base = slot * SLOT_LONGS;
+    slots.put(base, key);
+    slots.put(base + 1, reference);
+    slots.put(base + 2, expiresAt);
+  }
+}
@@ -0,0 +1,12 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import org.jsmpp.bean.DeliverSm;
+
+/**
+ * Processes the deliver_sm PDUs handed off by a {@link DeliverSmPipeline}, on the thread of their partition.
+ */
+@FunctionalInterface
+public interface DeliverSmHandler {
+
+  void handle(DeliverSm deliverSm) throws Exception;
+}
@@ -0,0 +1,307 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.AlertNotification;
+import org.jsmpp.bean.DataSm;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.extra.ProcessRequestException;
+import org.jsmpp.session.DataSmResult;
+import org.jsmpp.session.MessageReceiverListener;
+import org.jsmpp.session.Session;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Takes the deliver_sm PDUs off the PDU processor threads of jSMPP. Each deliver_sm is queued in one of a fixed number
+ * of partitions by its key, the message id of a delivery receipt by default, so the receipts of a message are handled
+ * in order, one at a time, while different messages are handled in parallel.
+ * <p>
+ * The partition queues are bounded. When a queue is full the deliver_sm_resp is held back until there is room, which
+ * slows down the SMSC through its window instead of dropping receipts. After the maximum delay the deliver_sm is
+ * answered with ESME_RX_T_APPN, so the SMSC delivers it again later. With {@link AckMode#ON_COMMIT} a deliver_sm that
+ * is not handled within the maximum delay is answered the same way, and skipped when its turn comes.
+ */
+@Slf4j
+public class DeliverSmPipeline implements MessageReceiverListener, AutoCloseable {
+
+  private static final short RECEIPTED_MESSAGE_ID = OptionalParameter.Tag.RECEIPTED_MESSAGE_ID.code();
+
+  private final DeliverSmHandler handler;
+  private final AckMode ackMode;
+  private final List<BlockingQueue<Task>> partitions;
+  private final Thread[] workers;
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder handled = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder delayed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private volatile Function<DeliverSm, Object> keyFunction = DeliverSmPipeline::messageIdKey;
+  private volatile long maxDelayMillis = 2000;
+  private volatile MessageReceiverListener delegate;
+  private volatile boolean running = true;
+
+  public DeliverSmPipeline(final DeliverSmHandler handler) {
+    this(handler, AckMode.ON_QUEUE, Runtime.getRuntime().availableProcessors(), 1024);
+  }
+
+  /**
+   * @param partitions    the number of partitions, each processed by its own thread
+   * @param queueCapacity the deliver_sm PDUs each partition can queue before the responses are held back
+   */
+  public DeliverSmPipeline(final DeliverSmHandler handler, final AckMode ackMode, final int partitions,
+                           final int queueCapacity) {
+    if (partitions < 1) {
+      throw new IllegalArgumentException("The partitions parameter must be >= 1");
+    }
+    this.handler = handler;
+    this.ackMode = ackMode;
+    this.partitions = new ArrayList<>(partitions);
+    this.workers = new Thread[partitions];
+    final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("smpp-deliver-%d").setDaemon(true).build();
+    for (int i = 0; i < partitions; i++) {
+      final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.partitions.add(queue);
+      this.workers[i] = threadFactory.newThread(() -> work(queue));
+      this.workers[i].start();
+    }
+  }
+
+  /**
+   * @param keyFunction the key that selects the partition, by default the message id of a delivery receipt, or the
+   *                    source address of other messages
+   */
+  public void setKeyFunction(final Function<DeliverSm, Object> keyFunction) {
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * @param maxDelayMillis the longest the deliver_sm_resp is held back for room in the queue, or for the handler with
+   *                       {@link AckMode#ON_COMMIT}
+   */
+  public void setMaxDelayMillis(final long maxDelayMillis) {
+    this.maxDelayMillis = maxDelayMillis;
+  }
+
+  /**
+   * @param delegate receives the alert_notification and data_sm PDUs
+   */
+  public void setDelegate(final MessageReceiverListener delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void onAcceptDeliverSm(final DeliverSm deliverSm) throws ProcessRequestException {
+    if (!running) {
+      throw new ProcessRequestException("Deliver pipeline is closed", SMPPConstant.STAT_ESME_RX_T_APPN);
+    }
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    final Task task = new Task(deliverSm, ackMode == AckMode.ON_COMMIT ? new CompletableFuture<>() : null);
+    final BlockingQueue<Task> queue = partitions.get(partition(deliverSm));
+    try {
+      if (!queue.offer(task)) {
+        delayed.increment();
+        if (!queue.offer(task, maxDelayMillis, TimeUnit.MILLISECONDS)) {
+          rejected.increment();
+          throw new ProcessRequestException("Deliver pipeline is full", SMPPConstant.STAT_ESME_RX_T_APPN);
+        }
+      }
+      accepted.increment();
+      if (task.committed != null) {
+        task.committed.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessRequestException("Interrupted", SMPPConstant.STAT_ESME_RX_T_APPN);
+    } catch (TimeoutException e) {
+      expire(task);
+    } catch (ExecutionException e) {
+      throw new ProcessRequestException("Deliver handler failed", SMPPConstant.STAT_ESME_RX_T_APPN, e.getCause());
+    }
+  }
+
+  /**
+   * The handler did not commit in time. A task the worker has not started is cancelled and skipped; the SMSC delivers
+   * it again. When the handler finished in the meantime, its outcome is the response.
+   */
+  private void expire(final Task task) throws ProcessRequestException {
+    if (task.start()) {
+      task.committed.cancel(false);
+      expired.increment();
+    } else if (task.committed.isDone()) {
+      try {
+        task.committed.getNow(null);
+        return;
+      } catch (CompletionException e) {
+        throw new ProcessRequestException("Deliver handler failed", SMPPConstant.STAT_ESME_RX_T_APPN, e.getCause());
+      }
+    }
+    throw new ProcessRequestException("Deliver handler did not commit in time", SMPPConstant.STAT_ESME_RX_T_APPN);
+  }
+
+  private int partition(final DeliverSm deliverSm) {
+    final Object key = keyFunction.apply(deliverSm);
+    final int hash = key != null ? key.hashCode() : 0;
+    return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % partitions.size();
+  }
+
+  /**
+   * The receipted_message_id of a delivery receipt, else the id field of its text, else the source address.
+   */
+  static Object messageIdKey(final DeliverSm deliverSm) {
+    if (deliverSm.isSmscDeliveryReceipt()) {
+      final OptionalParameter receiptedMessageId = deliverSm.getOptionalParameter(RECEIPTED_MESSAGE_ID);
+      if (receiptedMessageId instanceof OptionalParameter.COctetString) {
+        return ((OptionalParameter.COctetString) receiptedMessageId).getValueAsString();
+      }
+      final byte[] text = deliverSm.getShortMessage();
+      if (text != null && text.length > 3 && text[0] == 'i' && text[1] == 'd' && text[2] == ':') {
+        int end = 3;
+        while (end < text.length && text[end] != ' ') {
+          end++;
+        }
+        return new String(text, 3, end - 3, StandardCharsets.ISO_8859_1);
+      }
+    }
+    return deliverSm.getSourceAddr();
+  }
+
+  private void work(final BlockingQueue<Task> queue) {
+    while (running || !queue.isEmpty()) {
+      final Task task;
+      try {
+        task = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (task == null || (task.committed != null && !task.start())) {
+        continue;
+      }
+      try {
+        handler.handle(task.deliverSm);
+        handled.increment();
+        if (task.committed != null) {
+          task.committed.complete(null);
+        }
+      } catch (Exception e) {
+        failed.increment();
+        log.warn("Deliver handler failed for deliver_sm {}: {}", task.deliverSm.getSequenceNumber(), e.getMessage());
+        if (task.committed != null) {
+          task.committed.completeExceptionally(e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onAcceptAlertNotification(final AlertNotification alertNotification) {
+    final MessageReceiverListener listener = delegate;
+    if (listener != null) {
+      listener.onAcceptAlertNotification(alertNotification);
+    }
+  }
+
+  @Override
+  public DataSmResult onAcceptDataSm(final DataSm dataSm, final Session source) throws ProcessRequestException {
+    final MessageReceiverListener listener = delegate;
+    if (listener == null) {
+      throw new ProcessRequestException("data_sm is not supported", SMPPConstant.STAT_ESME_RINVCMDID);
+    }
+    return listener.onAcceptDataSm(dataSm, source);
+  }
+
+  /**
+   * Stop accepting deliver_sm PDUs and wait for the queued ones to be handled. When interrupted it stops waiting, and
+   * the interrupt is kept.
+   */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      for (final Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getNumAccepted() {
+    return accepted.sum();
+  }
+
+  public long getNumHandled() {
+    return handled.sum();
+  }
+
+  public long getNumFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * The deliver_sm PDUs whose response was held back because their partition was full.
+   */
+  public long getNumDelayed() {
+    return delayed.sum();
+  }
+
+  /**
+   * The deliver_sm PDUs answered with ESME_RX_T_APPN because their partition stayed full for the maximum delay.
+   */
+  public long getNumRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * The deliver_sm PDUs answered with ESME_RX_T_APPN because the handler did not commit them within the maximum delay,
+   * with {@link AckMode#ON_COMMIT}. They are not handled.
+   */
+  public long getNumExpired() {
+    return expired.sum();
+  }
+
+  public int getQueued() {
+    int queued = 0;
+    for (final BlockingQueue<Task> queue : partitions) {
+      queued += queue.size();
+    }
+    return queued;
+  }
+
+  private static final class Task {
+
+    private final DeliverSm deliverSm;
+    private final CompletableFuture<Void> committed;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private Task(final DeliverSm deliverSm, final CompletableFuture<Void> committed) {
+      this.deliverSm = deliverSm;
+      this.committed = committed;
+    }
+
+    /**
+     * Claimed by the worker to handle it, or by the listener to expire it.
+     */
+    private boolean start() {
+      return started.compareAndSet(false, true);
+    }
+  }
+}
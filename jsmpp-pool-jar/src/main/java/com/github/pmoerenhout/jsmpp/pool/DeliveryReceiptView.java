@@ -0,0 +1,317 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jsmpp.util.DeliveryReceiptState;
+
+/**
+ * Reads the fields of a delivery receipt in place from the short message, as a faster alternative to
+ * {@link org.jsmpp.bean.DeliverSm#getShortMessageAsDeliveryReceipt()} that does not allocate. One view is reused for
+ * many receipts by the same thread:
+ * <pre>
+ * if (view.wrap(deliverSm.getShortMessage())) {
+ *   final long id = view.getId(10);
+ *   ...
+ * }
+ * </pre>
+ * The fields follow the format of appendix B of the SMPP 3.4 specification, in any order, with case insensitive names:
+ * {@code id:IIIIIIIIII sub:SSS dlvrd:DDD submit date:YYMMDDhhmm done date:YYMMDDhhmm stat:DDDDDDD err:E text:...}.
+ * The dates may carry seconds, they are read as UTC unless another offset is set.
+ */
+public final class DeliveryReceiptView {
+
+  private static final byte[] ID = key("id:");
+  private static final byte[] SUB = key("sub:");
+  private static final byte[] DLVRD = key("dlvrd:");
+  private static final byte[] SUBMIT_DATE = key("submit date:");
+  private static final byte[] DONE_DATE = key("done date:");
+  private static final byte[] STAT = key("stat:");
+  private static final byte[] ERR = key("err:");
+  private static final byte[] TEXT = key("text:");
+  private static final DeliveryReceiptState[] STATES = DeliveryReceiptState.values();
+  private static final byte[][] STATE_NAMES = new byte[STATES.length][];
+
+  static {
+    for (int i = 0; i < STATES.length; i++) {
+      STATE_NAMES[i] = STATES[i].name().getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private int offsetSeconds;
+  private byte[] source;
+  private int idOffset;
+  private int idLength;
+  private int submitted;
+  private int delivered;
+  private long submitDate;
+  private long doneDate;
+  private DeliveryReceiptState state;
+  private int error;
+  private int textOffset;
+  private int textLength;
+
+  /**
+   * @param offsetSeconds the offset from UTC of the dates in the receipts
+   */
+  public void setOffsetSeconds(final int offsetSeconds) {
+    this.offsetSeconds = offsetSeconds;
+  }
+
+  /**
+   * @return true when the short message is a delivery receipt, i.e. it has an id field
+   */
+  public boolean wrap(final byte[] shortMessage) {
+    return shortMessage != null && wrap(shortMessage, 0, shortMessage.length);
+  }
+
+  /**
+   * @return true when the bytes are a delivery receipt, i.e. they have an id field
+   */
+  public boolean wrap(final byte[] source, final int offset, final int length) {
+    this.source = source;
+    idOffset = -1;
+    idLength = 0;
+    submitted = -1;
+    delivered = -1;
+    submitDate = -1;
+    doneDate = -1;
+    state = null;
+    error = -1;
+    textOffset = -1;
+    textLength = 0;
+    final int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      if (i > offset && source[i - 1] != ' ') {
+        i++;
+        continue;
+      }
+      if (matches(source, i, end, TEXT)) {
+        textOffset = i + TEXT.length;
+        textLength = end - textOffset;
+        break;
+      }
+      final int start;
+      final byte[] key;
+      if (matches(source, i, end, ID)) {
+        key = ID;
+      } else if (matches(source, i, end, SUB)) {
+        key = SUB;
+      } else if (matches(source, i, end, DLVRD)) {
+        key = DLVRD;
+      } else if (matches(source, i, end, SUBMIT_DATE)) {
+        key = SUBMIT_DATE;
+      } else if (matches(source, i, end, DONE_DATE)) {
+        key = DONE_DATE;
+      } else if (matches(source, i, end, STAT)) {
+        key = STAT;
+      } else if (matches(source, i, end, ERR)) {
+        key = ERR;
+      } else {
+        i++;
+        continue;
+      }
+      start = i + key.length;
+      int valueEnd = start;
+      while (valueEnd < end && source[valueEnd] != ' ') {
+        valueEnd++;
+      }
+      final int valueLength = valueEnd - start;
+      if (key == ID) {
+        idOffset = start;
+        idLength = valueLength;
+      } else if (key == SUB) {
+        submitted = (int) MessageIds.parse(source, start, Math.min(valueLength, 9), 10);
+      } else if (key == DLVRD) {
+        delivered = (int) MessageIds.parse(source, start, Math.min(valueLength, 9), 10);
+      } else if (key == SUBMIT_DATE) {
+        submitDate = parseDate(source, start, valueLength);
+      } else if (key == DONE_DATE) {
+        doneDate = parseDate(source, start, valueLength);
+      } else if (key == STAT) {
+        state = parseState(source, start, valueLength);
+      } else {
+        error = (int) MessageIds.parse(source, start, Math.min(valueLength, 9), 10);
+      }
+      i = valueEnd;
+    }
+    return idOffset >= 0;
+  }
+
+  public byte[] getSource() {
+    return source;
+  }
+
+  public int getIdOffset() {
+    return idOffset;
+  }
+
+  public int getIdLength() {
+    return idLength;
+  }
+
+  /**
+   * @param radix 10 or 16, the radix in which the SMSC writes the ids in its receipts
+   * @return the id as a number, or -1 when it is not a number in the radix
+   * @see MessageIds
+   */
+  public long getId(final int radix) {
+    return MessageIds.parse(source, idOffset, idLength, radix);
+  }
+
+  /**
+   * @return true when the id equals the given id, compared as characters
+   */
+  public boolean idEquals(final CharSequence id) {
+    if (id.length() != idLength) {
+      return false;
+    }
+    for (int i = 0; i < idLength; i++) {
+      if ((source[idOffset + i] & 0xff) != id.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the id as a String, this allocates
+   */
+  public String getIdAsString() {
+    return new String(source, idOffset, idLength, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * @return the number of messages submitted, or -1 when absent
+   */
+  public int getSubmitted() {
+    return submitted;
+  }
+
+  /**
+   * @return the number of messages delivered, or -1 when absent
+   */
+  public int getDelivered() {
+    return delivered;
+  }
+
+  /**
+   * @return the submit date in epoch milliseconds, or -1 when absent or invalid
+   */
+  public long getSubmitDate() {
+    return submitDate == -1 ? -1 : submitDate - offsetSeconds * 1000L;
+  }
+
+  /**
+   * @return the done date in epoch milliseconds, or -1 when absent or invalid
+   */
+  public long getDoneDate() {
+    return doneDate == -1 ? -1 : doneDate - offsetSeconds * 1000L;
+  }
+
+  /**
+   * @return the final state of the message, or null when absent or unknown
+   */
+  public DeliveryReceiptState getState() {
+    return state;
+  }
+
+  /**
+   * @return the network specific error code, or -1 when absent or not a number
+   */
+  public int getError() {
+    return error;
+  }
+
+  /**
+   * @return the offset of the text, or -1 when absent
+   */
+  public int getTextOffset() {
+    return textOffset;
+  }
+
+  public int getTextLength() {
+    return textLength;
+  }
+
+  @Override
+  public String toString() {
+    return "DeliveryReceiptView(id=" + (idOffset < 0 ? null : getIdAsString()) + ", submitted=" + submitted
+        + ", delivered=" + delivered + ", submitDate=" + getSubmitDate() + ", doneDate=" + getDoneDate() + ", state="
+        + state + ", error=" + error + ")";
+  }
+
+  private static boolean matches(final byte[] source, final int offset, final int end, final byte[] key) {
+    if (end - offset < key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      // The keys are lower case letters, spaces and colons, which are unaffected by setting bit 5
+      if ((source[offset + i] | 0x20) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static DeliveryReceiptState parseState(final byte[] source, final int offset, final int length) {
+    for (int s = 0; s < STATE_NAMES.length; s++) {
+      final byte[] name = STATE_NAMES[s];
+      if (name.length == length) {
+        int i = 0;
+        while (i < length && (source[offset + i] & 0xdf) == name[i]) {
+          i++;
+        }
+        if (i == length) {
+          return STATES[s];
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * YYMMDDhhmm or YYMMDDhhmmss as epoch milliseconds in UTC.
+   */
+  private static long parseDate(final byte[] source, final int offset, final int length) {
+    if (length != 10 && length != 12) {
+      return -1;
+    }
+    final int year = twoDigits(source, offset);
+    final int month = twoDigits(source, offset + 2);
+    final int day = twoDigits(source, offset + 4);
+    final int hour = twoDigits(source, offset + 6);
+    final int minute = twoDigits(source, offset + 8);
+    final int second = length == 12 ? twoDigits(source, offset + 10) : 0;
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+        || second < 0 || second > 59) {
+      return -1;
+    }
+    return ((daysFromEpoch(2000 + year, month, day) * 24 + hour) * 60 + minute) * 60_000L + second * 1000L;
+  }
+
+  private static int twoDigits(final byte[] source, final int offset) {
+    final int tens = source[offset] - '0';
+    final int units = source[offset + 1] - '0';
+    if (tens < 0 || tens > 9 || units < 0 || units > 9) {
+      return -1;
+    }
+    return tens * 10 + units;
+  }
+
+  /**
+   * The days since 1970-01-01 of a date in the proleptic Gregorian calendar.
+   */
+  private static long daysFromEpoch(final int year, final int month, final int day) {
+    final int y = month <= 2 ? year - 1 : year;
+    final int era = y / 400;
+    final int yearOfEra = y - era * 400;
+    final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+
+  private static byte[] key(final String key) {
+    return key.getBytes(StandardCharsets.US_ASCII);
+  }
+}
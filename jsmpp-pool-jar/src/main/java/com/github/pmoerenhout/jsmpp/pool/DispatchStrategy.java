@@ -0,0 +1,11 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+public enum DispatchStrategy {
+  ROUND_ROBIN,
+  LEAST_OUTSTANDING,
+  /**
+   * The session with the lowest expected latency for the next submit, from its free send window, the wait for its rate
+   * permits and its recent submit_sm_resp time.
+   */
+  LEAST_LOADED
+}
@@ -0,0 +1,59 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.Arrays;
+
+/**
+ * The GSM 03.38 default alphabet and its extension table.
+ */
+final class GsmAlphabet {
+
+  static final byte ESCAPE = 0x1b;
+
+  private static final String BASIC =
+      "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5"
+          + "\u0394_\u03A6\u0393\u039B\u03A9\u03A0\u03A8\u03A3\u0398\u039E\u001b\u00C6\u00E6\u00DF\u00C9"
+          + " !\"#\u00A4%&'()*+,-./"
+          + "0123456789:;<=>?"
+          + "\u00A1ABCDEFGHIJKLMNO"
+          + "PQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7"
+          + "\u00BFabcdefghijklmno"
+          + "pqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0";
+  private static final String EXTENSION_CHARS = "\f^{}\\[~]|\u20AC";
+  private static final byte[] EXTENSION_CODES = { 0x0a, 0x14, 0x28, 0x29, 0x2f, 0x3c, 0x3d, 0x3e, 0x40, 0x65 };
+
+  private static final char EURO = '\u20AC';
+  private static final int EXTENDED = 0x100;
+  private static final short[] CODES = new short[0x400];
+
+  static {
+    Arrays.fill(CODES, (short) -1);
+    for (int i = 0; i < BASIC.length(); i++) {
+      if (i != ESCAPE) {
+        CODES[BASIC.charAt(i)] = (short) i;
+      }
+    }
+    for (int i = 0; i < EXTENSION_CHARS.length(); i++) {
+      final char c = EXTENSION_CHARS.charAt(i);
+      if (c < CODES.length) {
+        CODES[c] = (short) (EXTENDED | EXTENSION_CODES[i]);
+      }
+    }
+  }
+
+  private GsmAlphabet() {
+  }
+
+  /**
+   * @return the septet, or the extension septet or'ed with 0x100, or -1 when the character is not in the alphabet
+   */
+  static int code(final char c) {
+    if (c < CODES.length) {
+      return CODES[c];
+    }
+    return c == EURO ? EXTENDED | 0x65 : -1;
+  }
+
+  static boolean isExtended(final int code) {
+    return (code & EXTENDED) != 0;
+  }
+}
@@ -1,7 +1,5 @@
 package com.github.pmoerenhout.jsmpp.pool;
 
-import java.util.Date;
-
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.EvictionConfig;
 import org.apache.commons.pool2.impl.EvictionPolicy;
@@ -9,26 +7,26 @@ import org.jsmpp.session.SMPPSession;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Evicts the idle sessions that are no longer bound, or that had no activity for longer than the idle evict time of the
+ * pool, which the pool derives from the enquire link timer. Nothing is logged or allocated for a session that is kept.
+ */
 @Slf4j
 public class JsmppEvictionPolicy<T> implements EvictionPolicy<T> {
 
   @Override
   public boolean evict(EvictionConfig config, PooledObject<T> underTest, int idleCount) {
-    log.info("Evict {} (idle count {})", underTest, idleCount);
     final SMPPSession session = (SMPPSession) underTest.getObject();
-    final long idleTime = System.currentTimeMillis() - session.getLastActivityTimestamp();
-    log.info("State of SMPP session {} is {} with last activity at {} ({}ms idle)",
-        session.getSessionId(), session.getSessionState(), new Date(session.getLastActivityTimestamp()), idleTime);
-    if (!session.getSessionState().isBound() || config.getIdleEvictTime() < idleTime) {
-      log.warn("Evicted SMPP session {} ({} or {} < {})", session.getSessionId(), session.getSessionState(), config.getIdleEvictTime(), idleTime);
-      return true;
+    final long maxInactivityMillis = config.getIdleEvictDuration().toMillis();
+    if (SessionLiveness.isAlive(session, maxInactivityMillis, System.currentTimeMillis())) {
+      return false;
+    }
+    log.warn("Evicted SMPP session {} ({}, {}ms inactive, max {}ms, idle count {})", session.getSessionId(),
+        session.getSessionState(), System.currentTimeMillis() - session.getLastActivityTimestamp(),
+        maxInactivityMillis, idleCount);
+    if (session instanceof ThrottledSMPPSession && ((ThrottledSMPPSession) session).getMetrics() != null) {
+      ((ThrottledSMPPSession) session).getMetrics().recordEviction();
     }
-//    if ((config.getIdleSoftEvictTime() < underTest.getIdleTimeMillis() &&
-//        config.getMinIdle() < idleCount) ||
-//        config.getIdleEvictTime() < underTest.getIdleTimeMillis()) {
-//      LOG.info("Evicted {} to destroy (idle count {})", underTest, idleCount);
-//      return true;
-//    }
-    return false;
+    return true;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.extra.SessionState;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends the enquire_link PDUs of many binds from one hashed wheel timer, instead of the enquire link thread jSMPP starts
+ * per bind. A bind is only pinged when it has had no activity for its {@code enquireLinkTimer}, a bind with traffic
+ * just moves its deadline. A bind that fails its enquire_link is closed, so the pool evicts and replaces it, and the
+ * outcomes are counted in the {@link PoolMetrics} of the bind. One scheduler can serve several pools:
+ * <pre>
+ * final KeepaliveScheduler keepalive = new KeepaliveScheduler();
+ * factory.setKeepaliveScheduler(keepalive);
+ * </pre>
+ * The enquire_link itself waits for its response on one of a fixed number of sender threads, only quiet binds need one.
+ * A bind has at most one enquire_link queued or in flight, so the sender queue never holds more than the registered
+ * binds.
+ */
+@Slf4j
+public class KeepaliveScheduler implements AutoCloseable {
+
+  private final long tickNanos;
+  private final int mask;
+  private final List<List<Keepalive>> wheel;
+  private final Queue<Keepalive> scheduled = new ConcurrentLinkedQueue<>();
+  private final Map<ThrottledSMPPSession, Keepalive> keepalives = new ConcurrentHashMap<>();
+  private final ThreadPoolExecutor sender;
+  private final Thread timer;
+  private final long startNanos = System.nanoTime();
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder skipped = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LatencyHistogram responseTime = new LatencyHistogram();
+  private long tick;
+  private volatile boolean running = true;
+
+  public KeepaliveScheduler() {
+    this(100, TimeUnit.MILLISECONDS, 512, 4);
+  }
+
+  /**
+   * @param tickDuration the resolution of the timer, an enquire_link is sent at most this late
+   * @param wheelSize    the number of buckets of the wheel, a power of two
+   * @param senders      the maximum number of enquire_links waiting for their response at the same time
+   */
+  public KeepaliveScheduler(final long tickDuration, final TimeUnit unit, final int wheelSize, final int senders) {
+    if (Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("The wheelSize parameter must be a power of two");
+    }
+    if (senders < 1) {
+      throw new IllegalArgumentException("The senders parameter must be >= 1");
+    }
+    this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+    this.mask = wheelSize - 1;
+    this.wheel = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      wheel.add(new ArrayList<>());
+    }
+    this.sender = new ThreadPoolExecutor(senders, senders, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat("smpp-keepalive-send-%d").setDaemon(true).build());
+    this.sender.allowCoreThreadTimeOut(true);
+    this.timer = new ThreadFactoryBuilder().setNameFormat("smpp-keepalive-%d").setDaemon(true).build()
+        .newThread(this::run);
+    this.timer.start();
+  }
+
+  /**
+   * Take over the enquire links of a bound session. Its own enquire link thread must have been stopped, see
+   * {@link ThrottledSMPPSession#setExternalKeepalive(boolean)}.
+   */
+  public void register(final ThrottledSMPPSession session) {
+    if (session.getEnquireLinkTimer() <= 0) {
+      return;
+    }
+    final Keepalive keepalive = new Keepalive(session);
+    final Keepalive previous = keepalives.put(session, keepalive);
+    if (previous != null) {
+      previous.cancelled = true;
+    }
+    schedule(keepalive, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(session.getEnquireLinkTimer()));
+  }
+
+  public void unregister(final ThrottledSMPPSession session) {
+    final Keepalive keepalive = keepalives.remove(session);
+    if (keepalive != null) {
+      keepalive.cancelled = true;
+    }
+  }
+
+  private void schedule(final Keepalive keepalive, final long deadlineNanos) {
+    keepalive.deadlineNanos = deadlineNanos;
+    scheduled.add(keepalive);
+  }
+
+  private void run() {
+    while (running) {
+      final long nextTickNanos = startNanos + (tick + 1) * tickNanos;
+      long sleepNanos;
+      while ((sleepNanos = nextTickNanos - System.nanoTime()) > 0 && running) {
+        LockSupport.parkNanos(this, sleepNanos);
+      }
+      tick++;
+      try {
+        Keepalive keepalive;
+        while ((keepalive = scheduled.poll()) != null) {
+          if (!keepalive.cancelled) {
+            // Round up, so a bind is never pinged before its deadline
+            keepalive.deadlineTick = Math.max(tick, (keepalive.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+            wheel.get((int) (keepalive.deadlineTick & mask)).add(keepalive);
+          }
+        }
+        expire(wheel.get((int) (tick & mask)));
+      } catch (RuntimeException e) {
+        log.warn("Keepalive tick failed", e);
+      }
+    }
+  }
+
+  private void expire(final List<Keepalive> bucket) {
+    int i = 0;
+    while (i < bucket.size()) {
+      final Keepalive keepalive = bucket.get(i);
+      if (keepalive.cancelled || keepalive.deadlineTick <= tick) {
+        // Swap remove, the order within a bucket does not matter
+        final Keepalive last = bucket.remove(bucket.size() - 1);
+        if (i < bucket.size()) {
+          bucket.set(i, last);
+        }
+        if (!keepalive.cancelled) {
+          expire(keepalive);
+        }
+      } else {
+        i++;
+      }
+    }
+  }
+
+  private void expire(final Keepalive keepalive) {
+    final ThrottledSMPPSession session = keepalive.session;
+    final SessionState state = session.getSessionState();
+    if (state == SessionState.CLOSED || state == SessionState.UNBOUND) {
+      keepalives.remove(session, keepalive);
+      return;
+    }
+    final long intervalMillis = session.getEnquireLinkTimer();
+    final long idleMillis = System.currentTimeMillis() - session.getLastActivityTimestamp();
+    if (idleMillis < intervalMillis) {
+      skipped.increment();
+      schedule(keepalive, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis - idleMillis));
+      return;
+    }
+    try {
+      sender.execute(() -> enquireLink(keepalive));
+    } catch (RejectedExecutionException e) {
+      log.debug("Keepalive of session {} rejected, scheduler is closed", session.getSessionId());
+    }
+  }
+
+  private void enquireLink(final Keepalive keepalive) {
+    final ThrottledSMPPSession session = keepalive.session;
+    final PoolMetrics metrics = session.getMetrics();
+    final long start = System.nanoTime();
+    try {
+      session.enquireLink();
+      responseTime.record(System.nanoTime() - start);
+      sent.increment();
+      if (metrics != null) {
+        metrics.recordKeepalive();
+      }
+    } catch (ResponseTimeoutException | InvalidResponseException | IOException e) {
+      failed.increment();
+      if (metrics != null) {
+        metrics.recordKeepaliveFailure();
+      }
+      keepalives.remove(session, keepalive);
+      if (!keepalive.cancelled) {
+        log.warn("Enquire link of session {} failed, closing: {}", session.getSessionId(), e.getMessage());
+        session.close();
+      }
+      return;
+    }
+    schedule(keepalive, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(session.getEnquireLinkTimer()));
+  }
+
+  /**
+   * Stop the timer. The registered sessions are no longer pinged.
+   */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(timer);
+    sender.shutdownNow();
+    keepalives.clear();
+  }
+
+  public int getNumSessions() {
+    return keepalives.size();
+  }
+
+  public long getNumSent() {
+    return sent.sum();
+  }
+
+  /**
+   * The deadlines of binds that had activity since their last enquire_link, so no enquire_link was needed.
+   */
+  public long getNumSkipped() {
+    return skipped.sum();
+  }
+
+  public long getNumFailed() {
+    return failed.sum();
+  }
+
+  public LatencyHistogram getResponseTime() {
+    return responseTime;
+  }
+
+  private static final class Keepalive {
+
+    private final ThrottledSMPPSession session;
+    private volatile long deadlineNanos;
+    private long deadlineTick;
+    private volatile boolean cancelled;
+
+    private Keepalive(final ThrottledSMPPSession session) {
+      this.session = session;
+    }
+  }
+}
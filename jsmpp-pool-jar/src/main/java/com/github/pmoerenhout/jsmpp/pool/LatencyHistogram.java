@@ -0,0 +1,122 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of nanosecond latencies in the style of HdrHistogram. Every power of two is split in 8 buckets,
+ * so a value is reported with at most 12.5% error. Recording does not allocate or lock, and every bucket is a
+ * {@link LongAdder} so the threads recording similar latencies do not contend on the same counter. Percentiles are
+ * computed from the cumulative counts since the creation or the last {@link #reset()} of the histogram.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final LongAdder[] counts = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  public void record(final long nanos) {
+    final long value = Math.max(0, nanos);
+    counts[index(value)].increment();
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Clear the counts in place, so a rolling histogram reuses its buckets. A value recorded during the reset may be kept
+   * in part, e.g. in the count but not in its bucket.
+   */
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i].reset();
+    }
+    count.reset();
+    sum.reset();
+    max.reset();
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return sum.sum();
+  }
+
+  public double getMeanNanos() {
+    final long n = count.sum();
+    return n == 0 ? 0 : sum.sum() / (double) n;
+  }
+
+  public long getMaxNanos() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return the highest value that is equivalent to the value at the percentile, or 0 when nothing was recorded
+   */
+  public long getValueAtPercentile(final double percentile) {
+    return getValueAtPercentile(percentile, this);
+  }
+
+  /**
+   * The value at the percentile of the combined counts of the histograms.
+   */
+  static long getValueAtPercentile(final double percentile, final LatencyHistogram... histograms) {
+    long total = 0;
+    long maxNanos = 0;
+    final long[] snapshot = new long[BUCKETS];
+    for (final LatencyHistogram histogram : histograms) {
+      for (int i = 0; i < BUCKETS; i++) {
+        final long bucket = histogram.counts[i].sum();
+        snapshot[i] += bucket;
+        total += bucket;
+      }
+      maxNanos = Math.max(maxNanos, histogram.getMaxNanos());
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  static int index(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long highestEquivalentValue(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final long subBucket = index % SUB_BUCKETS;
+    final long lowest = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
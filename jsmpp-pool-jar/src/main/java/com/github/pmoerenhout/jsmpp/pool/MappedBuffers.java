@@ -0,0 +1,67 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Unmaps memory-mapped files right away instead of when the buffer is garbage collected. There is no public API for it,
+ * so the cleaner is looked up by reflection: {@code Unsafe.invokeCleaner} on Java 9 and later, the cleaner of the
+ * direct buffer on Java 8. The buffer must not be used after it is unmapped.
+ */
+@Slf4j
+final class MappedBuffers {
+
+  private static final Object UNSAFE;
+  private static final Method INVOKE_CLEANER;
+  private static final Method CLEANER;
+  private static final Method CLEAN;
+
+  static {
+    Object unsafe = null;
+    Method invokeCleaner = null;
+    Method cleaner = null;
+    Method clean = null;
+    try {
+      final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      invokeCleaner = null;
+      try {
+        cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+        clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+      } catch (ReflectiveOperationException | RuntimeException e8) {
+        log.debug("Mapped buffers are unmapped by the garbage collector on Java {}",
+            System.getProperty("java.version"));
+      }
+    }
+    UNSAFE = unsafe;
+    INVOKE_CLEANER = invokeCleaner;
+    CLEANER = cleaner;
+    CLEAN = clean;
+  }
+
+  private MappedBuffers() {
+  }
+
+  static void unmap(final MappedByteBuffer buffer) {
+    try {
+      if (INVOKE_CLEANER != null) {
+        INVOKE_CLEANER.invoke(UNSAFE, buffer);
+      } else if (CLEANER != null) {
+        final Object cleaner = CLEANER.invoke(buffer);
+        if (cleaner != null) {
+          CLEAN.invoke(cleaner);
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Could not unmap a buffer, it is unmapped when garbage collected: {}", e.toString());
+    }
+  }
+}
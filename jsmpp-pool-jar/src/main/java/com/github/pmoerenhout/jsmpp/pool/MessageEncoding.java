@@ -0,0 +1,36 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import org.jsmpp.bean.Alphabet;
+
+/**
+ * The encodings of a text short message, with the capacity in octets of a single message and of a segment with a
+ * concatenation UDH. A segment concatenated with the SAR parameters has the capacity of a single message. GSM 7-bit is
+ * sent unpacked, one septet per octet, and packed by the SMSC.
+ */
+public enum MessageEncoding {
+  GSM7(Alphabet.ALPHA_DEFAULT, 160, 153),
+  LATIN1(Alphabet.ALPHA_LATIN1, 140, 134),
+  UCS2(Alphabet.ALPHA_UCS2, 140, 134);
+
+  private final Alphabet alphabet;
+  private final int singleOctets;
+  private final int segmentOctets;
+
+  MessageEncoding(final Alphabet alphabet, final int singleOctets, final int segmentOctets) {
+    this.alphabet = alphabet;
+    this.singleOctets = singleOctets;
+    this.segmentOctets = segmentOctets;
+  }
+
+  public Alphabet getAlphabet() {
+    return alphabet;
+  }
+
+  public int getSingleOctets() {
+    return singleOctets;
+  }
+
+  public int getSegmentOctets() {
+    return segmentOctets;
+  }
+}
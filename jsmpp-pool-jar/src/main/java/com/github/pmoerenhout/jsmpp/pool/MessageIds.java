@@ -0,0 +1,101 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+/**
+ * Converts message ids between their decimal and hexadecimal forms without allocating. SMSCs commonly return the id
+ * of a submit_sm_resp in hex and repeat it in decimal in the delivery receipt, both parse to the same long.
+ */
+public final class MessageIds {
+
+  private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
+  private MessageIds() {
+  }
+
+  /**
+   * @param radix 10 or 16, hex digits are accepted in either case
+   * @return the non-negative value of the id, or -1 when it is empty, not a number in the radix or above
+   * {@link Long#MAX_VALUE}
+   */
+  public static long parse(final byte[] source, final int offset, final int length, final int radix) {
+    if (length <= 0) {
+      return -1;
+    }
+    final long limit = Long.MAX_VALUE / radix;
+    long value = 0;
+    for (int i = offset; i < offset + length; i++) {
+      final int digit = digit(source[i], radix);
+      if (digit < 0 || value > limit) {
+        return -1;
+      }
+      value = value * radix + digit;
+      if (value < 0) {
+        return -1;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * @see #parse(byte[], int, int, int)
+   */
+  public static long parse(final CharSequence id, final int radix) {
+    final int length = id.length();
+    if (length == 0) {
+      return -1;
+    }
+    final long limit = Long.MAX_VALUE / radix;
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = id.charAt(i);
+      final int digit = c < 0x80 ? digit((byte) c, radix) : -1;
+      if (digit < 0 || value > limit) {
+        return -1;
+      }
+      value = value * radix + digit;
+      if (value < 0) {
+        return -1;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Write the id in upper case hex, without leading zeros.
+   *
+   * @return the number of bytes written, at most 16
+   */
+  public static int formatHex(final long id, final byte[] target, final int offset) {
+    final int length = Math.max(1, (64 - Long.numberOfLeadingZeros(id) + 3) >> 2);
+    long value = id;
+    for (int i = offset + length - 1; i >= offset; i--) {
+      target[i] = HEX_DIGITS[(int) (value & 0xf)];
+      value >>>= 4;
+    }
+    return length;
+  }
+
+  /**
+   * Append the id in upper case hex, without leading zeros.
+   */
+  public static StringBuilder appendHex(final StringBuilder builder, final long id) {
+    final int length = Math.max(1, (64 - Long.numberOfLeadingZeros(id) + 3) >> 2);
+    for (int shift = (length - 1) << 2; shift >= 0; shift -= 4) {
+      builder.append((char) HEX_DIGITS[(int) ((id >>> shift) & 0xf)]);
+    }
+    return builder;
+  }
+
+  private static int digit(final byte b, final int radix) {
+    final int digit;
+    if (b >= '0' && b <= '9') {
+      digit = b - '0';
+    } else if (b >= 'a' && b <= 'z') {
+      digit = b - 'a' + 10;
+    } else if (b >= 'A' && b <= 'Z') {
+      digit = b - 'A' + 10;
+    } else {
+      return -1;
+    }
+    return digit < radix ? digit : -1;
+  }
+}
@@ -0,0 +1,172 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GSMSpecificFeature;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.OptionalParameter;
+
+/**
+ * Encodes a text in the smallest encoding that can represent it, GSM 7-bit, Latin-1 or UCS-2, and splits it into
+ * concatenated segments when it does not fit in a single short message. A segment never ends in the middle of a GSM
+ * escape sequence or of a UTF-16 surrogate pair. The text is encoded into a per thread buffer, so the only allocations
+ * are the segments themselves.
+ */
+public class MessageSegmenter {
+
+  private static final int MAX_SEGMENTS = 255;
+  private static final int UDH_LENGTH = 6;
+  private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[1024]);
+
+  private final Concatenation concatenation;
+  private final AtomicInteger reference = new AtomicInteger(ThreadLocalRandom.current().nextInt());
+
+  public MessageSegmenter(final Concatenation concatenation) {
+    this.concatenation = concatenation;
+  }
+
+  public Concatenation getConcatenation() {
+    return concatenation;
+  }
+
+  public static MessageEncoding selectEncoding(final CharSequence text) {
+    boolean gsm = true;
+    // A character of the GSM alphabet above 0xff, like the Greek capitals or the euro sign, is not in Latin-1 either
+    boolean wide = false;
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (gsm && GsmAlphabet.code(c) < 0) {
+        gsm = false;
+      }
+      if (c > 0xff) {
+        wide = true;
+      }
+      if (!gsm && wide) {
+        return MessageEncoding.UCS2;
+      }
+    }
+    return gsm ? MessageEncoding.GSM7 : MessageEncoding.LATIN1;
+  }
+
+  /**
+   * Split the text in segments, each a copy of the template with the data_coding, short_message and the concatenation
+   * UDH or SAR parameters set.
+   *
+   * @throws IllegalArgumentException when the text needs more than 255 segments
+   */
+  public List<SubmitRequest> segment(final SubmitRequest template, final CharSequence text) {
+    final MessageEncoding encoding = selectEncoding(text);
+    final byte[] buffer = buffer(text.length() * 2);
+    final int length = encode(text, encoding, buffer);
+    final SubmitRequest.SubmitRequestBuilder builder = template.toBuilder()
+        .dataCoding(new GeneralDataCoding(encoding.getAlphabet()));
+    if (length <= encoding.getSingleOctets()) {
+      return Collections.singletonList(builder.shortMessage(Arrays.copyOf(buffer, length)).build());
+    }
+    // The SAR parameters leave the whole short_message to the text, the UDH takes 6 octets of every segment
+    final int segmentOctets = concatenation == Concatenation.UDH ? encoding.getSegmentOctets()
+        : encoding.getSingleOctets();
+    final int[] ends = new int[Math.min(MAX_SEGMENTS + 1, length / (segmentOctets - 2) + 1)];
+    int count = 0;
+    for (int start = 0; start < length; count++) {
+      if (count == ends.length) {
+        throw new IllegalArgumentException("Text of " + text.length() + " characters needs more than " + MAX_SEGMENTS
+            + " segments");
+      }
+      int end = Math.min(length, start + segmentOctets);
+      if (end < length) {
+        end = adjustEnd(buffer, encoding, end);
+      }
+      ends[count] = end;
+      start = end;
+    }
+    if (count > MAX_SEGMENTS) {
+      throw new IllegalArgumentException("Text of " + text.length() + " characters needs more than " + MAX_SEGMENTS
+          + " segments");
+    }
+    final int ref = reference.incrementAndGet();
+    final List<SubmitRequest> segments = new ArrayList<>(count);
+    int start = 0;
+    for (int i = 0; i < count; i++) {
+      final int end = ends[i];
+      if (concatenation == Concatenation.UDH) {
+        final byte[] shortMessage = new byte[UDH_LENGTH + end - start];
+        shortMessage[0] = 0x05;
+        shortMessage[1] = 0x00;
+        shortMessage[2] = 0x03;
+        shortMessage[3] = (byte) ref;
+        shortMessage[4] = (byte) count;
+        shortMessage[5] = (byte) (i + 1);
+        System.arraycopy(buffer, start, shortMessage, UDH_LENGTH, end - start);
+        segments.add(builder
+            .esmClass(new ESMClass(GSMSpecificFeature.compose(template.getEsmClass().value(), GSMSpecificFeature.UDHI)))
+            .shortMessage(shortMessage)
+            .build());
+      } else {
+        final OptionalParameter[] optionalParameters = Arrays.copyOf(template.getOptionalParameters(),
+            template.getOptionalParameters().length + 3);
+        optionalParameters[optionalParameters.length - 3] = new OptionalParameter.Sar_msg_ref_num((short) ref);
+        optionalParameters[optionalParameters.length - 2] = new OptionalParameter.Sar_total_segments((byte) count);
+        optionalParameters[optionalParameters.length - 1] = new OptionalParameter.Sar_segment_seqnum((byte) (i + 1));
+        segments.add(builder
+            .shortMessage(Arrays.copyOfRange(buffer, start, end))
+            .optionalParameters(optionalParameters)
+            .build());
+      }
+      start = end;
+    }
+    return segments;
+  }
+
+  private static int adjustEnd(final byte[] buffer, final MessageEncoding encoding, final int end) {
+    if (encoding == MessageEncoding.GSM7 && buffer[end - 1] == GsmAlphabet.ESCAPE) {
+      return end - 1;
+    }
+    if (encoding == MessageEncoding.UCS2 && Character.isHighSurrogate((char) (((buffer[end - 2] & 0xff) << 8)
+        | (buffer[end - 1] & 0xff)))) {
+      return end - 2;
+    }
+    return end;
+  }
+
+  private static byte[] buffer(final int size) {
+    byte[] buffer = BUFFER.get();
+    if (buffer.length < size) {
+      buffer = new byte[Math.max(size, buffer.length * 2)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  /**
+   * @return the number of octets written
+   */
+  static int encode(final CharSequence text, final MessageEncoding encoding, final byte[] buffer) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (encoding) {
+        case GSM7:
+          final int code = GsmAlphabet.code(c);
+          if (GsmAlphabet.isExtended(code)) {
+            buffer[length++] = GsmAlphabet.ESCAPE;
+          }
+          buffer[length++] = (byte) code;
+          break;
+        case LATIN1:
+          buffer[length++] = (byte) c;
+          break;
+        default:
+          buffer[length++] = (byte) (c >> 8);
+          buffer[length++] = (byte) c;
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,69 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exports the {@link PoolMetrics} of a pool to Micrometer. Micrometer is an optional dependency of this library, add
+ * micrometer-core to the application to use this binder.
+ */
+public class MicrometerPoolMetrics implements MeterBinder {
+
+  private static final double[] PERCENTILES = { 0.5, 0.99, 0.999 };
+
+  private final PoolMetrics metrics;
+  private final Iterable<Tag> tags;
+
+  public MicrometerPoolMetrics(final PooledSMPPSession<?> pool) {
+    this(pool.getMetrics(), Tags.of("pool", pool.getId()));
+  }
+
+  public MicrometerPoolMetrics(final PoolMetrics metrics, final Iterable<Tag> tags) {
+    this.metrics = metrics;
+    this.tags = tags;
+  }
+
+  @Override
+  public void bindTo(final MeterRegistry registry) {
+    counter(registry, "smpp.pool.binds", metrics, PoolMetrics::getBinds);
+    counter(registry, "smpp.pool.bind.failures", metrics, PoolMetrics::getBindFailures);
+    counter(registry, "smpp.pool.unbinds", metrics, PoolMetrics::getUnbinds);
+    counter(registry, "smpp.pool.evictions", metrics, PoolMetrics::getEvictions);
+    counter(registry, "smpp.pool.ejections", metrics, PoolMetrics::getEjections);
+    counter(registry, "smpp.pool.keepalives", metrics, PoolMetrics::getKeepalives);
+    counter(registry, "smpp.pool.keepalive.failures", metrics, PoolMetrics::getKeepaliveFailures);
+    counter(registry, "smpp.submit.failures", metrics, PoolMetrics::getSubmitFailures);
+    Gauge.builder("smpp.submit.in.flight", metrics, PoolMetrics::getInFlight).tags(tags).register(registry);
+    histogram(registry, "smpp.pool.borrow.wait", metrics.getBorrowWait());
+    histogram(registry, "smpp.throttle.wait", metrics.getThrottleWait());
+    histogram(registry, "smpp.submit.response.time", metrics.getSubmitResponseTime());
+    // ESME_ROK, ESME_RMSGQFUL, ESME_RTHROTTLED, ESME_RSYSERR and ESME_RSUBMITFAIL
+    for (final int commandStatus : new int[]{ 0x00, 0x14, 0x58, 0x08, 0x45 }) {
+      FunctionCounter.builder("smpp.submit.responses", metrics, m -> m.getCommandStatusCount(commandStatus))
+          .tags(tags).tag("command_status", String.format("0x%08x", commandStatus)).register(registry);
+    }
+  }
+
+  private void counter(final MeterRegistry registry, final String name, final PoolMetrics metrics,
+                       final ToDoubleFunction<PoolMetrics> count) {
+    FunctionCounter.builder(name, metrics, count).tags(tags).register(registry);
+  }
+
+  private void histogram(final MeterRegistry registry, final String name, final LatencyHistogram histogram) {
+    FunctionCounter.builder(name + ".count", histogram, LatencyHistogram::getCount).tags(tags).register(registry);
+    TimeGauge.builder(name + ".max", histogram, TimeUnit.NANOSECONDS, LatencyHistogram::getMaxNanos)
+        .tags(tags).register(registry);
+    for (final double percentile : PERCENTILES) {
+      TimeGauge.builder(name + ".percentile", histogram, TimeUnit.NANOSECONDS, h -> h.getValueAtPercentile(percentile * 100))
+          .tags(tags).tag("percentile", String.valueOf(percentile)).register(registry);
+    }
+  }
+}
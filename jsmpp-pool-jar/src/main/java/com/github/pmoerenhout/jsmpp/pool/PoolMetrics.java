@@ -0,0 +1,234 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of a pool, shared by all its sessions. Recording only touches striped
+ * {@link LongAdder}s and {@link LatencyHistogram}s, so the hot paths never serialize on a lock.
+ */
+public class PoolMetrics implements SubmitResponseListener, PoolMetricsMXBean {
+
+  private static final int COMMAND_STATUSES = 0x500;
+
+  private final LongAdder binds = new LongAdder();
+  private final LongAdder bindFailures = new LongAdder();
+  private final LongAdder unbinds = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder ejections = new LongAdder();
+  private final LongAdder keepalives = new LongAdder();
+  private final LongAdder keepaliveFailures = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAdder submitFailures = new LongAdder();
+  private final LatencyHistogram borrowWait = new LatencyHistogram();
+  private final LatencyHistogram throttleWait = new LatencyHistogram();
+  private final LatencyHistogram submitResponseTime = new LatencyHistogram();
+  private final AtomicReferenceArray<LongAdder> commandStatuses = new AtomicReferenceArray<>(COMMAND_STATUSES + 1);
+
+  void recordBind() {
+    binds.increment();
+  }
+
+  void recordBindFailure() {
+    bindFailures.increment();
+  }
+
+  void recordUnbind() {
+    unbinds.increment();
+  }
+
+  void recordEviction() {
+    evictions.increment();
+  }
+
+  void recordEjection() {
+    ejections.increment();
+  }
+
+  void recordKeepalive() {
+    keepalives.increment();
+  }
+
+  void recordKeepaliveFailure() {
+    keepaliveFailures.increment();
+  }
+
+  void recordBorrowWait(final long nanos) {
+    borrowWait.record(nanos);
+  }
+
+  void recordThrottleWait(final long nanos) {
+    throttleWait.record(nanos);
+  }
+
+  void incrementInFlight() {
+    inFlight.increment();
+  }
+
+  void decrementInFlight() {
+    inFlight.decrement();
+  }
+
+  @Override
+  public void onSubmitResponse(final ThrottledSMPPSession session, final int commandStatus, final long responseTimeNanos) {
+    submitResponseTime.record(responseTimeNanos);
+    commandStatus(commandStatus >= 0 && commandStatus < COMMAND_STATUSES ? commandStatus : COMMAND_STATUSES).increment();
+  }
+
+  @Override
+  public void onSubmitFailure(final ThrottledSMPPSession session, final Exception cause) {
+    submitFailures.increment();
+  }
+
+  private LongAdder commandStatus(final int index) {
+    final LongAdder adder = commandStatuses.get(index);
+    if (adder != null) {
+      return adder;
+    }
+    commandStatuses.compareAndSet(index, null, new LongAdder());
+    return commandStatuses.get(index);
+  }
+
+  public LatencyHistogram getBorrowWait() {
+    return borrowWait;
+  }
+
+  public LatencyHistogram getThrottleWait() {
+    return throttleWait;
+  }
+
+  public LatencyHistogram getSubmitResponseTime() {
+    return submitResponseTime;
+  }
+
+  /**
+   * The number of submit_sm_resp per command_status. Vendor specific statuses of 0x500 and up are counted under 0x500.
+   */
+  public Map<Integer, Long> getCommandStatusCounts() {
+    final Map<Integer, Long> counts = new TreeMap<>();
+    for (int i = 0; i < commandStatuses.length(); i++) {
+      final LongAdder adder = commandStatuses.get(i);
+      if (adder != null) {
+        counts.put(i, adder.sum());
+      }
+    }
+    return counts;
+  }
+
+  public long getCommandStatusCount(final int commandStatus) {
+    final LongAdder adder = commandStatuses.get(Math.min(Math.max(commandStatus, 0), COMMAND_STATUSES));
+    return adder != null ? adder.sum() : 0;
+  }
+
+  @Override
+  public long getBinds() {
+    return binds.sum();
+  }
+
+  @Override
+  public long getBindFailures() {
+    return bindFailures.sum();
+  }
+
+  @Override
+  public long getUnbinds() {
+    return unbinds.sum();
+  }
+
+  @Override
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  @Override
+  public long getEjections() {
+    return ejections.sum();
+  }
+
+  @Override
+  public long getKeepalives() {
+    return keepalives.sum();
+  }
+
+  @Override
+  public long getKeepaliveFailures() {
+    return keepaliveFailures.sum();
+  }
+
+  @Override
+  public long getBorrows() {
+    return borrowWait.getCount();
+  }
+
+  @Override
+  public long getInFlight() {
+    return inFlight.sum();
+  }
+
+  @Override
+  public long getSubmitResponses() {
+    return submitResponseTime.getCount();
+  }
+
+  @Override
+  public long getSubmitFailures() {
+    return submitFailures.sum();
+  }
+
+  @Override
+  public long getSubmitOk() {
+    return getCommandStatusCount(0);
+  }
+
+  @Override
+  public double getBorrowWaitMeanMicros() {
+    return borrowWait.getMeanNanos() / 1000;
+  }
+
+  @Override
+  public double getBorrowWaitP99Micros() {
+    return borrowWait.getValueAtPercentile(99) / 1000d;
+  }
+
+  @Override
+  public double getThrottleWaitMeanMicros() {
+    return throttleWait.getMeanNanos() / 1000;
+  }
+
+  @Override
+  public double getThrottleWaitP99Micros() {
+    return throttleWait.getValueAtPercentile(99) / 1000d;
+  }
+
+  @Override
+  public double getSubmitResponseTimeMeanMillis() {
+    return submitResponseTime.getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public double getSubmitResponseTimeP50Millis() {
+    return submitResponseTime.getValueAtPercentile(50) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public double getSubmitResponseTimeP99Millis() {
+    return submitResponseTime.getValueAtPercentile(99) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public double getSubmitResponseTimeMaxMillis() {
+    return submitResponseTime.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("binds=%d unbinds=%d evictions=%d inFlight=%d submits=%d failures=%d "
+            + "borrowWait(mean=%.1fus p99=%.1fus) throttleWait(mean=%.1fus p99=%.1fus) rtt(p50=%.2fms p99=%.2fms) statuses=%s",
+        getBinds(), getUnbinds(), getEvictions(), getInFlight(), getSubmitResponses(), getSubmitFailures(),
+        getBorrowWaitMeanMicros(), getBorrowWaitP99Micros(), getThrottleWaitMeanMicros(), getThrottleWaitP99Micros(),
+        getSubmitResponseTimeP50Millis(), getSubmitResponseTimeP99Millis(), getCommandStatusCounts());
+  }
+}
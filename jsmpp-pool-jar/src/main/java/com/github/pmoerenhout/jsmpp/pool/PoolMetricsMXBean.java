@@ -0,0 +1,47 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+/**
+ * JMX view of the {@link PoolMetrics} of a pool, registered with {@link PooledSMPPSession#registerMBean()}.
+ */
+public interface PoolMetricsMXBean {
+
+  long getBinds();
+
+  long getBindFailures();
+
+  long getUnbinds();
+
+  long getEvictions();
+
+  long getEjections();
+
+  long getKeepalives();
+
+  long getKeepaliveFailures();
+
+  long getBorrows();
+
+  long getInFlight();
+
+  long getSubmitResponses();
+
+  long getSubmitFailures();
+
+  long getSubmitOk();
+
+  double getBorrowWaitMeanMicros();
+
+  double getBorrowWaitP99Micros();
+
+  double getThrottleWaitMeanMicros();
+
+  double getThrottleWaitP99Micros();
+
+  double getSubmitResponseTimeMeanMillis();
+
+  double getSubmitResponseTimeP50Millis();
+
+  double getSubmitResponseTimeP99Millis();
+
+  double getSubmitResponseTimeMaxMillis();
+}
@@ -1,8 +1,24 @@
 package com.github.pmoerenhout.jsmpp.pool;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 import org.apache.commons.pool2.PoolUtils;
 import org.apache.commons.pool2.impl.DefaultPooledObjectInfo;
@@ -11,7 +27,9 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.jsmpp.session.MessageReceiverListener;
 import org.jsmpp.session.SMPPSession;
 import org.jsmpp.session.SessionStateListener;
+import org.jsmpp.util.MessageId;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -19,7 +37,17 @@ public class PooledSMPPSession<T extends SMPPSession> implements AutoCloseable {
 
   private final String id;
   private final double messageRate;
-  private GenericObjectPool<T> pool;
+  private final Throttle accountThrottle;
+  private final PooledSmppSessionFactory factory;
+  private final GenericObjectPool<ThrottledSMPPSession> pool;
+  private ExecutorService submitExecutor;
+  private volatile SessionDispatcher<ThrottledSMPPSession> dispatcher;
+  private AdaptiveRateController adaptiveRateController;
+  private SlowBindDetector slowBindDetector;
+  private Rebinder rebinder;
+  private ObjectName mbeanName;
+  private volatile MessageSegmenter segmenter = new MessageSegmenter(Concatenation.UDH);
+  private volatile WarmUpResult warmUpResult;
 
   public PooledSMPPSession(final String host, final int port, final boolean ssl, final String systemId,
                            final String password, final String systemType,
@@ -30,46 +58,120 @@ public class PooledSMPPSession<T extends SMPPSession> implements AutoCloseable {
                            final int maxTotal,
                            final int minIdle,
                            final int maxIdle, final double messageRate, final int maxConcurrentRequests, final int pduProcessorDegree) throws Exception {
-    this.pool = createObjectPool(host, port, ssl, systemId, password, systemType,
-        messageReceiverListener,
-        sessionStateListener,
-        enquireLinkTimer, transactionTimer, bindTimeout, maxTotal, minIdle, maxIdle, messageRate, maxConcurrentRequests, pduProcessorDegree);
+    this(host, port, ssl, systemId, password, systemType, messageReceiverListener, sessionStateListener,
+        enquireLinkTimer, transactionTimer, bindTimeout, maxTotal, minIdle, maxIdle, messageRate, 0,
+        maxConcurrentRequests, pduProcessorDegree);
+  }
+
+  /**
+   * @param messageRate the rate limit of each bind, or 0 for no per bind limit
+   * @param accountRate the rate limit shared by all binds of the pool, or 0 for no account limit
+   */
+  public PooledSMPPSession(final String host, final int port, final boolean ssl, final String systemId,
+                           final String password, final String systemType,
+                           final MessageReceiverListener messageReceiverListener,
+                           final SessionStateListener sessionStateListener,
+                           final int enquireLinkTimer, final long transactionTimer,
+                           final long bindTimeout,
+                           final int maxTotal,
+                           final int minIdle,
+                           final int maxIdle, final double messageRate, final double accountRate,
+                           final int maxConcurrentRequests, final int pduProcessorDegree) throws Exception {
+    this(createFactory(host, port, ssl, systemId, password, systemType, messageReceiverListener, sessionStateListener,
+        enquireLinkTimer, transactionTimer, bindTimeout, messageRate, accountRate, maxConcurrentRequests, pduProcessorDegree),
+        maxTotal, minIdle, maxIdle);
+  }
+
+  /**
+   * Create a pool on a factory that is fully configured by the caller, before the first session is created. The
+   * {@code minIdle} sessions are bound in parallel in the background.
+   */
+  public PooledSMPPSession(final PooledSmppSessionFactory factory,
+                           final int maxTotal,
+                           final int minIdle,
+                           final int maxIdle) throws Exception {
+    this(factory, maxTotal, minIdle, maxIdle, null);
+  }
+
+  /**
+   * @param warmUpTimeout wait at most this long in the constructor for the {@code minIdle} sessions to be bound, or
+   *                      null to bind them in the background. Failed binds are logged, the outcome is available from
+   *                      {@link #getWarmUpResult()}.
+   */
+  public PooledSMPPSession(final PooledSmppSessionFactory factory,
+                           final int maxTotal,
+                           final int minIdle,
+                           final int maxIdle,
+                           final Duration warmUpTimeout) throws Exception {
+    this.factory = factory;
+    this.accountThrottle = factory.getAccountThrottle();
+    this.pool = createObjectPool(factory, maxTotal, minIdle, maxIdle);
     this.id = UUID.randomUUID().toString();
-    this.messageRate = messageRate;
+    this.messageRate = factory.getMessageRate();
+    if (factory.getBindCircuitBreaker() != null) {
+      this.rebinder = new Rebinder(id, pool, factory.getBindCircuitBreaker());
+    }
+    this.submitExecutor = createSubmitExecutor(factory, maxTotal);
+    factory.setCloseExecutor(submitExecutor);
     //this.pool.addObjects(pool.getMaxTotal());
+    if (warmUpTimeout != null) {
+      this.warmUpResult = warmUp(minIdle, warmUpTimeout);
+    } else if (minIdle > 0) {
+      warmUpAsync(minIdle, Duration.ofMillis(factory.getBindTimeout())).thenAccept(result -> this.warmUpResult = result);
+    }
     PoolUtils.checkMinIdle(pool, pool.getMinIdle(), 5000);
   }
 
-  private GenericObjectPool createObjectPool(final String host, final int port, final boolean ssl,
-                                             final String systemId, final String password,
-                                             final String systemType,
-                                             final MessageReceiverListener messageReceiverListener,
-                                             final SessionStateListener sessionStateListener,
-                                             final int enquireLinkTimer,
-                                             final long transactionTimer,
-                                             final long bindTimeout,
-                                             final int maxTotal,
-                                             final int minIdle,
-                                             final int maxIdle,
-                                             final double messageRate,
-                                             final int maxConcurrentRequests,
-                                             final int pduProcessorDegree) {
+  private ExecutorService createSubmitExecutor(final PooledSmppSessionFactory factory, final int maxTotal) {
+    if (factory.isVirtualThreads()) {
+      log.info("Pool {} submits on virtual threads", id);
+      return VirtualThreads.newThreadPerTaskExecutor("smpp-submit-" + id + "-");
+    }
+    // The submits only write their PDU on this executor and complete there, no thread waits for a response. Binds of the
+    // warm-up and of the dispatcher refills do block, so leave room for them next to a thread per core.
+    return Executors.newFixedThreadPool(maxTotal + Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("smpp-submit-" + id + "-%d").setDaemon(true).build());
+  }
+
+  private static PooledSmppSessionFactory createFactory(final String host, final int port, final boolean ssl,
+                                                        final String systemId, final String password,
+                                                        final String systemType,
+                                                        final MessageReceiverListener messageReceiverListener,
+                                                        final SessionStateListener sessionStateListener,
+                                                        final int enquireLinkTimer,
+                                                        final long transactionTimer,
+                                                        final long bindTimeout,
+                                                        final double messageRate,
+                                                        final double accountRate,
+                                                        final int maxConcurrentRequests,
+                                                        final int pduProcessorDegree) {
     log.debug("createObjectPool {}:{} ssl:{} systemId:{} systemType:{}", host, port, ssl, systemId, systemType);
     log.debug("timers enquire:{} transaction:{} bind:{}", enquireLinkTimer, transactionTimer, bindTimeout);
-    log.debug("messageRate:{} maxConcurrentRequests:{} pduProcessorDegree:{}", messageRate, maxConcurrentRequests, pduProcessorDegree);
+    log.debug("messageRate:{} accountRate:{} maxConcurrentRequests:{} pduProcessorDegree:{}", messageRate, accountRate, maxConcurrentRequests, pduProcessorDegree);
 
-    final GenericObjectPool<ThrottledSMPPSession> pool = new GenericObjectPool<>(
-        new PooledSmppSessionFactory(host, port, ssl, systemId, password, systemType, messageReceiverListener,
-            sessionStateListener, enquireLinkTimer, transactionTimer, bindTimeout, messageRate, maxConcurrentRequests, pduProcessorDegree));
-    log.info("eviction idle time:{} (enquireLinkTime * 2)", enquireLinkTimer * 2);
+    final PooledSmppSessionFactory factory = new PooledSmppSessionFactory(host, port, ssl, systemId, password, systemType,
+        messageReceiverListener, sessionStateListener, enquireLinkTimer, transactionTimer, bindTimeout, messageRate,
+        maxConcurrentRequests, pduProcessorDegree);
+    if (accountRate > 0) {
+      factory.setAccountThrottle(new TokenBucketThrottle(accountRate));
+    }
+    return factory;
+  }
+
+  private static GenericObjectPool<ThrottledSMPPSession> createObjectPool(final PooledSmppSessionFactory factory,
+                                                                         final int maxTotal,
+                                                                         final int minIdle,
+                                                                         final int maxIdle) {
+    final GenericObjectPool<ThrottledSMPPSession> pool = new GenericObjectPool<>(factory);
+    log.info("eviction after {}ms inactivity (enquireLinkTimer {}ms)", factory.getMaxInactivityMillis(), factory.getEnquireLinkTimer());
     final GenericObjectPoolConfig config = new GenericObjectPoolConfig();
     config.setLifo(false);
     config.setEvictionPolicyClassName(JsmppEvictionPolicy.class.getName());
     config.setFairness(true);
     //config.setTimeBetweenEvictionRunsMillis(15000);
     config.setTimeBetweenEvictionRuns(Duration.ofMillis(15000));
-    //config.setMinEvictableIdleTimeMillis(60000);
-    config.setMinEvictableIdleTime(Duration.ofMillis(60000));
+    // The JsmppEvictionPolicy compares the idle evict time to the last activity of the session
+    config.setMinEvictableIdleTime(Duration.ofMillis(factory.getMaxInactivityMillis()));
     //config.setSoftMinEvictableIdleTimeMillis(60000);
     config.setSoftMinEvictableIdleTime(Duration.ofMillis(60000));
     config.setMaxTotal(maxTotal);
@@ -91,46 +193,459 @@ public class PooledSMPPSession<T extends SMPPSession> implements AutoCloseable {
 
   public T borrowObject() throws Exception {
     log.trace("Borrow Object from pool {}", id);
-    T session = pool.borrowObject();
+    final long start = System.nanoTime();
+    final T session = cast(pool.borrowObject());
+    factory.getMetrics().recordBorrowWait(System.nanoTime() - start);
     log.trace("Borrowed Object from pool {}", id);
     if (messageRate != 0) {
       log.debug("Session {} is throttled to {} msg/s", session.getSessionId(), messageRate);
     }
+    if (accountThrottle != null) {
+      log.debug("Session {} shares the account throttle of {} msg/s", session.getSessionId(), accountThrottle.getRate());
+    }
     return session;
   }
 
+  /**
+   * Switch to dispatcher mode: all {@code maxTotal} sessions are borrowed once and shared by all callers, so
+   * {@link #nextSession()} and {@link #submitAsync(SubmitRequest)} no longer borrow and return per message. The
+   * sessions are borrowed on the submit executor, this method does not wait for them to be bound.
+   */
+  public synchronized void enableDispatcher(final DispatchStrategy strategy) {
+    if (dispatcher != null) {
+      throw new IllegalStateException("Dispatcher is already enabled");
+    }
+    final SessionDispatcher<ThrottledSMPPSession> sessionDispatcher =
+        new SessionDispatcher<>(pool, pool.getMaxTotal(), strategy, submitExecutor);
+    sessionDispatcher.start();
+    log.info("Pool {} dispatches over {} sessions by {}", id, sessionDispatcher.size(), strategy);
+    this.dispatcher = sessionDispatcher;
+  }
+
+  public synchronized void disableDispatcher() {
+    if (dispatcher != null) {
+      dispatcher.close();
+      dispatcher = null;
+    }
+  }
+
+  public boolean isDispatcherEnabled() {
+    return dispatcher != null;
+  }
+
+  /**
+   * A bound session picked by the dispatcher. The session is shared and must not be returned to the pool.
+   *
+   * @throws NoSuchElementException when no session is bound, the empty slots are then refilled in the background
+   */
+  public T nextSession() throws Exception {
+    final SessionDispatcher<ThrottledSMPPSession> sessionDispatcher = this.dispatcher;
+    if (sessionDispatcher == null) {
+      throw new IllegalStateException("Dispatcher is not enabled");
+    }
+    return cast(sessionDispatcher.next());
+  }
+
+  /**
+   * Let the rate of every bind, and the account rate when configured, follow the congestion signals of the SMSC.
+   */
+  public synchronized AdaptiveRateController enableAdaptiveThrottling() {
+    return enableAdaptiveThrottling(new AdaptiveRateController(accountThrottle));
+  }
+
+  public synchronized AdaptiveRateController enableAdaptiveThrottling(final AdaptiveRateController controller) {
+    if (adaptiveRateController != null) {
+      throw new IllegalStateException("Adaptive throttling is already enabled");
+    }
+    addSubmitResponseListener(controller);
+    controller.start();
+    this.adaptiveRateController = controller;
+    return controller;
+  }
+
+  public synchronized void disableAdaptiveThrottling() {
+    if (adaptiveRateController != null) {
+      removeSubmitResponseListener(adaptiveRateController);
+      adaptiveRateController.close();
+      adaptiveRateController = null;
+    }
+  }
+
+  /**
+   * Take binds whose submit_sm_resp times fall behind the other binds, or reach half the transaction timer, out of
+   * rotation and replace them with new binds.
+   */
+  public synchronized SlowBindDetector enableSlowBindEjection() {
+    return enableSlowBindEjection(new SlowBindDetector(factory.getTransactionTimer()));
+  }
+
+  public synchronized SlowBindDetector enableSlowBindEjection(final SlowBindDetector detector) {
+    if (slowBindDetector != null) {
+      throw new IllegalStateException("Slow bind ejection is already enabled");
+    }
+    addSubmitResponseListener(detector);
+    detector.start();
+    this.slowBindDetector = detector;
+    return detector;
+  }
+
+  public synchronized void disableSlowBindEjection() {
+    if (slowBindDetector != null) {
+      removeSubmitResponseListener(slowBindDetector);
+      slowBindDetector.close();
+      slowBindDetector = null;
+    }
+  }
+
   public T useOrBorrowObject(final T session) throws Exception {
     log.trace("Pool {} useOrBorrowObject session:{}", id, session != null ? session.getSessionId() : "null");
-    if (session != null && session.getSessionState().isBound()) {
+    if (session != null && session.getSessionState().isBound() && !((ThrottledSMPPSession) session).isEjected()) {
       return session;
     }
     pool.evict();
-    return pool.borrowObject();
+    return cast(pool.borrowObject());
   }
 
   public void returnObject(final T session) throws Exception {
     log.trace("Pool {} returnObject session:{}", id, session != null ? session.getSessionId() : "null");
-    pool.returnObject(session);
+    pool.returnObject((ThrottledSMPPSession) session);
   }
 
   public void invalidateObject(final T session) throws Exception {
     log.trace("Pool {} invalidateObject session:{}", id, session != null ? session.getSessionId() : "null");
-    pool.invalidateObject(session);
+    pool.invalidateObject((ThrottledSMPPSession) session);
+  }
+
+  /**
+   * The factory creates {@link ThrottledSMPPSession}s only, the type parameter narrows them for the caller.
+   */
+  @SuppressWarnings("unchecked")
+  private T cast(final ThrottledSMPPSession session) {
+    return (T) session;
+  }
+
+  /**
+   * Submit a short message on one of the pooled sessions and return as soon as it is in flight. The session is
+   * returned to the pool right away, so concurrent callers pipeline up to {@code maxConcurrentRequests} outstanding
+   * submit_sm PDUs on each bind. Without a {@link #enableDispatcher dispatcher} the session is borrowed on the submit
+   * executor, so the caller does not wait for a free session or a bind; the submits queue on the executor instead.
+   */
+  public CompletableFuture<MessageId> submitAsync(final SubmitRequest request) {
+    final SessionDispatcher<ThrottledSMPPSession> sessionDispatcher = this.dispatcher;
+    if (sessionDispatcher != null) {
+      try {
+        return sessionDispatcher.next().submitAsync(request, submitExecutor);
+      } catch (Exception e) {
+        final CompletableFuture<MessageId> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+      }
+    }
+    return submitOnBorrowed(session -> session.submitAsync(request, submitExecutor));
+  }
+
+  /**
+   * Encode the text and submit it as one or more segments, all on the same session so the SMSC receives them on one
+   * bind. The rate permits for all segments are acquired at once. The template provides everything but the data_coding
+   * and short_message; the concatenation is done with the UDH or with the SAR parameters of the
+   * {@link #setSegmenter(MessageSegmenter) segmenter}. Like {@link #submitAsync(SubmitRequest)} the session is
+   * borrowed on the submit executor when there is no dispatcher.
+   *
+   * @return the message ids of the segments, in order
+   */
+  public CompletableFuture<List<MessageId>> submitLongMessage(final SubmitRequest template, final String text) {
+    final List<SubmitRequest> segments;
+    try {
+      segments = segmenter.segment(template, text);
+      final SessionDispatcher<ThrottledSMPPSession> sessionDispatcher = this.dispatcher;
+      if (sessionDispatcher != null) {
+        return sessionDispatcher.next().submitAsync(segments, submitExecutor);
+      }
+    } catch (Exception e) {
+      final CompletableFuture<List<MessageId>> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    return submitOnBorrowed(session -> session.submitAsync(segments, submitExecutor));
+  }
+
+  /**
+   * Borrow a session on the submit executor, start the submit on it and return it to the pool. A borrow may wait for a
+   * free session or create and bind one, which must not happen on the thread of the caller.
+   */
+  private <R> CompletableFuture<R> submitOnBorrowed(final Function<ThrottledSMPPSession, CompletableFuture<R>> submit) {
+    final CompletableFuture<R> future = new CompletableFuture<>();
+    try {
+      submitExecutor.execute(() -> {
+        final ThrottledSMPPSession session;
+        try {
+          final long start = System.nanoTime();
+          session = pool.borrowObject();
+          factory.getMetrics().recordBorrowWait(System.nanoTime() - start);
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+          return;
+        }
+        try {
+          submit.apply(session).whenComplete((result, e) -> {
+            if (e != null) {
+              future.completeExceptionally(e);
+            } else {
+              future.complete(result);
+            }
+          });
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        } finally {
+          returnQuietly(session);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Submit a batch of messages spread over the bound sessions of the pool. Every session claims the next messages of
+   * the batch as its send window frees up and takes the rate permits for them in bulk, capped to 10ms worth of its
+   * rate, instead of a borrow, acquire and return per message. The future completes with a {@link SubmitResult} per
+   * request, in the order of the requests, when all responses are in.
+   */
+  public CompletableFuture<List<SubmitResult>> submitBatch(final List<SubmitRequest> requests) {
+    final BatchSubmission batch = new BatchSubmission(requests, submitExecutor);
+    if (requests.isEmpty()) {
+      return batch.getFuture();
+    }
+    final SessionDispatcher<ThrottledSMPPSession> sessionDispatcher = this.dispatcher;
+    final List<ThrottledSMPPSession> sessions;
+    try {
+      sessions = sessionDispatcher != null ? sessionDispatcher.getBoundSessions() : borrowBatchSessions(requests.size());
+    } catch (Exception e) {
+      batch.addFeeder();
+      batch.feederDone(e);
+      return batch.getFuture();
+    }
+    log.debug("Pool {} submits a batch of {} messages on {} sessions", id, requests.size(), sessions.size());
+    sessions.forEach(session -> batch.addFeeder());
+    for (final ThrottledSMPPSession session : sessions) {
+      final CompletableFuture<Void> fed = batch.feed(session);
+      if (sessionDispatcher == null) {
+        fed.whenComplete((v, e) -> returnQuietly(session));
+      }
+    }
+    return batch.getFuture();
+  }
+
+  /**
+   * Borrow a session, and the idle ones as long as each gets at least a full bulk of the batch.
+   */
+  private List<ThrottledSMPPSession> borrowBatchSessions(final int messages) throws Exception {
+    final List<ThrottledSMPPSession> sessions = new ArrayList<>();
+    final ThrottledSMPPSession first = (ThrottledSMPPSession) borrowObject();
+    sessions.add(first);
+    final int wanted = (messages + first.getBulkPermits() - 1) / first.getBulkPermits();
+    while (sessions.size() < wanted && pool.getNumIdle() > 0) {
+      try {
+        sessions.add(pool.borrowObject(0));
+      } catch (NoSuchElementException e) {
+        break;
+      }
+    }
+    return sessions;
+  }
+
+  /**
+   * Bind up to {@code sessions} sessions in parallel and wait at most {@code timeout} for them. Sessions that are
+   * already idle count as bound. Binds still in progress at the deadline are reported as timed out, and go on in the
+   * background to end up idle in the pool.
+   */
+  public WarmUpResult warmUp(final int sessions, final Duration timeout) {
+    return warmUpAsync(sessions, timeout).join();
+  }
+
+  public CompletableFuture<WarmUpResult> warmUpAsync(final int sessions, final Duration timeout) {
+    final long start = System.nanoTime();
+    final int count = pool.getMaxTotal() < 0 ? sessions : Math.min(sessions, pool.getMaxTotal());
+    log.info("Pool {} warms up {} sessions within {}ms", id, count, timeout.toMillis());
+    final List<CompletableFuture<ThrottledSMPPSession>> binds = new ArrayList<>(count);
+    final long[] bindNanos = new long[count];
+    for (int i = 0; i < count; i++) {
+      final int index = i;
+      binds.add(CompletableFuture.supplyAsync(() -> bind(timeout), submitExecutor)
+          .whenComplete((session, e) -> bindNanos[index] = System.nanoTime() - start));
+    }
+    final CompletableFuture<Void> all = CompletableFuture.allOf(binds.stream()
+        .map(bind -> bind.handle((session, e) -> null))
+        .toArray(CompletableFuture[]::new));
+    return CompletableFuture.anyOf(all, ThrottleScheduler.completeAfter(timeout.toNanos())).thenApply(v -> {
+      final List<BindOutcome> outcomes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        outcomes.add(outcome(binds.get(i), bindNanos[i]));
+      }
+      // The sessions are held until all binds are done, so an idle session is not borrowed twice
+      binds.forEach(bind -> bind.thenAccept(this::returnQuietly));
+      final WarmUpResult result = new WarmUpResult(outcomes, System.nanoTime() - start);
+      if (result.isComplete()) {
+        log.info("Pool {} warmed up {}/{} sessions in {}ms", id, result.getNumBound(), count,
+            TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()));
+      } else {
+        final Throwable failure = outcomes.stream().map(BindOutcome::getFailure).filter(Objects::nonNull)
+            .findFirst().orElse(null);
+        log.warn("Pool {} warmed up only {}/{} sessions in {}ms, {} binds failed: {}", id, result.getNumBound(), count,
+            TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()), result.getNumFailed(),
+            failure != null ? failure.getMessage() : null);
+      }
+      return result;
+    });
+  }
+
+  /**
+   * The outcome of the warm-up of the {@code minIdle} sessions started by the constructor, or null while it is still
+   * running in the background or when there was none.
+   */
+  public WarmUpResult getWarmUpResult() {
+    return warmUpResult;
+  }
+
+  private ThrottledSMPPSession bind(final Duration timeout) {
+    try {
+      return pool.borrowObject(timeout.toMillis());
+    } catch (Exception e) {
+      log.warn("Pool {} warm-up bind failed: {}", id, e.getMessage());
+      throw new CompletionException(e);
+    }
+  }
+
+  private BindOutcome outcome(final CompletableFuture<ThrottledSMPPSession> bind, final long bindNanos) {
+    if (!bind.isDone()) {
+      return new BindOutcome(null, new TimeoutException("Bind did not finish before the warm-up deadline"), 0);
+    }
+    try {
+      return new BindOutcome(bind.join().getSessionId(), null, bindNanos);
+    } catch (CompletionException e) {
+      return new BindOutcome(null, e.getCause(), bindNanos);
+    }
+  }
+
+  private void returnQuietly(final ThrottledSMPPSession session) {
+    try {
+      pool.returnObject(session);
+    } catch (Exception e) {
+      log.debug("Pool {} could not return session {}", id, session.getSessionId(), e);
+    }
+  }
+
+  /**
+   * Register the {@link PoolMetricsMXBean} of this pool with the platform MBean server.
+   */
+  public synchronized void registerMBean() throws JMException {
+    if (mbeanName == null) {
+      final ObjectName name = new ObjectName("com.github.pmoerenhout.jsmpp.pool:type=PoolMetrics,name=" + id);
+      ManagementFactory.getPlatformMBeanServer().registerMBean(factory.getMetrics(), name);
+      mbeanName = name;
+    }
+  }
+
+  public synchronized void unregisterMBean() {
+    if (mbeanName != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+      } catch (JMException e) {
+        log.debug("Pool {} could not unregister {}", id, mbeanName, e);
+      }
+      mbeanName = null;
+    }
   }
 
   public void close() {
     log.info("Close pool {}", id);
+    unregisterMBean();
+    disableDispatcher();
+    disableAdaptiveThrottling();
+    disableSlowBindEjection();
+    if (rebinder != null) {
+      rebinder.close();
+    }
     pool.close();
+    submitExecutor.shutdown();
   }
 
   public String getId() {
     return id;
   }
 
+  public Throttle getAccountThrottle() {
+    return accountThrottle;
+  }
+
+  /**
+   * @return true when the binds or the account of this pool have a rate limit
+   */
+  public boolean isThrottled() {
+    return messageRate > 0 || accountThrottle != null;
+  }
+
+  /**
+   * The rate this pool can send at in the next second: the sum of the current rates of the bound binds, as lowered by an
+   * {@link AdaptiveRateController}, capped by the account rate, each less the part of that second its permits are
+   * already reserved for. 0 when the pool is not throttled.
+   */
+  public double getCurrentRate() {
+    if (messageRate <= 0) {
+      return accountThrottle != null ? getAvailableRate(accountThrottle) : 0;
+    }
+    double rate = 0;
+    for (final ThrottledSMPPSession session : factory.getSessions()) {
+      final Throttle throttle = session.getThrottle();
+      if (throttle != null && session.getSessionState().isBound() && !session.isEjected()) {
+        rate += getAvailableRate(throttle);
+      }
+    }
+    return accountThrottle != null ? Math.min(rate, getAvailableRate(accountThrottle)) : rate;
+  }
+
+  private static double getAvailableRate(final Throttle throttle) {
+    final double reservedSeconds = throttle.getWaitNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+    return throttle.getRate() * Math.max(0, 1 - reservedSeconds);
+  }
+
+  public PoolMetrics getMetrics() {
+    return factory.getMetrics();
+  }
+
+  public MessageSegmenter getSegmenter() {
+    return segmenter;
+  }
+
+  public void setSegmenter(final MessageSegmenter segmenter) {
+    this.segmenter = segmenter;
+  }
+
+  public PooledSmppSessionFactory getFactory() {
+    return factory;
+  }
+
+  public boolean isVirtualThreads() {
+    return factory.isVirtualThreads();
+  }
+
+  public void addSubmitResponseListener(final SubmitResponseListener listener) {
+    factory.getSubmitResponseListeners().add(listener);
+  }
+
+  public void removeSubmitResponseListener(final SubmitResponseListener listener) {
+    factory.getSubmitResponseListeners().remove(listener);
+  }
+
   public Set<DefaultPooledObjectInfo> listAllObjects() {
     return pool.listAllObjects();
   }
 
+  public int getMaxTotal() {
+    return pool.getMaxTotal();
+  }
+
   public int getNumActive() {
     return pool.getNumActive();
   }
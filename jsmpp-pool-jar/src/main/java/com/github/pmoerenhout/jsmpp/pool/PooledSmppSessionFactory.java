@@ -1,17 +1,35 @@
 package com.github.pmoerenhout.jsmpp.pool;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleFunction;
+import java.util.function.Supplier;
 
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.jsmpp.DefaultPDUReader;
+import org.jsmpp.DefaultPDUSender;
+import org.jsmpp.PDUReader;
+import org.jsmpp.PDUSender;
+import org.jsmpp.SynchronizedPDUSender;
 import org.jsmpp.bean.BindType;
 import org.jsmpp.bean.NumberingPlanIndicator;
 import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.session.BindParameter;
 import org.jsmpp.session.MessageReceiverListener;
 import org.jsmpp.session.SessionStateListener;
+import org.jsmpp.session.connection.ConnectionFactory;
 import org.jsmpp.session.connection.socket.NoTrustSSLSocketConnectionFactory;
+import org.jsmpp.session.connection.socket.SocketConnectionFactory;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,6 +50,20 @@ public class PooledSmppSessionFactory extends BasePooledObjectFactory<ThrottledS
   private double messageRate;
   private int maxConcurrentRequests;
   private int pduProcessorDegree;
+  private DoubleFunction<Throttle> throttleFactory = TokenBucketThrottle::new;
+  private Throttle accountThrottle;
+  private boolean virtualThreads;
+  private long maxInactivityMillis;
+  private ConnectionFactory connectionFactory;
+  private Supplier<PDUSender> pduSenderFactory;
+  private Supplier<PDUReader> pduReaderFactory;
+  private final ConnectionFactory sslConnectionFactory;
+  private BindCircuitBreaker bindCircuitBreaker;
+  private KeepaliveScheduler keepaliveScheduler;
+  private volatile Executor closeExecutor;
+  private final SubmitResponseListeners submitResponseListeners = new SubmitResponseListeners();
+  private final PoolMetrics metrics = new PoolMetrics();
+  private final Set<ThrottledSMPPSession> sessions = ConcurrentHashMap.newKeySet();
 
   public PooledSmppSessionFactory(final String host, final int port, final boolean ssl,
                                   final String systemId, final String password,
@@ -58,24 +90,204 @@ public class PooledSmppSessionFactory extends BasePooledObjectFactory<ThrottledS
     this.messageRate = messageRate;
     this.maxConcurrentRequests = maxConcurrentRequests;
     this.pduProcessorDegree = pduProcessorDegree;
+    // One instance shares its SSL context, and so its TLS session cache, with all binds
+    this.sslConnectionFactory = ssl ? new NoTrustSSLSocketConnectionFactory() : null;
+    this.maxInactivityMillis = SessionLiveness.maxInactivityMillis(enquireLinkTimer, transactionTimer);
+    this.submitResponseListeners.add(metrics);
   }
 
   @Override
   public ThrottledSMPPSession create() throws IOException {
-    final ThrottledSMPPSession session = getThrottledSMPPSession(ssl, messageRate, maxConcurrentRequests);
-    final BindParameter bindParameter = new BindParameter(
-        BindType.BIND_TRX, systemId, password, systemType, TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
-        null);
-    session.setEnquireLinkTimer(enquireLinkTimer);
-    session.setTransactionTimer(transactionTimer);
-    session.setPduProcessorDegree(pduProcessorDegree);
-    session.setMessageReceiverListener(messageReceiverListener);
-    session.addSessionStateListener(sessionStateListener);
-    session.connectAndBind(host, port, bindParameter, bindTimeout);
+    final BindCircuitBreaker breaker = bindCircuitBreaker;
+    if (breaker != null) {
+      breaker.acquireBind();
+    }
+    // Whatever fails after the bind was acquired is reported, a half open breaker waits for this outcome
+    ThrottledSMPPSession session = null;
+    boolean created = false;
+    try {
+      session = getThrottledSMPPSession(ssl, messageRate, maxConcurrentRequests);
+      final BindParameter bindParameter = new BindParameter(
+          BindType.BIND_TRX, systemId, password, systemType, TypeOfNumber.UNKNOWN, NumberingPlanIndicator.UNKNOWN,
+          null);
+      session.setEnquireLinkTimer(enquireLinkTimer);
+      session.setTransactionTimer(transactionTimer);
+      session.setPduProcessorDegree(pduProcessorDegree);
+      session.setMessageReceiverListener(messageReceiverListener);
+      session.setAccountThrottle(accountThrottle);
+      session.setSubmitResponseListener(submitResponseListeners);
+      session.setMetrics(metrics);
+      session.addSessionStateListener(sessionStateListener);
+      final KeepaliveScheduler keepalive = keepaliveScheduler;
+      session.setExternalKeepalive(keepalive != null);
+      session.connectAndBind(host, port, bindParameter, bindTimeout);
+      sessions.add(session);
+      if (keepalive != null) {
+        keepalive.register(session);
+      }
+      if (breaker != null) {
+        breaker.recordSuccess();
+      }
+      metrics.recordBind();
+      created = true;
+    } finally {
+      if (!created) {
+        metrics.recordBindFailure();
+        if (breaker != null) {
+          breaker.recordFailure();
+        }
+        if (session != null) {
+          sessions.remove(session);
+          session.close();
+        }
+      }
+    }
     log.debug("Created new session {}", session.getSessionId());
     return session;
   }
 
+  public int getEnquireLinkTimer() {
+    return enquireLinkTimer;
+  }
+
+  public long getTransactionTimer() {
+    return transactionTimer;
+  }
+
+  public long getBindTimeout() {
+    return bindTimeout;
+  }
+
+  public double getMessageRate() {
+    return messageRate;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public SubmitResponseListeners getSubmitResponseListeners() {
+    return submitResponseListeners;
+  }
+
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  public Throttle getAccountThrottle() {
+    return accountThrottle;
+  }
+
+  public void setAccountThrottle(final Throttle accountThrottle) {
+    this.accountThrottle = accountThrottle;
+  }
+
+  /**
+   * @param throttleFactory creates the per bind throttle from the message rate, e.g. {@code RateLimiterThrottle::new}
+   *                        for the Guava RateLimiter
+   */
+  public void setThrottleFactory(final DoubleFunction<Throttle> throttleFactory) {
+    this.throttleFactory = throttleFactory;
+  }
+
+  public long getMaxInactivityMillis() {
+    return maxInactivityMillis;
+  }
+
+  /**
+   * @param maxInactivityMillis a session without any PDU for longer than this fails validation and is evicted. Defaults
+   *                            to twice the enquire link timer plus the transaction timer. Must be set before the pool
+   *                            is created.
+   */
+  public void setMaxInactivityMillis(final long maxInactivityMillis) {
+    this.maxInactivityMillis = maxInactivityMillis;
+  }
+
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Run the async submits and the dispatcher refills of the pool on virtual threads instead of a fixed pool of
+   * {@code maxTotal} plus one per core platform threads. Requires Java 21 and must be set before the pool is
+   * created. The reader, enquire link and PDU processor threads of each bind are created by jSMPP itself and remain
+   * platform threads, keep {@code pduProcessorDegree} low in this mode.
+   */
+  public void setVirtualThreads(final boolean virtualThreads) {
+    if (virtualThreads) {
+      VirtualThreads.checkAvailable();
+    }
+    this.virtualThreads = virtualThreads;
+  }
+
+  public BindCircuitBreaker getBindCircuitBreaker() {
+    return bindCircuitBreaker;
+  }
+
+  /**
+   * @param bindCircuitBreaker fails the binds fast while the SMSC is down, e.g. {@code new BindCircuitBreaker()}, or
+   *                           null to always bind, the default. Must be set before the pool is created.
+   */
+  public void setBindCircuitBreaker(final BindCircuitBreaker bindCircuitBreaker) {
+    this.bindCircuitBreaker = bindCircuitBreaker;
+  }
+
+  /**
+   * @param closeExecutor unbinds the ejected sessions once drained, set by the pool to its submit executor
+   */
+  void setCloseExecutor(final Executor closeExecutor) {
+    this.closeExecutor = closeExecutor;
+  }
+
+  public KeepaliveScheduler getKeepaliveScheduler() {
+    return keepaliveScheduler;
+  }
+
+  /**
+   * @param keepaliveScheduler sends the enquire links of the binds, instead of a thread per bind. Must be set before the
+   *                           pool is created.
+   */
+  public void setKeepaliveScheduler(final KeepaliveScheduler keepaliveScheduler) {
+    this.keepaliveScheduler = keepaliveScheduler;
+  }
+
+  public ConnectionFactory getConnectionFactory() {
+    return connectionFactory;
+  }
+
+  /**
+   * @param connectionFactory the factory for the connections of the binds, e.g. a {@link SocketChannelConnectionFactory}
+   *                          for the {@link ByteBufferPDUSender} or a {@link TlsConnectionFactory} to validate the
+   *                          certificate of the SMSC. When not set the connections are plain sockets, or SSL sockets
+   *                          that trust any certificate when {@code ssl} is true.
+   */
+  public void setConnectionFactory(final ConnectionFactory connectionFactory) {
+    this.connectionFactory = connectionFactory;
+  }
+
+  /**
+   * @param pduSenderFactory creates the PDU sender of each bind, e.g. {@code ByteBufferPDUSender::new}. jSMPP uses a
+   *                         given sender as is, so the factory wraps it in a {@link SynchronizedPDUSender} to keep the
+   *                         PDUs of the submit threads and the PDU processor threads from interleaving.
+   */
+  public void setPduSenderFactory(final Supplier<PDUSender> pduSenderFactory) {
+    this.pduSenderFactory = pduSenderFactory;
+  }
+
+  /**
+   * @param pduReaderFactory creates the PDU reader of each bind, e.g. {@code ByteBufferPDUReader::new}
+   */
+  public void setPduReaderFactory(final Supplier<PDUReader> pduReaderFactory) {
+    this.pduReaderFactory = pduReaderFactory;
+  }
+
+  /**
+   * The sessions bound by this factory and not destroyed yet, idle or borrowed.
+   */
+  Collection<ThrottledSMPPSession> getSessions() {
+    return Collections.unmodifiableSet(sessions);
+  }
+
   @Override
   public PooledObject<ThrottledSMPPSession> wrap(ThrottledSMPPSession session) {
     return new DefaultPooledObject<>(session);
@@ -84,8 +296,15 @@ public class PooledSmppSessionFactory extends BasePooledObjectFactory<ThrottledS
   @Override
   public boolean validateObject(PooledObject<ThrottledSMPPSession> pooledObject) {
     final ThrottledSMPPSession session = pooledObject.getObject();
-    log.debug("validateObject {} {}", session.getSessionId(), session.getSessionState());
-    return pooledObject.getObject().getSessionState().isBound();
+    if (session.isEjected()) {
+      log.debug("Session {} is ejected", session.getSessionId());
+      return false;
+    }
+    if (SessionLiveness.isAlive(session, maxInactivityMillis, System.currentTimeMillis())) {
+      return true;
+    }
+    log.debug("Session {} failed validation in state {}", session.getSessionId(), session.getSessionState());
+    return false;
   }
 
   @Override
@@ -93,23 +312,71 @@ public class PooledSmppSessionFactory extends BasePooledObjectFactory<ThrottledS
       throws Exception {
     final ThrottledSMPPSession session = pooledObject.getObject();
     log.debug("destroyObject {} {}", session.getSessionId(), session.getSessionState());
+    metrics.recordUnbind();
+    sessions.remove(session);
+    if (keepaliveScheduler != null) {
+      keepaliveScheduler.unregister(session);
+    }
+    if (session.isEjected()) {
+      // The submits still in flight on a slow bind get their responses before it is unbound, without holding up the
+      // borrower that found it
+      closeWhenDrained(session);
+      return;
+    }
     session.unbindAndClose();
   }
 
+  /**
+   * Unbind on the close executor once the bind is drained, or after the transaction timer.
+   */
+  private void closeWhenDrained(final ThrottledSMPPSession session) {
+    final CompletableFuture<Void> drained = session.whenDrained();
+    final ScheduledFuture<?> timeout = ThrottleScheduler.schedule(() -> drained.complete(null),
+        TimeUnit.MILLISECONDS.toNanos(transactionTimer));
+    drained.thenRun(() -> {
+      timeout.cancel(false);
+      final Executor executor = closeExecutor;
+      if (executor != null) {
+        try {
+          executor.execute(session::unbindAndClose);
+          return;
+        } catch (RejectedExecutionException e) {
+          log.debug("Close executor rejected session {}", session.getSessionId());
+        }
+      }
+      // Do not wait for an unbind response on the thread that released the last slot
+      session.close();
+    });
+  }
+
   public void activateObject(PooledObject<ThrottledSMPPSession> p) throws Exception {
-    final ThrottledSMPPSession session = p.getObject();
-    log.debug("activateObject {} {}", session.getSessionId(), session.getSessionState());
+    log.trace("activateObject {}", p);
   }
 
   public void passivateObject(PooledObject<ThrottledSMPPSession> p) throws Exception {
-    final ThrottledSMPPSession session = p.getObject();
-    log.debug("passivateObject {}", session.getSessionId(), session.getSessionState());
+    log.trace("passivateObject {}", p);
   }
 
   private ThrottledSMPPSession getThrottledSMPPSession(final boolean ssl, final double messageRate, final int maxConcurrentRequests) {
-    if (ssl) {
-      return new ThrottledSMPPSession(new NoTrustSSLSocketConnectionFactory(), messageRate, maxConcurrentRequests);
+    final Throttle throttle = messageRate > 0 ? throttleFactory.apply(messageRate) : null;
+    final ConnectionFactory connFactory;
+    if (connectionFactory != null) {
+      connFactory = connectionFactory;
+    } else if (ssl) {
+      connFactory = sslConnectionFactory;
+    } else {
+      connFactory = SocketConnectionFactory.getInstance();
     }
-    return new ThrottledSMPPSession(messageRate, maxConcurrentRequests);
+    if (pduSenderFactory == null && pduReaderFactory == null) {
+      return new ThrottledSMPPSession(connFactory, throttle, maxConcurrentRequests);
+    }
+    return new ThrottledSMPPSession(
+        synchronizedSender(pduSenderFactory != null ? pduSenderFactory.get() : new DefaultPDUSender()),
+        pduReaderFactory != null ? pduReaderFactory.get() : new DefaultPDUReader(),
+        connFactory, throttle, maxConcurrentRequests);
+  }
+
+  private static PDUSender synchronizedSender(final PDUSender pduSender) {
+    return pduSender instanceof SynchronizedPDUSender ? pduSender : new SynchronizedPDUSender(pduSender);
   }
 }
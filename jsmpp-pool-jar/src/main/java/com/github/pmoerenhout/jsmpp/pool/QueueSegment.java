@@ -0,0 +1,176 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A memory-mapped file of the {@link SubmitQueue} log. Each record is its payload length, the CRC-32 of the payload, a
+ * status byte and the payload. The length is written last, so a record cut short by a crash reads as the end of the
+ * segment. The status is updated in place when the submit is acknowledged or fails. The file is deleted when it is
+ * sealed and none of its records is pending. Once closed the file is unmapped, and a record completed after that stays
+ * pending in the log.
+ */
+@Slf4j
+class QueueSegment {
+
+  static final byte PENDING = 0;
+  static final byte ACKED = 1;
+  static final byte FAILED = 2;
+  static final int HEADER_SIZE = 9;
+
+  private final long id;
+  private final Path path;
+  private final MappedByteBuffer buffer;
+  private final ByteBuffer writer;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final CRC32 crc = new CRC32();
+  private volatile boolean sealed;
+  private boolean closed;
+
+  private QueueSegment(final long id, final Path path, final MappedByteBuffer buffer) {
+    this.id = id;
+    this.path = path;
+    this.buffer = buffer;
+    this.writer = buffer.duplicate();
+  }
+
+  static QueueSegment open(final Path directory, final long id, final int size) throws IOException {
+    final Path path = directory.resolve(String.format("%020d.log", id));
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final long length = Math.max(size, channel.size());
+      return new QueueSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, length));
+    }
+  }
+
+  static long parseId(final Path path) {
+    final String name = path.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+  }
+
+  long getId() {
+    return id;
+  }
+
+  /**
+   * Append a record of {@code length} bytes written by the encoder. Not thread safe, the queue appends under its lock.
+   *
+   * @return the offset of the record, or -1 when the segment is full
+   */
+  int append(final int length, final Consumer<ByteBuffer> encoder) {
+    final int offset = writer.position();
+    if (offset + HEADER_SIZE + length > writer.capacity()) {
+      return -1;
+    }
+    writer.position(offset + HEADER_SIZE);
+    encoder.accept(writer);
+    final ByteBuffer payload = buffer.duplicate();
+    payload.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+    crc.reset();
+    crc.update(payload);
+    writer.putInt(offset + 4, (int) crc.getValue());
+    writer.put(offset + 8, PENDING);
+    writer.putInt(offset, length);
+    pending.incrementAndGet();
+    return offset;
+  }
+
+  /**
+   * Call the consumer with the payload and offset of every valid pending record.
+   *
+   * @return the number of pending records
+   */
+  int replay(final ObjIntConsumer<ByteBuffer> consumer) {
+    final ByteBuffer reader = buffer.duplicate();
+    int offset = 0;
+    int count = 0;
+    while (offset + HEADER_SIZE <= reader.capacity()) {
+      final int length = reader.getInt(offset);
+      if (length <= 0 || offset + HEADER_SIZE + length > reader.capacity()) {
+        break;
+      }
+      final ByteBuffer payload = buffer.duplicate();
+      payload.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+      crc.reset();
+      crc.update(payload.duplicate());
+      if ((int) crc.getValue() != reader.getInt(offset + 4)) {
+        log.warn("Segment {} has a corrupt record at offset {}", path, offset);
+        break;
+      }
+      if (reader.get(offset + 8) == PENDING) {
+        pending.incrementAndGet();
+        consumer.accept(payload, offset);
+        count++;
+      }
+      offset += HEADER_SIZE + length;
+    }
+    writer.position(offset);
+    return count;
+  }
+
+  /**
+   * Mark the record as acknowledged or failed.
+   *
+   * @return true when the segment can be deleted
+   */
+  synchronized boolean complete(final int offset, final byte status) {
+    if (closed) {
+      return false;
+    }
+    buffer.put(offset + 8, status);
+    return pending.decrementAndGet() == 0 && sealed;
+  }
+
+  /**
+   * No more records will be appended.
+   *
+   * @return true when the segment can be deleted
+   */
+  boolean seal() {
+    sealed = true;
+    return pending.get() == 0;
+  }
+
+  int getPending() {
+    return pending.get();
+  }
+
+  synchronized void force() {
+    if (!closed) {
+      buffer.force();
+    }
+  }
+
+  /**
+   * Write the segment to the storage device and unmap it.
+   */
+  synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    buffer.force();
+    MappedBuffers.unmap(buffer);
+  }
+
+  void delete() {
+    close();
+    try {
+      Files.deleteIfExists(path);
+      log.debug("Deleted segment {}", path);
+    } catch (IOException e) {
+      log.warn("Could not delete segment {}: {}", path, e.getMessage());
+    }
+  }
+}
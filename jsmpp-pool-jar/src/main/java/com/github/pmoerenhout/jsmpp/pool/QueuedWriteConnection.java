@@ -0,0 +1,227 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.StrictBufferedInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A connection over a non-blocking channel whose writes do not wait for a slow SMSC. A write goes straight to the
+ * channel when nothing is pending, otherwise the bytes are queued and written by a {@link WriteFlushLoop}; a writer only
+ * waits when more than {@link #HIGH_WATER_MARK} bytes are pending. The jSMPP reader thread reads the channel itself
+ * through a {@link ChannelInputStream}.
+ */
+@Slf4j
+class QueuedWriteConnection implements Connection {
+
+  private static final int HIGH_WATER_MARK = 256 * 1024;
+
+  private final SocketChannel channel;
+  private final Socket socket;
+  private final WriteFlushLoop flushLoop;
+  private final ChannelInputStream channelIn;
+  private final InputStream in;
+  private final QueuedOutputStream out;
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Condition writable = writeLock.newCondition();
+  private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+  private long pendingBytes;
+
+  private volatile SelectionKey key;
+  private volatile IOException failure;
+  private volatile boolean closed;
+
+  QueuedWriteConnection(final SocketChannel channel, final WriteFlushLoop flushLoop) throws IOException {
+    this.channel = channel;
+    this.socket = channel.socket();
+    this.flushLoop = flushLoop;
+    this.channelIn = new ChannelInputStream(channel);
+    this.in = new StrictBufferedInputStream(channelIn, 65536);
+    this.out = new QueuedOutputStream(channel);
+    flushLoop.register(channel, this);
+  }
+
+  /**
+   * Called by the flush loop once the channel is registered. A write that was left partial before this point found no
+   * key to arm, so arm it here.
+   */
+  void registered(final SelectionKey selectionKey) {
+    writeLock.lock();
+    try {
+      this.key = selectionKey;
+      if (closed) {
+        selectionKey.cancel();
+      } else if (!pending.isEmpty()) {
+        selectionKey.interestOps(SelectionKey.OP_WRITE);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Called by the flush loop when the channel is writable again.
+   */
+  void onWritable() throws IOException {
+    writeLock.lock();
+    try {
+      while (!pending.isEmpty()) {
+        final ByteBuffer buffer = pending.peek();
+        pendingBytes -= channel.write(buffer);
+        if (buffer.hasRemaining()) {
+          return;
+        }
+        pending.poll();
+      }
+      key.interestOps(0);
+      writable.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  void failed(final IOException e) {
+    log.debug("Connection to {}:{} failed", getInetAddress(), getPort(), e);
+    failure = e;
+    close();
+  }
+
+  private void write(final ByteBuffer buffer) throws IOException {
+    writeLock.lock();
+    try {
+      checkOpen();
+      if (pending.isEmpty()) {
+        channel.write(buffer);
+        if (!buffer.hasRemaining()) {
+          return;
+        }
+        flushLoop.execute(this::resumeWrite);
+      }
+      // The caller may reuse the buffer, keep a copy of what is left
+      final ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+      copy.put(buffer).flip();
+      pending.add(copy);
+      pendingBytes += copy.remaining();
+      while (pendingBytes > HIGH_WATER_MARK) {
+        checkOpen();
+        writable.await();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing", e);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void resumeWrite() {
+    final SelectionKey selectionKey = key;
+    if (selectionKey != null && selectionKey.isValid()) {
+      selectionKey.interestOps(SelectionKey.OP_WRITE);
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    final IOException e = failure;
+    if (e != null) {
+      throw new IOException("Connection failed", e);
+    }
+    if (closed) {
+      throw new IOException("Connection is closed");
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return !closed && channel.isOpen();
+  }
+
+  @Override
+  public InetAddress getInetAddress() {
+    return socket.getInetAddress();
+  }
+
+  @Override
+  public InetAddress getLocalAddress() {
+    return socket.getLocalAddress();
+  }
+
+  @Override
+  public int getPort() {
+    return socket.getPort();
+  }
+
+  @Override
+  public int getLocalPort() {
+    return socket.getLocalPort();
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return in;
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return out;
+  }
+
+  @Override
+  public void setSoTimeout(final int timeout) {
+    channelIn.setSoTimeout(timeout);
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    final SelectionKey selectionKey = key;
+    if (selectionKey != null) {
+      selectionKey.cancel();
+      flushLoop.wakeup();
+    }
+    try {
+      channelIn.close();
+    } catch (IOException e) {
+      log.warn("Closing the channel failed", e);
+    }
+    writeLock.lock();
+    try {
+      writable.signalAll();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private class QueuedOutputStream extends ChannelOutputStream {
+
+    QueuedOutputStream(final SocketChannel channel) {
+      super(channel);
+    }
+
+    @Override
+    public void write(final ByteBuffer buffer) throws IOException {
+      QueuedWriteConnection.this.write(buffer);
+    }
+
+    @Override
+    public void close() {
+      QueuedWriteConnection.this.close();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates connections whose writes do not block the submitting threads on a slow SMSC, up to 256KB of pending bytes per
+ * bind. Bytes the socket does not take at once are written by a small number of flush threads shared by all binds.
+ * <p>
+ * This is not an event loop backend: jSMPP 2.3.11 still runs a reader thread, an enquire link thread and a PDU
+ * processor pool per session, so the number of threads still grows with the number of binds. TLS is not supported.
+ * <p>
+ * The factory owns the flush threads, close it after the pools using it.
+ */
+@Slf4j
+public class QueuedWriteConnectionFactory implements ConnectionFactory, Closeable {
+
+  private static final AtomicInteger FACTORY_COUNT = new AtomicInteger();
+
+  private final WriteFlushLoop[] flushLoops;
+  private final AtomicInteger next = new AtomicInteger();
+  private final int connectTimeout;
+
+  public QueuedWriteConnectionFactory() throws IOException {
+    this(1, 0);
+  }
+
+  /**
+   * @param flushLoops     the number of flush threads
+   * @param connectTimeout the connect timeout in milliseconds, 0 to wait for the operating system to give up
+   */
+  public QueuedWriteConnectionFactory(final int flushLoops, final int connectTimeout) throws IOException {
+    if (flushLoops < 1) {
+      throw new IllegalArgumentException("The flushLoops parameter must be >= 1");
+    }
+    final int factoryId = FACTORY_COUNT.incrementAndGet();
+    this.flushLoops = new WriteFlushLoop[flushLoops];
+    for (int i = 0; i < flushLoops; i++) {
+      this.flushLoops[i] = new WriteFlushLoop("smpp-queued-write-" + factoryId + "-" + i);
+    }
+    this.connectTimeout = connectTimeout;
+  }
+
+  @Override
+  public Connection createConnection(final String host, final int port) throws IOException {
+    final SocketChannel channel = SocketChannel.open();
+    try {
+      channel.socket().setTcpNoDelay(true);
+      channel.socket().connect(new InetSocketAddress(host, port), connectTimeout);
+      channel.configureBlocking(false);
+      return new QueuedWriteConnection(channel, nextFlushLoop());
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private WriteFlushLoop nextFlushLoop() {
+    return flushLoops[Math.floorMod(next.getAndIncrement(), flushLoops.length)];
+  }
+
+  public int getNumFlushLoops() {
+    return flushLoops.length;
+  }
+
+  /**
+   * @return the number of open connections
+   */
+  public int getNumConnections() {
+    int connections = 0;
+    for (final WriteFlushLoop flushLoop : flushLoops) {
+      connections += flushLoop.getNumConnections();
+    }
+    return connections;
+  }
+
+  @Override
+  public void close() {
+    log.debug("Closing {} flush loops", flushLoops.length);
+    for (final WriteFlushLoop flushLoop : flushLoops) {
+      flushLoop.close();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * {@link Throttle} backed by a Guava {@link RateLimiter}, the original implementation of the throttled sessions.
+ */
+public class RateLimiterThrottle implements Throttle {
+
+  private final RateLimiter rateLimiter;
+
+  public RateLimiterThrottle(final double permitsPerSecond) {
+    this(RateLimiter.create(permitsPerSecond));
+  }
+
+  public RateLimiterThrottle(final RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  public RateLimiter getRateLimiter() {
+    return rateLimiter;
+  }
+
+  @Override
+  public double getRate() {
+    return rateLimiter.getRate();
+  }
+
+  @Override
+  public void setRate(final double permitsPerSecond) {
+    rateLimiter.setRate(permitsPerSecond);
+  }
+
+  @Override
+  public double acquire(final int permits) {
+    return rateLimiter.acquire(permits);
+  }
+
+  @Override
+  public long tryAcquire(final int permits) {
+    if (rateLimiter.tryAcquire(permits)) {
+      return 0;
+    }
+    // The RateLimiter does not expose its next free time, estimate it from the rate
+    return Math.max(1L, (long) (permits * TimeUnit.SECONDS.toNanos(1) / rateLimiter.getRate()));
+  }
+
+  @Override
+  public boolean tryAcquire(final int permits, final long timeout, final TimeUnit timeUnit) {
+    return rateLimiter.tryAcquire(permits, timeout, timeUnit);
+  }
+
+  @Override
+  public CompletableFuture<Void> acquireAsync(final int permits) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    retry(future, permits);
+    return future;
+  }
+
+  private void retry(final CompletableFuture<Void> future, final int permits) {
+    final long waitNanos = tryAcquire(permits);
+    if (waitNanos == 0) {
+      future.complete(null);
+    } else {
+      ThrottleScheduler.schedule(() -> retry(future, permits), waitNanos);
+    }
+  }
+}
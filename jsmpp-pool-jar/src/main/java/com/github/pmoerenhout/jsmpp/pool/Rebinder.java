@@ -0,0 +1,79 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The single thread of a pool that binds while its {@link BindCircuitBreaker} is open, and refills the pool to
+ * {@code minIdle} once a bind succeeds again.
+ */
+@Slf4j
+class Rebinder implements BindCircuitBreaker.Listener, AutoCloseable {
+
+  private final String poolId;
+  private final GenericObjectPool<?> pool;
+  private final BindCircuitBreaker breaker;
+  private final ScheduledExecutorService executor;
+
+  Rebinder(final String poolId, final GenericObjectPool<?> pool, final BindCircuitBreaker breaker) {
+    this.poolId = poolId;
+    this.pool = pool;
+    this.breaker = breaker;
+    this.executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("smpp-rebind-" + poolId).setDaemon(true).build());
+    breaker.setListener(this);
+  }
+
+  @Override
+  public void onOpen(final long backoffNanos) {
+    try {
+      executor.schedule(this::rebind, backoffNanos, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      log.debug("Pool {} is closed, no rebind", poolId);
+    }
+  }
+
+  @Override
+  public void onClose() {
+    try {
+      executor.execute(this::refill);
+    } catch (RejectedExecutionException e) {
+      log.debug("Pool {} is closed, no refill", poolId);
+    }
+  }
+
+  private void rebind() {
+    if (!breaker.halfOpen()) {
+      return;
+    }
+    log.debug("Pool {} tries to bind", poolId);
+    try {
+      // A failed bind opens the breaker again and schedules the next attempt
+      pool.addObject();
+    } catch (Exception e) {
+      log.debug("Pool {} rebind failed: {}", poolId, e.getMessage());
+    }
+  }
+
+  private void refill() {
+    try {
+      pool.preparePool();
+      log.info("Pool {} refilled to {} idle sessions", poolId, pool.getNumIdle());
+    } catch (Exception e) {
+      log.warn("Pool {} could not refill: {}", poolId, e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    breaker.setListener(null);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link LatencyHistogram} of the recent latencies only. Values are recorded in the current window, which becomes the
+ * previous window when it is full; percentiles cover both, so between one and two windows of history. The two
+ * histograms are allocated once and swap places, the expired one is reset to become the current window.
+ */
+public class RollingLatencyHistogram {
+
+  private final long windowNanos;
+  private final AtomicLong windowStartNanos = new AtomicLong(System.nanoTime());
+  private volatile LatencyHistogram current = new LatencyHistogram();
+  private volatile LatencyHistogram previous = new LatencyHistogram();
+
+  public RollingLatencyHistogram(final Duration window) {
+    if (window.isNegative() || window.isZero()) {
+      throw new IllegalArgumentException("The window parameter must be > 0");
+    }
+    this.windowNanos = window.toNanos();
+  }
+
+  public void record(final long nanos) {
+    rotate();
+    current.record(nanos);
+  }
+
+  public long getCount() {
+    rotate();
+    return previous.getCount() + current.getCount();
+  }
+
+  public long getValueAtPercentile(final double percentile) {
+    rotate();
+    return LatencyHistogram.getValueAtPercentile(percentile, previous, current);
+  }
+
+  private void rotate() {
+    final long now = System.nanoTime();
+    final long start = windowStartNanos.get();
+    final long elapsed = now - start;
+    if (elapsed >= windowNanos && windowStartNanos.compareAndSet(start, now)) {
+      // Nothing records in the previous window, clear it before it becomes the current one
+      final LatencyHistogram expired = previous;
+      expired.reset();
+      if (elapsed >= 2 * windowNanos) {
+        current.reset();
+      }
+      previous = current;
+      current = expired;
+    }
+  }
+}
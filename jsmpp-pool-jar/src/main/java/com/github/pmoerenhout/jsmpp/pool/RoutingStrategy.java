@@ -0,0 +1,14 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+public enum RoutingStrategy {
+  /**
+   * Spread the messages by the configured weight of each route
+   */
+  WEIGHTED,
+  /**
+   * Spread the messages by the current rate of each pool times the weight, so a pool that is throttled down by its
+   * {@link AdaptiveRateController} gets less traffic. Every pool needs a message rate or an account rate, the router
+   * rejects routes on an unthrottled pool.
+   */
+  RATE_BUDGET
+}
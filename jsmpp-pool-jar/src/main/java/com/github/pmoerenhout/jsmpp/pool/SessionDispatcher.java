@@ -0,0 +1,271 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.pool2.ObjectPool;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps up to {@code maxTotal} bound sessions borrowed from the pool for its whole lifetime and hands one out per
+ * request without a borrow/return cycle. Sessions are shared by all callers, the send window of each
+ * {@link ThrottledSMPPSession} bounds the concurrency per bind. Empty slots are refilled on the refill executor, never
+ * on the thread asking for a session.
+ */
+@Slf4j
+public class SessionDispatcher<T extends ThrottledSMPPSession> implements AutoCloseable {
+
+  private final ObjectPool<T> pool;
+  private final DispatchStrategy strategy;
+  private final Executor refillExecutor;
+  private final AtomicReferenceArray<T> sessions;
+  private final AtomicIntegerArray refilling;
+  private final AtomicInteger counter = new AtomicInteger();
+  private volatile boolean closed;
+
+  public SessionDispatcher(final ObjectPool<T> pool, final int size, final DispatchStrategy strategy,
+                           final Executor refillExecutor) {
+    if (size < 1) {
+      throw new IllegalArgumentException("The size parameter must be >= 1");
+    }
+    this.pool = pool;
+    this.strategy = strategy;
+    this.refillExecutor = refillExecutor;
+    this.sessions = new AtomicReferenceArray<>(size);
+    this.refilling = new AtomicIntegerArray(size);
+  }
+
+  /**
+   * Fill all slots on the refill executor. Until the first session is bound {@link #next()} fails with a
+   * {@link NoSuchElementException}.
+   */
+  public void start() {
+    for (int i = 0; i < sessions.length(); i++) {
+      refillAsync(i);
+    }
+  }
+
+  public T next() throws Exception {
+    final T session;
+    switch (strategy) {
+      case ROUND_ROBIN:
+        session = nextRoundRobin();
+        break;
+      case LEAST_LOADED:
+        session = nextLeastLoaded();
+        break;
+      default:
+        session = nextLeastOutstanding();
+    }
+    if (session != null) {
+      return session;
+    }
+    if (closed) {
+      throw new IllegalStateException("Dispatcher is closed");
+    }
+    for (int i = 0; i < sessions.length(); i++) {
+      refillAsync(i);
+    }
+    throw new NoSuchElementException("No bound session available");
+  }
+
+  private T nextRoundRobin() {
+    final int length = sessions.length();
+    final int start = counter.getAndIncrement() & Integer.MAX_VALUE;
+    for (int i = 0; i < length; i++) {
+      final T session = bound((start + i) % length);
+      if (session != null) {
+        return session;
+      }
+    }
+    return null;
+  }
+
+  private T nextLeastOutstanding() {
+    final int length = sessions.length();
+    final int start = ThreadLocalRandom.current().nextInt(length);
+    T best = null;
+    int bestOutstanding = Integer.MAX_VALUE;
+    for (int i = 0; i < length; i++) {
+      final T session = bound((start + i) % length);
+      if (session != null) {
+        final int outstanding = session.getOutstandingRequests();
+        if (outstanding < bestOutstanding) {
+          best = session;
+          bestOutstanding = outstanding;
+          if (outstanding == 0) {
+            break;
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  private T nextLeastLoaded() {
+    final int length = sessions.length();
+    final int start = ThreadLocalRandom.current().nextInt(length);
+    T best = null;
+    long bestLatency = Long.MAX_VALUE;
+    int bestOutstanding = Integer.MAX_VALUE;
+    for (int i = 0; i < length; i++) {
+      final T session = bound((start + i) % length);
+      if (session != null) {
+        final int outstanding = session.getOutstandingRequests();
+        final long latency = expectedLatencyNanos(session, outstanding);
+        if (latency < bestLatency || (latency == bestLatency && outstanding < bestOutstanding)) {
+          best = session;
+          bestLatency = latency;
+          bestOutstanding = outstanding;
+        }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * The wait for the rate permits plus the response time, stretched by the share of the send window already in use: a
+   * full window adds about one more response time before a slot frees up.
+   */
+  private static long expectedLatencyNanos(final ThrottledSMPPSession session, final int outstanding) {
+    final long responseTimeNanos = session.getSmoothedResponseTimeNanos();
+    return session.getExpectedPermitWaitNanos()
+        + responseTimeNanos + responseTimeNanos * outstanding / session.getMaxConcurrentRequests();
+  }
+
+  private T bound(final int index) {
+    final T session = sessions.get(index);
+    if (session == null) {
+      return null;
+    }
+    if (session.getSessionState().isBound() && !session.isEjected()) {
+      return session;
+    }
+    if (sessions.compareAndSet(index, session, null)) {
+      log.debug("Session {} in slot {} is {}{}, invalidate", session.getSessionId(), index, session.getSessionState(),
+          session.isEjected() ? " and ejected" : "");
+      try {
+        refillExecutor.execute(() -> {
+          invalidateObject(session);
+          refill(index);
+        });
+      } catch (RejectedExecutionException e) {
+        // The executor is shut down, the pool is closing and the slot is not refilled
+        invalidateObject(session);
+      }
+    }
+    return null;
+  }
+
+  private void refillAsync(final int index) {
+    if (closed || sessions.get(index) != null || !refilling.compareAndSet(index, 0, 1)) {
+      return;
+    }
+    try {
+      refillExecutor.execute(() -> fill(index));
+    } catch (RejectedExecutionException e) {
+      refilling.set(index, 0);
+    }
+  }
+
+  private void refill(final int index) {
+    if (closed || sessions.get(index) != null || !refilling.compareAndSet(index, 0, 1)) {
+      return;
+    }
+    fill(index);
+  }
+
+  /**
+   * Borrow a session for the slot, the caller holds the refilling flag of the slot.
+   */
+  private void fill(final int index) {
+    try {
+      if (closed || sessions.get(index) != null) {
+        return;
+      }
+      final T session;
+      try {
+        session = pool.borrowObject();
+      } catch (Exception e) {
+        log.warn("Could not fill slot {}: {}", index, e.getMessage());
+        return;
+      }
+      sessions.set(index, session);
+      // A close that ran during the borrow did not see this session, hand it back here
+      if (closed && sessions.compareAndSet(index, session, null)) {
+        returnObject(session);
+        return;
+      }
+      log.debug("Session {} dispatched in slot {}", session.getSessionId(), index);
+    } finally {
+      refilling.set(index, 0);
+    }
+  }
+
+  private void invalidateObject(final T session) {
+    try {
+      pool.invalidateObject(session);
+    } catch (Exception e) {
+      log.warn("Could not invalidate session {}: {}", session.getSessionId(), e.getMessage());
+    }
+  }
+
+  private void returnObject(final T session) {
+    try {
+      pool.returnObject(session);
+    } catch (Exception e) {
+      log.warn("Could not return session {}: {}", session.getSessionId(), e.getMessage());
+    }
+  }
+
+  public int size() {
+    return sessions.length();
+  }
+
+  /**
+   * All bound sessions, or the failure of {@link #next()} when none is bound.
+   */
+  public List<T> getBoundSessions() throws Exception {
+    final List<T> bound = new ArrayList<>(sessions.length());
+    for (int i = 0; i < sessions.length(); i++) {
+      final T session = bound(i);
+      if (session != null) {
+        bound.add(session);
+      }
+    }
+    if (bound.isEmpty()) {
+      bound.add(next());
+    }
+    return bound;
+  }
+
+  public int getNumBound() {
+    int bound = 0;
+    for (int i = 0; i < sessions.length(); i++) {
+      final T session = sessions.get(i);
+      if (session != null && session.getSessionState().isBound() && !session.isEjected()) {
+        bound++;
+      }
+    }
+    return bound;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (int i = 0; i < sessions.length(); i++) {
+      final T session = sessions.getAndSet(i, null);
+      if (session != null) {
+        returnObject(session);
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import org.jsmpp.session.SMPPSession;
+
+/**
+ * Liveness check of a pooled session from its state and last activity only, without sending anything. A bound session
+ * sends an enquire_link after {@code enquireLinkTimer} ms without activity and closes itself when the response does
+ * not arrive within {@code transactionTimer} ms, so a session that has been silent much longer than that has lost its
+ * enquire_link cycle and is not trusted anymore.
+ */
+final class SessionLiveness {
+
+  static final long DEFAULT_MAX_INACTIVITY_MILLIS = 60000;
+
+  private SessionLiveness() {
+  }
+
+  /**
+   * @return twice the enquire link timer plus the transaction timer, or the default when enquire links are disabled
+   */
+  static long maxInactivityMillis(final int enquireLinkTimer, final long transactionTimer) {
+    if (enquireLinkTimer <= 0) {
+      return DEFAULT_MAX_INACTIVITY_MILLIS;
+    }
+    return 2L * enquireLinkTimer + Math.max(0, transactionTimer);
+  }
+
+  static boolean isAlive(final SMPPSession session, final long maxInactivityMillis, final long nowMillis) {
+    return session.getSessionState().isBound()
+        && (maxInactivityMillis <= 0 || nowMillis - session.getLastActivityTimestamp() <= maxInactivityMillis);
+  }
+}
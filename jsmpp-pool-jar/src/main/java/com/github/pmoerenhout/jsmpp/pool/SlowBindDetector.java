@@ -0,0 +1,192 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ejects the binds whose submit_sm_resp times fall behind, long before their submits hit the transaction timer. In
+ * every interval a bind is ejected when the percentile of its {@link ThrottledSMPPSession#getResponseTimes() recent
+ * response times} is a multiple of the median of the other binds, when it exceeds the maximum response time, or when
+ * its submits have waited that long without any response. An ejected bind is skipped by the dispatcher and fails
+ * validation, so the pool replaces it with a new bind that takes its place in the rotation. At most half of the binds
+ * are ejected at a time, so a slow SMSC does not make the pool rebind all of them.
+ */
+@Slf4j
+public class SlowBindDetector implements SubmitResponseListener, AutoCloseable {
+
+  private final Set<ThrottledSMPPSession> sessions = ConcurrentHashMap.newKeySet();
+  private long intervalMillis = 1000;
+  private double percentile = 90;
+  private int minSamples = 20;
+  private double outlierFactor = 3;
+  private long minResponseTimeMillis = 100;
+  private long maxResponseTimeMillis;
+  private double maxEjectedRatio = 0.5;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * @param transactionTimer the transaction timer of the binds, half of it is the maximum response time
+   */
+  public SlowBindDetector(final long transactionTimer) {
+    this.maxResponseTimeMillis = Math.max(1, transactionTimer / 2);
+  }
+
+  public void setIntervalMillis(final long intervalMillis) {
+    this.intervalMillis = intervalMillis;
+  }
+
+  public void setPercentile(final double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("The percentile parameter must be between 0 and 100");
+    }
+    this.percentile = percentile;
+  }
+
+  /**
+   * @param minSamples the responses a bind needs in its window to be compared to the others
+   */
+  public void setMinSamples(final int minSamples) {
+    this.minSamples = minSamples;
+  }
+
+  public void setOutlierFactor(final double outlierFactor) {
+    if (outlierFactor <= 1) {
+      throw new IllegalArgumentException("The outlierFactor parameter must be > 1");
+    }
+    this.outlierFactor = outlierFactor;
+  }
+
+  /**
+   * @param minResponseTimeMillis a bind faster than this is never an outlier
+   */
+  public void setMinResponseTimeMillis(final long minResponseTimeMillis) {
+    this.minResponseTimeMillis = minResponseTimeMillis;
+  }
+
+  public void setMaxResponseTimeMillis(final long maxResponseTimeMillis) {
+    this.maxResponseTimeMillis = maxResponseTimeMillis;
+  }
+
+  public void setMaxEjectedRatio(final double maxEjectedRatio) {
+    if (maxEjectedRatio <= 0 || maxEjectedRatio > 1) {
+      throw new IllegalArgumentException("The maxEjectedRatio parameter must be between 0 and 1");
+    }
+    this.maxEjectedRatio = maxEjectedRatio;
+  }
+
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("smpp-slow-bind-%d").setDaemon(true).build());
+      scheduler.scheduleWithFixedDelay(this::detect, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      scheduler = null;
+    }
+  }
+
+  @Override
+  public void onSubmitResponse(final ThrottledSMPPSession session, final int commandStatus, final long responseTimeNanos) {
+    if (!sessions.contains(session)) {
+      sessions.add(session);
+    }
+  }
+
+  @Override
+  public void onSubmitFailure(final ThrottledSMPPSession session, final Exception cause) {
+    if (!sessions.contains(session)) {
+      sessions.add(session);
+    }
+  }
+
+  void detect() {
+    try {
+      final List<Candidate> measured = new ArrayList<>();
+      final List<Candidate> slow = new ArrayList<>();
+      int bound = 0;
+      int ejected = 0;
+      for (final ThrottledSMPPSession session : sessions) {
+        if (!session.getSessionState().isBound()) {
+          sessions.remove(session);
+          continue;
+        }
+        bound++;
+        if (session.isEjected()) {
+          ejected++;
+          continue;
+        }
+        final long stalledMillis = TimeUnit.NANOSECONDS.toMillis(session.getStalledNanos());
+        final RollingLatencyHistogram responseTimes = session.getResponseTimes();
+        final long responseTimeMillis = responseTimes.getCount() >= minSamples
+            ? TimeUnit.NANOSECONDS.toMillis(responseTimes.getValueAtPercentile(percentile))
+            : 0;
+        final Candidate candidate = new Candidate(session, Math.max(stalledMillis, responseTimeMillis));
+        if (candidate.millis >= maxResponseTimeMillis) {
+          slow.add(candidate);
+        } else if (responseTimeMillis > 0) {
+          measured.add(candidate);
+        }
+      }
+      if (measured.size() >= 3) {
+        measured.sort(Comparator.comparingLong(c -> c.millis));
+        final long median = measured.get(measured.size() / 2).millis;
+        final long threshold = Math.max(minResponseTimeMillis, (long) (median * outlierFactor));
+        for (final Candidate candidate : measured) {
+          if (candidate.millis >= threshold) {
+            slow.add(candidate);
+          }
+        }
+      }
+      slow.sort(Collections.reverseOrder(Comparator.comparingLong(c -> c.millis)));
+      final int maxEjected = Math.max(1, (int) (bound * maxEjectedRatio));
+      for (final Candidate candidate : slow) {
+        if (ejected >= maxEjected) {
+          log.debug("Session {} is slow ({}ms) but {} of {} binds are already ejected",
+              candidate.session.getSessionId(), candidate.millis, ejected, bound);
+          break;
+        }
+        eject(candidate);
+        ejected++;
+      }
+    } catch (RuntimeException e) {
+      log.warn("Slow bind detection failed", e);
+    }
+  }
+
+  private void eject(final Candidate candidate) {
+    final ThrottledSMPPSession session = candidate.session;
+    log.warn("Session {} ejected, p{} response time or stall of {}ms", session.getSessionId(), (int) percentile,
+        candidate.millis);
+    session.eject();
+    final PoolMetrics metrics = session.getMetrics();
+    if (metrics != null) {
+      metrics.recordEjection();
+    }
+  }
+
+  private static final class Candidate {
+
+    private final ThrottledSMPPSession session;
+    private final long millis;
+
+    private Candidate(final ThrottledSMPPSession session, final long millis) {
+      this.session = session;
+      this.millis = millis;
+    }
+  }
+}
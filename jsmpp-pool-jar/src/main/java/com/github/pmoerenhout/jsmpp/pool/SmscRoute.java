@@ -0,0 +1,123 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A pool of an SMSC account as a route of the {@link SmscRouter}. After {@code failureThreshold} consecutive failures
+ * the route is taken out of rotation for a backoff that doubles on every further failure, then it gets traffic again
+ * and the first success restores it.
+ */
+@Slf4j
+public class SmscRoute {
+
+  private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final String name;
+  private final PooledSMPPSession<? extends ThrottledSMPPSession> pool;
+  private final double weight;
+  private final String[] destinationPrefixes;
+  private final int failureThreshold;
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+  private volatile long downUntilNanos;
+  private volatile boolean down;
+
+  public SmscRoute(final String name, final PooledSMPPSession<? extends ThrottledSMPPSession> pool, final double weight,
+                   final int failureThreshold, final String... destinationPrefixes) {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("The weight parameter must be > 0");
+    }
+    if (failureThreshold < 1) {
+      throw new IllegalArgumentException("The failureThreshold parameter must be >= 1");
+    }
+    this.name = name;
+    this.pool = pool;
+    this.weight = weight;
+    this.failureThreshold = failureThreshold;
+    this.destinationPrefixes = destinationPrefixes.clone();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public PooledSMPPSession<? extends ThrottledSMPPSession> getPool() {
+    return pool;
+  }
+
+  public double getWeight() {
+    return weight;
+  }
+
+  public String[] getDestinationPrefixes() {
+    return destinationPrefixes.clone();
+  }
+
+  /**
+   * @return the length of the longest matching prefix, 0 when the route has no prefixes, or -1 when no prefix matches
+   */
+  int matchLength(final String destinationAddr) {
+    if (destinationPrefixes.length == 0) {
+      return 0;
+    }
+    int longest = -1;
+    if (destinationAddr != null) {
+      for (final String prefix : destinationPrefixes) {
+        if (prefix.length() > longest && destinationAddr.startsWith(prefix)) {
+          longest = prefix.length();
+        }
+      }
+    }
+    return longest;
+  }
+
+  /**
+   * @return the weight, times the current rate of the pool for {@link RoutingStrategy#RATE_BUDGET}, so a pool without
+   * a bound bind or with all permits of the next second reserved weighs 0
+   */
+  double getWeight(final RoutingStrategy strategy) {
+    if (strategy == RoutingStrategy.RATE_BUDGET) {
+      return pool.getCurrentRate() * weight;
+    }
+    return weight;
+  }
+
+  public boolean isAvailable() {
+    return !down || System.nanoTime() - downUntilNanos >= 0;
+  }
+
+  public boolean isDown() {
+    return down;
+  }
+
+  void recordSuccess() {
+    if (consecutiveFailures.get() != 0) {
+      consecutiveFailures.set(0);
+    }
+    if (down) {
+      down = false;
+      log.info("Route {} is up", name);
+    }
+  }
+
+  void recordFailure(final Throwable cause) {
+    final int failures = consecutiveFailures.incrementAndGet();
+    if (failures >= failureThreshold) {
+      final int shift = Math.min(failures - failureThreshold, 5);
+      final long backoffNanos = Math.min(MAX_BACKOFF_NANOS, MIN_BACKOFF_NANOS << shift);
+      downUntilNanos = System.nanoTime() + backoffNanos;
+      if (!down) {
+        log.warn("Route {} is down after {} failures: {}", name, failures, cause.toString());
+      }
+      down = true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
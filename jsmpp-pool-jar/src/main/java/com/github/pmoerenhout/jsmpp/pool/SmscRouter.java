@@ -0,0 +1,240 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.util.MessageId;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routes the messages over the pools of several SMSC accounts. The routes with the longest destination prefix that
+ * matches the destination address are the candidates, routes without prefixes match every destination. One of the
+ * candidates is picked at random by its weight, see {@link RoutingStrategy}. Routes that fail are skipped until their
+ * backoff expires, when all candidates are down the routes with a shorter prefix match are used instead.
+ */
+@Slf4j
+public class SmscRouter implements AutoCloseable {
+
+  private final RoutingStrategy strategy;
+  private final List<SmscRoute> routes = new CopyOnWriteArrayList<>();
+
+  public SmscRouter(final RoutingStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  /**
+   * @throws IllegalArgumentException when the strategy is {@link RoutingStrategy#RATE_BUDGET} and the pool of the route
+   *                                  has neither a message rate nor an account rate, so it has no budget to weigh
+   */
+  public SmscRoute addRoute(final SmscRoute route) {
+    if (strategy == RoutingStrategy.RATE_BUDGET && !route.getPool().isThrottled()) {
+      throw new IllegalArgumentException("Route " + route.getName()
+          + " has no rate limit, the RATE_BUDGET strategy needs a pool with a message rate or an account rate");
+    }
+    routes.add(route);
+    log.info("Added route {} with weight {} for prefixes {}", route.getName(), route.getWeight(),
+        route.getDestinationPrefixes().length == 0 ? "*" : String.join(",", route.getDestinationPrefixes()));
+    return route;
+  }
+
+  public SmscRoute addRoute(final String name, final PooledSMPPSession<? extends ThrottledSMPPSession> pool,
+                            final double weight, final String... destinationPrefixes) {
+    return addRoute(new SmscRoute(name, pool, weight, 3, destinationPrefixes));
+  }
+
+  public void removeRoute(final SmscRoute route) {
+    routes.remove(route);
+  }
+
+  public List<SmscRoute> getRoutes() {
+    return Collections.unmodifiableList(routes);
+  }
+
+  /**
+   * Pick the route for a destination address.
+   *
+   * @throws NoSuchElementException when no route matches the destination
+   */
+  public SmscRoute route(final String destinationAddr) {
+    return route(destinationAddr, null);
+  }
+
+  private SmscRoute route(final String destinationAddr, final SmscRoute exclude) {
+    int bestMatch = -1;
+    int bestAvailableMatch = -1;
+    for (final SmscRoute route : routes) {
+      if (route == exclude) {
+        continue;
+      }
+      final int match = route.matchLength(destinationAddr);
+      bestMatch = Math.max(bestMatch, match);
+      if (match > bestAvailableMatch && route.isAvailable()) {
+        bestAvailableMatch = match;
+      }
+    }
+    if (bestMatch < 0) {
+      throw new NoSuchElementException("No route for destination " + destinationAddr);
+    }
+    // When every matching route is down, still try the best ones
+    final boolean onlyAvailable = bestAvailableMatch >= 0;
+    final int match = onlyAvailable ? bestAvailableMatch : bestMatch;
+    double total = 0;
+    for (final SmscRoute route : routes) {
+      if (isCandidate(route, destinationAddr, match, onlyAvailable, exclude)) {
+        total += route.getWeight(strategy);
+      }
+    }
+    // When no candidate has a rate budget left, spread evenly rather than always picking the last one
+    final boolean weighted = total > 0;
+    if (!weighted) {
+      for (final SmscRoute route : routes) {
+        if (isCandidate(route, destinationAddr, match, onlyAvailable, exclude)) {
+          total++;
+        }
+      }
+    }
+    double pick = ThreadLocalRandom.current().nextDouble() * total;
+    SmscRoute picked = null;
+    for (final SmscRoute route : routes) {
+      if (isCandidate(route, destinationAddr, match, onlyAvailable, exclude)) {
+        picked = route;
+        pick -= weighted ? route.getWeight(strategy) : 1;
+        if (pick < 0) {
+          break;
+        }
+      }
+    }
+    if (picked == null) {
+      throw new NoSuchElementException("No route for destination " + destinationAddr);
+    }
+    return picked;
+  }
+
+  private static boolean isCandidate(final SmscRoute route, final String destinationAddr, final int match,
+                                     final boolean onlyAvailable, final SmscRoute exclude) {
+    return route != exclude && route.matchLength(destinationAddr) == match && (!onlyAvailable || route.isAvailable());
+  }
+
+  /**
+   * Submit on a route picked for the destination. When no session can be obtained from the pool of that route, the
+   * message is sent on another route. A failure after the submit_sm was sent is not retried, the SMSC may have accepted
+   * the message.
+   */
+  public String submitShortMessage(final SubmitRequest request) throws Exception {
+    final SmscRoute route = route(request.getDestinationAddr());
+    try {
+      return submitShortMessage(route, request);
+    } catch (SessionUnavailableException e) {
+      final SmscRoute failover;
+      try {
+        failover = route(request.getDestinationAddr(), route);
+      } catch (NoSuchElementException noRoute) {
+        throw (Exception) e.getCause();
+      }
+      log.debug("Route {} unavailable, failover to {}", route, failover);
+      try {
+        return submitShortMessage(failover, request);
+      } catch (SessionUnavailableException failoverException) {
+        throw (Exception) failoverException.getCause();
+      }
+    }
+  }
+
+  private String submitShortMessage(final SmscRoute route, final SubmitRequest request)
+      throws SessionUnavailableException, PDUException, ResponseTimeoutException, InvalidResponseException,
+      NegativeResponseException, IOException, InterruptedException {
+    final PooledSMPPSession<? extends ThrottledSMPPSession> pool = route.getPool();
+    final ThrottledSMPPSession session;
+    try {
+      session = pool.isDispatcherEnabled() ? pool.nextSession() : pool.borrowObject();
+    } catch (Exception e) {
+      route.recordFailure(e);
+      throw new SessionUnavailableException(e);
+    }
+    try {
+      session.acquire();
+      try {
+        final String messageId = session.submitShortMessage(request);
+        route.recordSuccess();
+        return messageId;
+      } catch (NegativeResponseException e) {
+        route.recordSuccess();
+        throw e;
+      } catch (PDUException | ResponseTimeoutException | InvalidResponseException | IOException e) {
+        route.recordFailure(e);
+        throw e;
+      } finally {
+        session.release();
+      }
+    } finally {
+      if (!pool.isDispatcherEnabled()) {
+        returnObject(pool, session);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends ThrottledSMPPSession> void returnObject(final PooledSMPPSession<T> pool,
+                                                                    final ThrottledSMPPSession session) {
+    try {
+      pool.returnObject((T) session);
+    } catch (Exception e) {
+      log.debug("Could not return session {}", session.getSessionId(), e);
+    }
+  }
+
+  /**
+   * Submit on a route picked for the destination without waiting for the submit_sm_resp. The outcome feeds the health of
+   * the route, failures are not retried on another route.
+   */
+  public CompletableFuture<MessageId> submitAsync(final SubmitRequest request) {
+    final SmscRoute route;
+    try {
+      route = route(request.getDestinationAddr());
+    } catch (NoSuchElementException e) {
+      final CompletableFuture<MessageId> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    return route.getPool().submitAsync(request).whenComplete((messageId, throwable) -> {
+      final Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+      if (cause == null || cause instanceof NegativeResponseException) {
+        route.recordSuccess();
+      } else {
+        route.recordFailure(cause);
+      }
+    });
+  }
+
+  /**
+   * Close the pools of all routes.
+   */
+  @Override
+  public void close() {
+    for (final SmscRoute route : new ArrayList<>(routes)) {
+      route.getPool().close();
+    }
+    routes.clear();
+  }
+
+  private static final class SessionUnavailableException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private SessionUnavailableException(final Exception cause) {
+      super(cause);
+    }
+  }
+}
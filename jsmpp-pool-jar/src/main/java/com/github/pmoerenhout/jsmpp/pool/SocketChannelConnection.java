@@ -0,0 +1,91 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.util.StrictBufferedInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A connection over a {@link SocketChannel} in non-blocking mode, used with blocking stream semantics. Reads go through a
+ * {@link ChannelInputStream}, which honours the read timeout jSMPP relies on, and writes go to the channel through a
+ * {@link ChannelOutputStream}. Both wait on their own selector when the channel is not ready.
+ */
+@Slf4j
+public class SocketChannelConnection implements Connection {
+
+  private final SocketChannel channel;
+  private final Socket socket;
+  private final ChannelInputStream channelIn;
+  private final InputStream in;
+  private final ChannelOutputStream out;
+
+  public SocketChannelConnection(final SocketChannel channel) throws IOException {
+    this.channel = channel;
+    this.socket = channel.socket();
+    channel.configureBlocking(false);
+    this.channelIn = new ChannelInputStream(channel);
+    this.in = new StrictBufferedInputStream(channelIn, 65536);
+    this.out = new ChannelOutputStream(channel);
+  }
+
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return channel.isOpen() && !socket.isClosed();
+  }
+
+  @Override
+  public InetAddress getInetAddress() {
+    return socket.getInetAddress();
+  }
+
+  @Override
+  public InetAddress getLocalAddress() {
+    return socket.getLocalAddress();
+  }
+
+  @Override
+  public int getPort() {
+    return socket.getPort();
+  }
+
+  @Override
+  public int getLocalPort() {
+    return socket.getLocalPort();
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return in;
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return out;
+  }
+
+  @Override
+  public void setSoTimeout(final int timeout) {
+    channelIn.setSoTimeout(timeout);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channelIn.close();
+      out.close();
+    } catch (IOException e) {
+      log.warn("Closing the channel failed", e);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+
+/**
+ * Creates {@link SocketChannelConnection}s, so a {@link ByteBufferPDUSender} can write direct buffers to the socket.
+ */
+public class SocketChannelConnectionFactory implements ConnectionFactory {
+
+  private final int connectTimeout;
+
+  public SocketChannelConnectionFactory() {
+    this(0);
+  }
+
+  /**
+   * @param connectTimeout the connect timeout in milliseconds, 0 to wait for the operating system to give up
+   */
+  public SocketChannelConnectionFactory(final int connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  @Override
+  public Connection createConnection(final String host, final int port) throws IOException {
+    final SocketChannel channel = SocketChannel.open();
+    try {
+      channel.socket().setTcpNoDelay(true);
+      channel.socket().connect(new InetSocketAddress(host, port), connectTimeout);
+      return new SocketChannelConnection(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,408 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.util.MessageId;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable queue in front of a pool. {@link #enqueue(SubmitRequest)} appends the submit to a memory-mapped segment log
+ * and returns without waiting for a session, a window slot or a rate permit. A drain thread submits the queued
+ * messages on the pool as its sessions and throttles allow, and marks each record in the log when its submit_sm_resp
+ * arrives. The records still pending when the process stops are submitted again when the queue is opened on the same
+ * directory, so delivery is at least once.
+ * <p>
+ * The drain keeps at most the send windows of the pool in flight, the rest waits in the queue. A submit that fails on
+ * the connection or is answered with ESME_RTHROTTLED, ESME_RMSGQFUL or ESME_RSYSERR is retried in the order it was
+ * queued, and the drain pauses for the retry delay; other negative responses fail the message. A submit that times
+ * out is failed and not retried, as the SMSC may have accepted it: the caller decides whether to send it again. The
+ * log survives a crash of the process; set a force interval to also survive a crash of the host.
+ */
+@Slf4j
+public class SubmitQueue implements AutoCloseable {
+
+  private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private final PooledSMPPSession<?> pool;
+  private final Path directory;
+  private final int segmentSize;
+  private final int maxPending;
+  private final BlockingDeque<Entry> queue = new LinkedBlockingDeque<>();
+  private final BlockingQueue<Entry> retries = new PriorityBlockingQueue<>(11,
+      (a, b) -> Long.compare(a.sequence, b.sequence));
+  private final Semaphore inFlight;
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<Long, QueueSegment> segments = new ConcurrentHashMap<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final LongAdder enqueued = new LongAdder();
+  private final LongAdder acked = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder retried = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final int replayed;
+  private long nextSegmentId;
+  private QueueSegment active;
+  private boolean closed;
+  private long retryDelayMillis = 1000;
+  private long forceIntervalMillis;
+  private volatile long pausedUntilNanos = System.nanoTime();
+  private volatile boolean running;
+  private Thread drainer;
+  private ScheduledExecutorService forcer;
+
+  public SubmitQueue(final PooledSMPPSession<?> pool, final Path directory) throws IOException {
+    this(pool, directory, DEFAULT_SEGMENT_SIZE, 1_000_000);
+  }
+
+  /**
+   * Open the log in the directory and queue its pending records again.
+   *
+   * @param segmentSize the size of each memory-mapped segment file
+   * @param maxPending  the messages that can be queued or in flight, further messages are rejected
+   */
+  public SubmitQueue(final PooledSMPPSession<?> pool, final Path directory, final int segmentSize,
+                     final int maxPending) throws IOException {
+    this.pool = pool;
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maxPending = maxPending;
+    this.inFlight = new Semaphore(maxInFlight(pool, maxPending));
+    Files.createDirectories(directory);
+    this.replayed = replay();
+    this.active = openSegment();
+  }
+
+  private int replay() throws IOException {
+    final List<Path> paths;
+    try (Stream<Path> files = Files.list(directory)) {
+      paths = files.filter(path -> path.getFileName().toString().matches("\\d{20}\\.log"))
+          .sorted().collect(Collectors.toList());
+    }
+    int count = 0;
+    for (final Path path : paths) {
+      final QueueSegment segment = QueueSegment.open(directory, QueueSegment.parseId(path), segmentSize);
+      nextSegmentId = segment.getId() + 1;
+      final List<Entry> entries = new ArrayList<>();
+      segment.replay((payload, offset) -> {
+        try {
+          entries.add(new Entry(sequence.incrementAndGet(), segment, offset, SubmitRequestCodec.decode(payload),
+              new CompletableFuture<>()));
+        } catch (RuntimeException e) {
+          log.warn("Segment {} has an unreadable submit at offset {}: {}", path, offset, e.getMessage());
+          segment.complete(offset, QueueSegment.FAILED);
+        }
+      });
+      if (segment.seal()) {
+        segment.delete();
+        continue;
+      }
+      segments.put(segment.getId(), segment);
+      queue.addAll(entries);
+      pending.addAndGet(entries.size());
+      count += entries.size();
+    }
+    if (count > 0) {
+      log.info("Submit queue {} replays {} pending messages", directory, count);
+    }
+    return count;
+  }
+
+  /**
+   * The send windows of all sessions of the pool, or the pending limit when the pool has no maximum.
+   */
+  private static int maxInFlight(final PooledSMPPSession<?> pool, final int maxPending) {
+    final int maxTotal = pool.getMaxTotal();
+    return maxTotal > 0 ? maxTotal * pool.getFactory().getMaxConcurrentRequests() : maxPending;
+  }
+
+  private QueueSegment openSegment() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, nextSegmentId++, segmentSize);
+    segments.put(segment.getId(), segment);
+    return segment;
+  }
+
+  public void setRetryDelayMillis(final long retryDelayMillis) {
+    this.retryDelayMillis = retryDelayMillis;
+  }
+
+  /**
+   * @param forceIntervalMillis write the log to the disk at this interval, or 0 to leave it to the operating system.
+   *                            Must be set before the queue is started.
+   */
+  public void setForceIntervalMillis(final long forceIntervalMillis) {
+    this.forceIntervalMillis = forceIntervalMillis;
+  }
+
+  public synchronized void start() {
+    if (drainer != null) {
+      return;
+    }
+    running = true;
+    drainer = new ThreadFactoryBuilder().setNameFormat("smpp-queue-" + pool.getId()).setDaemon(true).build()
+        .newThread(this::drain);
+    drainer.start();
+    if (forceIntervalMillis > 0) {
+      forcer = Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("smpp-queue-force-" + pool.getId()).setDaemon(true).build());
+      forcer.scheduleWithFixedDelay(this::force, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Append the submit to the log and queue it.
+   *
+   * @return completes with the message id of the submit_sm_resp, or fails when the SMSC rejects the message or the
+   * queue is full
+   */
+  public CompletableFuture<MessageId> enqueue(final SubmitRequest request) {
+    final CompletableFuture<MessageId> future = new CompletableFuture<>();
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      future.completeExceptionally(new RejectedExecutionException("Submit queue is full"));
+      return future;
+    }
+    try {
+      final byte[][] optionalParameters = SubmitRequestCodec.serializeOptionalParameters(request);
+      queue.add(append(request, optionalParameters, SubmitRequestCodec.size(request, optionalParameters), future));
+      enqueued.increment();
+    } catch (IOException | RuntimeException e) {
+      pending.decrementAndGet();
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private synchronized Entry append(final SubmitRequest request, final byte[][] optionalParameters, final int length,
+                                    final CompletableFuture<MessageId> future) throws IOException {
+    if (closed) {
+      throw new IllegalStateException("Submit queue is closed");
+    }
+    if (QueueSegment.HEADER_SIZE + length > segmentSize) {
+      throw new IllegalArgumentException("Submit of " + length + " bytes does not fit in a segment");
+    }
+    int offset = active.append(length, out -> SubmitRequestCodec.encode(request, optionalParameters, out));
+    if (offset < 0) {
+      final QueueSegment full = active;
+      active = openSegment();
+      if (full.seal()) {
+        removeSegment(full);
+      }
+      offset = active.append(length, out -> SubmitRequestCodec.encode(request, optionalParameters, out));
+    }
+    return new Entry(sequence.incrementAndGet(), active, offset, request, future);
+  }
+
+  private void drain() {
+    while (running) {
+      try {
+        final long pauseNanos = pausedUntilNanos - System.nanoTime();
+        if (pauseNanos > 0) {
+          TimeUnit.NANOSECONDS.sleep(pauseNanos);
+          continue;
+        }
+        if (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+          continue;
+        }
+        Entry entry = retries.poll();
+        if (entry == null) {
+          entry = queue.poll(100, TimeUnit.MILLISECONDS);
+        }
+        if (entry == null) {
+          inFlight.release();
+          continue;
+        }
+        submit(entry);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private void submit(final Entry entry) {
+    pool.submitAsync(entry.request).whenComplete((messageId, e) -> {
+      inFlight.release();
+      if (e == null) {
+        complete(entry, QueueSegment.ACKED);
+        acked.increment();
+        entry.future.complete(messageId);
+        return;
+      }
+      final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+      if (cause instanceof ResponseTimeoutException) {
+        complete(entry, QueueSegment.FAILED);
+        failed.increment();
+        timedOut.increment();
+        log.debug("Submit to {} timed out and is not retried", entry.request.getDestinationAddr());
+        entry.future.completeExceptionally(cause);
+        return;
+      }
+      if (isPermanent(cause)) {
+        complete(entry, QueueSegment.FAILED);
+        failed.increment();
+        log.debug("Submit to {} failed: {}", entry.request.getDestinationAddr(), cause.getMessage());
+        entry.future.completeExceptionally(cause);
+        return;
+      }
+      if (!running) {
+        entry.future.completeExceptionally(new IllegalStateException("Submit queue is closed, the message stays in the log"));
+        return;
+      }
+      retried.increment();
+      pausedUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+      log.debug("Submit to {} is retried: {}", entry.request.getDestinationAddr(), cause.toString());
+      retries.add(entry);
+    });
+  }
+
+  private static boolean isPermanent(final Throwable cause) {
+    if (cause instanceof NegativeResponseException) {
+      final int commandStatus = ((NegativeResponseException) cause).getCommandStatus();
+      return commandStatus != SMPPConstant.STAT_ESME_RTHROTTLED && commandStatus != SMPPConstant.STAT_ESME_RMSGQFUL
+          && commandStatus != SMPPConstant.STAT_ESME_RSYSERR;
+    }
+    return cause instanceof PDUException || cause instanceof InvalidResponseException;
+  }
+
+  private void complete(final Entry entry, final byte status) {
+    pending.decrementAndGet();
+    if (entry.segment.complete(entry.offset, status)) {
+      removeSegment(entry.segment);
+    }
+  }
+
+  private void removeSegment(final QueueSegment segment) {
+    if (segments.remove(segment.getId()) != null) {
+      segment.delete();
+    }
+  }
+
+  private void force() {
+    for (final QueueSegment segment : segments.values()) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Stop draining and close the log. The queued messages stay pending in the log and their futures fail; they are
+   * submitted again when the queue is opened on the same directory, like the submits still in flight.
+   */
+  @Override
+  public void close() {
+    final Thread thread;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      running = false;
+      thread = drainer;
+      if (forcer != null) {
+        forcer.shutdown();
+      }
+    }
+    if (thread != null) {
+      thread.interrupt();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    Entry entry;
+    while ((entry = retries.poll()) != null || (entry = queue.poll()) != null) {
+      entry.future.completeExceptionally(new IllegalStateException("Submit queue is closed, the message stays in the log"));
+    }
+    for (final QueueSegment segment : segments.values()) {
+      segment.close();
+    }
+  }
+
+  /**
+   * The messages that are queued or in flight.
+   */
+  public int getSize() {
+    return pending.get();
+  }
+
+  public long getNumEnqueued() {
+    return enqueued.sum();
+  }
+
+  public long getNumAcked() {
+    return acked.sum();
+  }
+
+  public long getNumFailed() {
+    return failed.sum();
+  }
+
+  public long getNumRetried() {
+    return retried.sum();
+  }
+
+  /**
+   * The submits that failed on a response timeout, counted in the failed ones. The SMSC may have accepted them.
+   */
+  public long getNumTimedOut() {
+    return timedOut.sum();
+  }
+
+  /**
+   * The pending messages found in the log when the queue was opened.
+   */
+  public int getNumReplayed() {
+    return replayed;
+  }
+
+  public int getNumSegments() {
+    return segments.size();
+  }
+
+  private static final class Entry {
+
+    private final long sequence;
+    private final QueueSegment segment;
+    private final int offset;
+    private final SubmitRequest request;
+    private final CompletableFuture<MessageId> future;
+
+    private Entry(final long sequence, final QueueSegment segment, final int offset, final SubmitRequest request,
+                  final CompletableFuture<MessageId> future) {
+      this.sequence = sequence;
+      this.segment = segment;
+      this.offset = offset;
+      this.request = request;
+      this.future = future;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The parameters of a single submit_sm, as passed to {@link org.jsmpp.session.SMPPSession#submitShortMessage}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class SubmitRequest {
+
+  @Builder.Default
+  String serviceType = "CMT";
+  @Builder.Default
+  TypeOfNumber sourceAddrTon = TypeOfNumber.UNKNOWN;
+  @Builder.Default
+  NumberingPlanIndicator sourceAddrNpi = NumberingPlanIndicator.UNKNOWN;
+  String sourceAddr;
+  @Builder.Default
+  TypeOfNumber destAddrTon = TypeOfNumber.INTERNATIONAL;
+  @Builder.Default
+  NumberingPlanIndicator destAddrNpi = NumberingPlanIndicator.ISDN;
+  String destinationAddr;
+  @Builder.Default
+  ESMClass esmClass = new ESMClass();
+  byte protocolId;
+  byte priorityFlag;
+  String scheduleDeliveryTime;
+  String validityPeriod;
+  @Builder.Default
+  RegisteredDelivery registeredDelivery = new RegisteredDelivery();
+  byte replaceIfPresentFlag;
+  @Builder.Default
+  DataCoding dataCoding = new GeneralDataCoding();
+  byte smDefaultMsgId;
+  @Builder.Default
+  byte[] shortMessage = new byte[0];
+  @Builder.Default
+  OptionalParameter[] optionalParameters = new OptionalParameter[0];
+}
@@ -0,0 +1,135 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.jsmpp.bean.DataCodings;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.OptionalParameters;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.TypeOfNumber;
+
+/**
+ * The binary form of a {@link SubmitRequest} in the {@link SubmitQueue} log. The C-octet strings are written with a
+ * length, -1 for null, and the optional parameters as their tag, length and value.
+ */
+final class SubmitRequestCodec {
+
+  private static final byte VERSION = 1;
+  private static final byte[][] NO_PARAMETERS = new byte[0][];
+
+  private SubmitRequestCodec() {
+  }
+
+  static byte[][] serializeOptionalParameters(final SubmitRequest request) {
+    final OptionalParameter[] optionalParameters = request.getOptionalParameters();
+    if (optionalParameters == null || optionalParameters.length == 0) {
+      return NO_PARAMETERS;
+    }
+    final byte[][] serialized = new byte[optionalParameters.length][];
+    for (int i = 0; i < optionalParameters.length; i++) {
+      serialized[i] = optionalParameters[i].serialize();
+    }
+    return serialized;
+  }
+
+  static int size(final SubmitRequest request, final byte[][] optionalParameters) {
+    int size = 1 + 11 + 4 + 2;
+    size += size(request.getServiceType()) + size(request.getSourceAddr()) + size(request.getDestinationAddr())
+        + size(request.getScheduleDeliveryTime()) + size(request.getValidityPeriod());
+    size += request.getShortMessage() != null ? request.getShortMessage().length : 0;
+    for (final byte[] optionalParameter : optionalParameters) {
+      size += optionalParameter.length;
+    }
+    return size;
+  }
+
+  private static int size(final String value) {
+    return 2 + (value != null ? value.length() : 0);
+  }
+
+  static void encode(final SubmitRequest request, final byte[][] optionalParameters, final ByteBuffer out) {
+    out.put(VERSION);
+    put(out, request.getServiceType());
+    out.put(request.getSourceAddrTon().value());
+    out.put(request.getSourceAddrNpi().value());
+    put(out, request.getSourceAddr());
+    out.put(request.getDestAddrTon().value());
+    out.put(request.getDestAddrNpi().value());
+    put(out, request.getDestinationAddr());
+    out.put(request.getEsmClass().value());
+    out.put(request.getProtocolId());
+    out.put(request.getPriorityFlag());
+    put(out, request.getScheduleDeliveryTime());
+    put(out, request.getValidityPeriod());
+    out.put(request.getRegisteredDelivery().value());
+    out.put(request.getReplaceIfPresentFlag());
+    out.put(request.getDataCoding().toByte());
+    out.put(request.getSmDefaultMsgId());
+    final byte[] shortMessage = request.getShortMessage() != null ? request.getShortMessage() : new byte[0];
+    out.putInt(shortMessage.length);
+    out.put(shortMessage);
+    out.putShort((short) optionalParameters.length);
+    for (final byte[] optionalParameter : optionalParameters) {
+      out.put(optionalParameter);
+    }
+  }
+
+  static SubmitRequest decode(final ByteBuffer in) {
+    final byte version = in.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unknown submit request version " + version);
+    }
+    final SubmitRequest.SubmitRequestBuilder builder = SubmitRequest.builder()
+        .serviceType(getString(in))
+        .sourceAddrTon(TypeOfNumber.valueOf(in.get()))
+        .sourceAddrNpi(NumberingPlanIndicator.valueOf(in.get()))
+        .sourceAddr(getString(in))
+        .destAddrTon(TypeOfNumber.valueOf(in.get()))
+        .destAddrNpi(NumberingPlanIndicator.valueOf(in.get()))
+        .destinationAddr(getString(in))
+        .esmClass(new ESMClass(in.get()))
+        .protocolId(in.get())
+        .priorityFlag(in.get())
+        .scheduleDeliveryTime(getString(in))
+        .validityPeriod(getString(in))
+        .registeredDelivery(new RegisteredDelivery(in.get()))
+        .replaceIfPresentFlag(in.get())
+        .dataCoding(DataCodings.newInstance(in.get()))
+        .smDefaultMsgId(in.get());
+    final byte[] shortMessage = new byte[in.getInt()];
+    in.get(shortMessage);
+    builder.shortMessage(shortMessage);
+    final OptionalParameter[] optionalParameters = new OptionalParameter[in.getShort()];
+    for (int i = 0; i < optionalParameters.length; i++) {
+      final short tag = in.getShort();
+      final byte[] value = new byte[in.getShort() & 0xffff];
+      in.get(value);
+      optionalParameters[i] = OptionalParameters.deserialize(tag, value);
+    }
+    return builder.optionalParameters(optionalParameters).build();
+  }
+
+  private static void put(final ByteBuffer out, final String value) {
+    if (value == null) {
+      out.putShort((short) -1);
+      return;
+    }
+    out.putShort((short) value.length());
+    for (int i = 0; i < value.length(); i++) {
+      out.put((byte) value.charAt(i));
+    }
+  }
+
+  private static String getString(final ByteBuffer in) {
+    final short length = in.getShort();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] value = new byte[length];
+    in.get(value);
+    return new String(value, StandardCharsets.ISO_8859_1);
+  }
+}
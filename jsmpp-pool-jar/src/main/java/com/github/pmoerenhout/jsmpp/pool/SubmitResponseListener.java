@@ -0,0 +1,23 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+/**
+ * Notified of the outcome of every submit_sm sent on a {@link ThrottledSMPPSession}. Called on the submitting thread,
+ * or for an asynchronous submit on the thread that reads its response or times it out, so implementations must be
+ * cheap and must not block.
+ */
+public interface SubmitResponseListener {
+
+  /**
+   * A submit_sm_resp was received.
+   *
+   * @param commandStatus     the command_status of the response, 0 (ESME_ROK) on success
+   * @param responseTimeNanos the time between sending the submit_sm and receiving the response
+   */
+  void onSubmitResponse(ThrottledSMPPSession session, int commandStatus, long responseTimeNanos);
+
+  /**
+   * No valid submit_sm_resp was received, for example on a response timeout or an I/O error.
+   */
+  default void onSubmitFailure(ThrottledSMPPSession session, Exception cause) {
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+/**
+ * Copy-on-write set of {@link SubmitResponseListener}s. One instance is shared by all sessions of a pool, so listeners
+ * added later also see the sessions that are already bound.
+ */
+public class SubmitResponseListeners implements SubmitResponseListener {
+
+  private volatile SubmitResponseListener[] listeners = new SubmitResponseListener[0];
+
+  public synchronized void add(final SubmitResponseListener listener) {
+    final SubmitResponseListener[] current = listeners;
+    final SubmitResponseListener[] updated = new SubmitResponseListener[current.length + 1];
+    System.arraycopy(current, 0, updated, 0, current.length);
+    updated[current.length] = listener;
+    listeners = updated;
+  }
+
+  public synchronized void remove(final SubmitResponseListener listener) {
+    final SubmitResponseListener[] current = listeners;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == listener) {
+        final SubmitResponseListener[] updated = new SubmitResponseListener[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, i);
+        System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+        listeners = updated;
+        return;
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return listeners.length == 0;
+  }
+
+  @Override
+  public void onSubmitResponse(final ThrottledSMPPSession session, final int commandStatus, final long responseTimeNanos) {
+    for (final SubmitResponseListener listener : listeners) {
+      listener.onSubmitResponse(session, commandStatus, responseTimeNanos);
+    }
+  }
+
+  @Override
+  public void onSubmitFailure(final ThrottledSMPPSession session, final Exception cause) {
+    for (final SubmitResponseListener listener : listeners) {
+      listener.onSubmitFailure(session, cause);
+    }
+  }
+}
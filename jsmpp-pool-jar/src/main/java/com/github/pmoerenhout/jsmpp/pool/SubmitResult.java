@@ -0,0 +1,23 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import org.jsmpp.util.MessageId;
+
+import lombok.Value;
+
+/**
+ * The outcome of one message of {@link PooledSMPPSession#submitBatch}.
+ */
+@Value
+public class SubmitResult {
+
+  SubmitRequest request;
+  /**
+   * The message id from the submit_sm_resp, or null when the submit failed
+   */
+  MessageId messageId;
+  Throwable failure;
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+}
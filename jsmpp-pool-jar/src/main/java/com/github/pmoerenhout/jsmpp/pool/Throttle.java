@@ -0,0 +1,52 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limit applied to the submits of a session. Implementations must be thread safe, one instance can be shared by
+ * all sessions of an SMSC account.
+ */
+public interface Throttle {
+
+  double getRate();
+
+  void setRate(double permitsPerSecond);
+
+  /**
+   * Acquire the permits, waiting as long as needed.
+   *
+   * @return the seconds spent waiting
+   */
+  double acquire(int permits);
+
+  default double acquire() {
+    return acquire(1);
+  }
+
+  /**
+   * Acquire the permits only when they are available right now, without waiting.
+   *
+   * @return 0 when the permits were acquired, otherwise the nanoseconds until they are expected to be available
+   */
+  long tryAcquire(int permits);
+
+  boolean tryAcquire(int permits, long timeout, TimeUnit timeUnit);
+
+  /**
+   * The nanoseconds until a permit is expected to be available, without reserving it, or 0 when not known.
+   */
+  default long getWaitNanos() {
+    return 0;
+  }
+
+  /**
+   * Acquire the permits without blocking the calling thread. The future completes on the throttle scheduler thread
+   * when the permits may be used, dependent stages should use an async variant to move off that thread.
+   */
+  CompletableFuture<Void> acquireAsync(int permits);
+
+  default CompletableFuture<Void> acquireAsync() {
+    return acquireAsync(1);
+  }
+}
@@ -0,0 +1,38 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The single timer thread that completes the delayed {@link Throttle#acquireAsync(int)} futures and the warm-up
+ * deadlines, times out the asynchronous submits, and ends the wait for an ejected bind to drain.
+ */
+final class ThrottleScheduler {
+
+  private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+  private ThrottleScheduler() {
+  }
+
+  private static ScheduledThreadPoolExecutor createScheduler() {
+    final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setNameFormat("smpp-throttle-%d").setDaemon(true).build());
+    // Most submit timeouts are cancelled by their response, do not keep them queued until they are due
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  static CompletableFuture<Void> completeAfter(final long delayNanos) {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    SCHEDULER.schedule(() -> future.complete(null), delayNanos, TimeUnit.NANOSECONDS);
+    return future;
+  }
+
+  static ScheduledFuture<?> schedule(final Runnable task, final long delayNanos) {
+    return SCHEDULER.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+  }
+}
@@ -1,5 +1,6 @@
 package com.github.pmoerenhout.jsmpp.pool;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.jsmpp.DefaultPDUReader;
@@ -13,11 +14,9 @@ import org.jsmpp.session.ServerResponseDeliveryListener;
 import org.jsmpp.session.SessionStateListener;
 import org.jsmpp.session.connection.Connection;
 
-import com.google.common.util.concurrent.RateLimiter;
-
 public class ThrottledSMPPServerSession extends SMPPServerSession {
 
-  private final RateLimiter rateLimiter;
+  private final Throttle throttle;
 
   public ThrottledSMPPServerSession(Connection conn,
                                     SessionStateListener sessionStateListener,
@@ -29,7 +28,7 @@ public class ThrottledSMPPServerSession extends SMPPServerSession {
         new SynchronizedPDUSender(new DefaultPDUSender()),
         new DefaultPDUReader());
     checkArguments(rate);
-    rateLimiter = RateLimiter.create(rate);
+    this.throttle = new RateLimiterThrottle(rate);
   }
 
   public ThrottledSMPPServerSession(Connection conn,
@@ -38,9 +37,30 @@ public class ThrottledSMPPServerSession extends SMPPServerSession {
                                     ServerResponseDeliveryListener responseDeliveryListener,
                                     int pduProcessorDegree, PDUSender pduSender, PDUReader pduReader, double rate) {
     super(conn, sessionStateListener, messageReceiverListener,
-        responseDeliveryListener, pduProcessorDegree, pduSender, pduReader);
+        responseDeliveryListener, pduProcessorDegree, synchronizedSender(pduSender), pduReader);
     checkArguments(rate);
-    rateLimiter = RateLimiter.create(rate);
+    this.throttle = new RateLimiterThrottle(rate);
+  }
+
+  public ThrottledSMPPServerSession(Connection conn,
+                                    SessionStateListener sessionStateListener,
+                                    ServerMessageReceiverListener messageReceiverListener,
+                                    ServerResponseDeliveryListener responseDeliveryListener,
+                                    int pduProcessorDegree, PDUSender pduSender, PDUReader pduReader, Throttle throttle) {
+    super(conn, sessionStateListener, messageReceiverListener,
+        responseDeliveryListener, pduProcessorDegree, synchronizedSender(pduSender), pduReader);
+    if (throttle == null) {
+      throw new IllegalArgumentException("The throttle parameter must not be null");
+    }
+    this.throttle = throttle;
+  }
+
+  /**
+   * SMPPServerSession uses the sender as given, so make sure PDUs written by the PDU processor threads and the
+   * application do not interleave.
+   */
+  private static PDUSender synchronizedSender(final PDUSender pduSender) {
+    return pduSender instanceof SynchronizedPDUSender ? pduSender : new SynchronizedPDUSender(pduSender);
   }
 
   private void checkArguments(final double rate) {
@@ -50,34 +70,43 @@ public class ThrottledSMPPServerSession extends SMPPServerSession {
   }
 
   public double getRate() {
-    return this.rateLimiter.getRate();
+    return this.throttle.getRate();
   }
 
   public void setRate(final double rate) {
-    this.rateLimiter.setRate(rate);
+    this.throttle.setRate(rate);
+  }
+
+  public Throttle getThrottle() {
+    return throttle;
   }
 
   public double acquire() {
-    return this.rateLimiter.acquire();
+    return this.throttle.acquire();
+  }
+
+  public CompletableFuture<Void> acquireAsync() {
+    return this.throttle.acquireAsync();
   }
 
   public boolean tryAcquire() {
-    return this.rateLimiter.tryAcquire();
+    return this.throttle.tryAcquire(1) == 0;
   }
 
   public boolean tryAcquire(int permits) {
-    return this.rateLimiter.tryAcquire(permits);
+    return this.throttle.tryAcquire(permits) == 0;
   }
 
   public boolean tryAcquire(int permits, TimeUnit timeUnit) {
-    return this.rateLimiter.tryAcquire(permits, timeUnit);
+    // Same as RateLimiter.tryAcquire(long, TimeUnit), the permits are the timeout
+    return this.throttle.tryAcquire(1, permits, timeUnit);
   }
 
   public boolean tryAcquire(int permits, long timeout, TimeUnit timeUnit) {
-    return this.rateLimiter.tryAcquire(permits, timeout, timeUnit);
+    return this.throttle.tryAcquire(permits, timeout, timeUnit);
   }
 
   public boolean tryAcquire(long timeout, TimeUnit timeUnit) {
-    return this.rateLimiter.tryAcquire(timeout, timeUnit);
+    return this.throttle.tryAcquire(1, timeout, timeUnit);
   }
 }
@@ -1,44 +1,93 @@
 package com.github.pmoerenhout.jsmpp.pool;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
 import org.jsmpp.PDUReader;
+import org.jsmpp.PDUStringException;
 import org.jsmpp.PDUSender;
+import org.jsmpp.bean.Command;
+import org.jsmpp.bean.DataCoding;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.NumberingPlanIndicator;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.bean.RegisteredDelivery;
+import org.jsmpp.bean.SubmitSmResp;
+import org.jsmpp.bean.TypeOfNumber;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.PendingResponse;
+import org.jsmpp.extra.ResponseTimeoutException;
 import org.jsmpp.session.BindParameter;
 import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.SendCommandTask;
 import org.jsmpp.session.connection.ConnectionFactory;
+import org.jsmpp.util.MessageId;
 
 import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class ThrottledSMPPSession extends SMPPSession {
 
-  private final RateLimiter rateLimiter;
+  private final Throttle throttle;
   private final int maxConcurrentRequests;
   private final Semaphore semaphore;
+  private final Queue<CompletableFuture<Void>> windowWaiters = new ConcurrentLinkedQueue<>();
+  private final Map<Integer, AsyncResponse> asyncResponses = new ConcurrentHashMap<>();
+  private final AtomicLong smoothedResponseTimeNanos = new AtomicLong();
+  private volatile long lastResponseNanos;
+  private final RollingLatencyHistogram responseTimes = new RollingLatencyHistogram(Duration.ofSeconds(5));
+  private final AtomicInteger pendingSubmits = new AtomicInteger();
+  private volatile long lastProgressNanos;
+  private volatile boolean ejected;
+  private volatile CompletableFuture<Void> drained;
+  private volatile Throttle accountThrottle;
+  private volatile SubmitResponseListener submitResponseListener;
+  private volatile PoolMetrics metrics;
+  private volatile boolean externalKeepalive;
 
   public ThrottledSMPPSession(final double rate, final int maxConcurrentRequests) {
     checkArguments(rate, maxConcurrentRequests);
-    this.rateLimiter = RateLimiter.create(rate);
+    this.throttle = rate > 0 ? new RateLimiterThrottle(rate) : null;
     this.maxConcurrentRequests = maxConcurrentRequests;
-    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.semaphore = new Semaphore(maxConcurrentRequests);
   }
 
   public ThrottledSMPPSession(final ConnectionFactory connFactory, final double rate, final int maxConcurrentRequests) {
     super(connFactory);
     checkArguments(rate, maxConcurrentRequests);
-    this.rateLimiter = RateLimiter.create(rate);
+    this.throttle = rate > 0 ? new RateLimiterThrottle(rate) : null;
     this.maxConcurrentRequests = maxConcurrentRequests;
-    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.semaphore = new Semaphore(maxConcurrentRequests);
   }
 
   public ThrottledSMPPSession(final PDUSender pduSender, final PDUReader pduReader,
                               final ConnectionFactory connFactory, final double rate, final int maxConcurrentRequests) {
     super(pduSender, pduReader, connFactory);
     checkArguments(rate, maxConcurrentRequests);
-    this.rateLimiter = RateLimiter.create(rate);
+    this.throttle = rate > 0 ? new RateLimiterThrottle(rate) : null;
     this.maxConcurrentRequests = maxConcurrentRequests;
-    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.semaphore = new Semaphore(maxConcurrentRequests);
   }
 
   public ThrottledSMPPSession(final String host, final int port, final BindParameter bindParam,
@@ -47,23 +96,51 @@ public class ThrottledSMPPSession extends SMPPSession {
                               final double rate, final int maxConcurrentRequests) throws IOException {
     super(host, port, bindParam, pduSender, pduReader, connFactory);
     checkArguments(rate, maxConcurrentRequests);
-    this.rateLimiter = RateLimiter.create(rate);
+    this.throttle = rate > 0 ? new RateLimiterThrottle(rate) : null;
     this.maxConcurrentRequests = maxConcurrentRequests;
-    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.semaphore = new Semaphore(maxConcurrentRequests);
   }
 
   public ThrottledSMPPSession(final String host, final int port, final BindParameter bindParam,
                               final int rate, final int maxConcurrentRequests) throws IOException {
     super(host, port, bindParam);
     checkArguments(rate, maxConcurrentRequests);
-    this.rateLimiter = RateLimiter.create(rate);
+    this.throttle = rate > 0 ? new RateLimiterThrottle(rate) : null;
     this.maxConcurrentRequests = maxConcurrentRequests;
-    this.semaphore = new Semaphore(maxConcurrentRequests, true);
+    this.semaphore = new Semaphore(maxConcurrentRequests);
+  }
+
+  /**
+   * @param throttle the rate limit of this bind, e.g. a {@link TokenBucketThrottle} instead of the Guava rate limiter of
+   *                 the constructors taking a rate, or null for no per bind limit
+   */
+  public ThrottledSMPPSession(final Throttle throttle, final int maxConcurrentRequests) {
+    checkArguments(0, maxConcurrentRequests);
+    this.throttle = throttle;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.semaphore = new Semaphore(maxConcurrentRequests);
+  }
+
+  public ThrottledSMPPSession(final ConnectionFactory connFactory, final Throttle throttle, final int maxConcurrentRequests) {
+    super(connFactory);
+    checkArguments(0, maxConcurrentRequests);
+    this.throttle = throttle;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.semaphore = new Semaphore(maxConcurrentRequests);
+  }
+
+  public ThrottledSMPPSession(final PDUSender pduSender, final PDUReader pduReader,
+                              final ConnectionFactory connFactory, final Throttle throttle, final int maxConcurrentRequests) {
+    super(pduSender, pduReader, connFactory);
+    checkArguments(0, maxConcurrentRequests);
+    this.throttle = throttle;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.semaphore = new Semaphore(maxConcurrentRequests);
   }
 
   private void checkArguments(final double rate, final int maxConcurrentRequests) {
-    if (rate <= 0) {
-      throw new IllegalArgumentException("The rate parameter must be > 0");
+    if (rate < 0) {
+      throw new IllegalArgumentException("The rate parameter must be >= 0");
     }
     if (maxConcurrentRequests < 1) {
       throw new IllegalArgumentException("The maxConcurrentRequests parameter must be >= 1");
@@ -71,35 +148,695 @@ public class ThrottledSMPPSession extends SMPPSession {
   }
 
   public double getRate() {
-    return this.rateLimiter.getRate();
+    return this.throttle != null ? this.throttle.getRate() : 0;
   }
 
   public void setRate(final double rate) {
-    this.rateLimiter.setRate(rate);
+    if (this.throttle == null) {
+      throw new IllegalStateException("Session " + getSessionId() + " has no per bind rate limit");
+    }
+    this.throttle.setRate(rate);
+  }
+
+  public Throttle getThrottle() {
+    return throttle;
+  }
+
+  public Throttle getAccountThrottle() {
+    return accountThrottle;
+  }
+
+  public void setAccountThrottle(final Throttle accountThrottle) {
+    this.accountThrottle = accountThrottle;
+  }
+
+  public SubmitResponseListener getSubmitResponseListener() {
+    return submitResponseListener;
+  }
+
+  public void setSubmitResponseListener(final SubmitResponseListener submitResponseListener) {
+    this.submitResponseListener = submitResponseListener;
+  }
+
+  public PoolMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void setMetrics(final PoolMetrics metrics) {
+    this.metrics = metrics;
   }
 
   public int getMaxConcurrentRequests() {
     return this.maxConcurrentRequests;
   }
 
+  /**
+   * The number of submits to acquire at once in a batch: the send window, capped to 10ms worth of the lowest rate so the
+   * SMSC does not see a larger burst than with single acquires.
+   */
+  int getBulkPermits() {
+    double rate = this.throttle != null ? this.throttle.getRate() : 0;
+    final Throttle account = this.accountThrottle;
+    if (account != null && (rate == 0 || account.getRate() < rate)) {
+      rate = account.getRate();
+    }
+    if (rate == 0) {
+      return this.maxConcurrentRequests;
+    }
+    return Math.max(1, Math.min(this.maxConcurrentRequests, (int) (rate / 100)));
+  }
+
   public int getAvailablePermits() {
     return this.semaphore.availablePermits();
   }
 
   public double acquire() throws InterruptedException {
     this.semaphore.acquire();
-    return this.rateLimiter.acquire();
+    return acquirePermits(1);
+  }
+
+  /**
+   * Acquire the rate permits of this bind and of the account for several submits at once, without a window slot.
+   *
+   * @return the seconds spent waiting
+   */
+  double acquirePermits(final int permits) {
+    double waited = 0;
+    if (this.throttle != null) {
+      waited += this.throttle.acquire(permits);
+    }
+    final Throttle account = this.accountThrottle;
+    if (account != null) {
+      waited += account.acquire(permits);
+    }
+    final PoolMetrics poolMetrics = this.metrics;
+    if (poolMetrics != null) {
+      poolMetrics.recordThrottleWait((long) (waited * TimeUnit.SECONDS.toNanos(1)));
+    }
+    return waited;
+  }
+
+  /**
+   * Acquire a slot in the send window and the rate permits without blocking the calling thread. The slot must be
+   * released with {@link #release()} like after {@link #acquire()}.
+   */
+  public CompletableFuture<Void> acquireAsync() {
+    return acquireWindowAsync().thenCompose(v -> throttleAsync(1));
+  }
+
+  CompletableFuture<Void> acquireWindowAsync() {
+    if (this.semaphore.tryAcquire()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final CompletableFuture<Void> waiter = new CompletableFuture<>();
+    this.windowWaiters.add(waiter);
+    // A slot may have been released before the waiter was queued
+    if (this.semaphore.tryAcquire()) {
+      if (this.windowWaiters.remove(waiter)) {
+        return CompletableFuture.completedFuture(null);
+      }
+      // The waiter got a slot handed over as well, give one back
+      release();
+    }
+    return waiter;
+  }
+
+  /**
+   * Take up to {@code slots} more slots of the send window when they are free, without jumping the queue of the
+   * asynchronous waiters.
+   *
+   * @return the number of slots taken
+   */
+  int tryAcquireWindow(final int slots) {
+    int acquired = 0;
+    while (acquired < slots && windowWaiters.isEmpty() && this.semaphore.tryAcquire()) {
+      acquired++;
+    }
+    return acquired;
+  }
+
+  CompletableFuture<Void> throttleAsync(final int permits) {
+    final PoolMetrics poolMetrics = this.metrics;
+    if (poolMetrics == null) {
+      return acquirePermitsAsync(permits);
+    }
+    final long start = System.nanoTime();
+    return acquirePermitsAsync(permits)
+        .whenComplete((v, e) -> poolMetrics.recordThrottleWait(System.nanoTime() - start));
+  }
+
+  private CompletableFuture<Void> acquirePermitsAsync(final int permits) {
+    final Throttle account = this.accountThrottle;
+    if (this.throttle == null) {
+      return account != null ? account.acquireAsync(permits) : CompletableFuture.completedFuture(null);
+    }
+    final CompletableFuture<Void> permit = this.throttle.acquireAsync(permits);
+    return account != null ? permit.thenCompose(v -> account.acquireAsync(permits)) : permit;
   }
 
   public void release() {
-    this.semaphore.release();
+    final CompletableFuture<Void> waiter = this.windowWaiters.poll();
+    if (waiter != null) {
+      waiter.complete(null);
+    } else {
+      this.semaphore.release();
+      checkDrained();
+    }
+  }
+
+  public int getOutstandingRequests() {
+    return this.maxConcurrentRequests - this.semaphore.availablePermits();
+  }
+
+  /**
+   * Smooth the response times like the TCP round-trip time estimate, with a weight of 1/8 for the latest one.
+   */
+  private void recordResponseTime(final long nanos) {
+    recordResponseTimeSample(nanos);
+    lastProgressNanos = lastResponseNanos;
+  }
+
+  /**
+   * A submit that timed out counts as a response after the transaction timer, but not as progress of the bind.
+   */
+  private void recordResponseTimeout() {
+    recordResponseTimeSample(TimeUnit.MILLISECONDS.toNanos(getTransactionTimer()));
+  }
+
+  private void recordResponseTimeSample(final long nanos) {
+    smoothedResponseTimeNanos.getAndUpdate(srtt -> srtt == 0 ? nanos : srtt + ((nanos - srtt) >> 3));
+    responseTimes.record(nanos);
+    lastResponseNanos = System.nanoTime();
+  }
+
+  /**
+   * The submit_sm_resp times of this bind over the last 5 to 10 seconds, a timeout counts as the transaction timer. Only
+   * tracked when a {@link SubmitResponseListener} is set, as it is for the sessions of a pool.
+   */
+  public RollingLatencyHistogram getResponseTimes() {
+    return responseTimes;
+  }
+
+  /**
+   * How long submits have been waiting on this bind without any submit_sm_resp coming in, or 0 when none is waiting.
+   */
+  public long getStalledNanos() {
+    return pendingSubmits.get() > 0 ? Math.max(0, System.nanoTime() - lastProgressNanos) : 0;
+  }
+
+  /**
+   * Take this bind out of rotation: the dispatcher skips it and the pool fails its validation, so it is replaced by a
+   * new bind.
+   */
+  void eject() {
+    this.ejected = true;
+  }
+
+  public boolean isEjected() {
+    return ejected;
+  }
+
+  /**
+   * No submit holds a slot of the send window or waits for its submit_sm_resp.
+   */
+  boolean isDrained() {
+    return pendingSubmits.get() == 0 && getOutstandingRequests() == 0;
   }
 
+  /**
+   * Completes once the bind {@link #isDrained() is drained}.
+   */
+  CompletableFuture<Void> whenDrained() {
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+    this.drained = future;
+    checkDrained();
+    return future;
+  }
+
+  private void checkDrained() {
+    final CompletableFuture<Void> future = this.drained;
+    if (future != null && !future.isDone() && isDrained()) {
+      future.complete(null);
+    }
+  }
+
+  /**
+   * The smoothed submit_sm_resp time of this bind, or 0 before the first response. A timeout counts as a response after
+   * the transaction timer. While no submit is outstanding it halves for every second without a response, so a bind that
+   * was avoided for being slow is tried again. Only tracked when a
+   * {@link SubmitResponseListener} is set, as it is for the sessions of a pool.
+   */
+  public long getSmoothedResponseTimeNanos() {
+    final long srtt = smoothedResponseTimeNanos.get();
+    if (srtt == 0 || getOutstandingRequests() > 0 || pendingSubmits.get() > 0) {
+      return srtt;
+    }
+    final long idleSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - lastResponseNanos);
+    return srtt >> Math.min(63, idleSeconds);
+  }
+
+  /**
+   * The nanoseconds until the rate permits of this bind and of the account are expected to be available.
+   */
+  public long getExpectedPermitWaitNanos() {
+    long waitNanos = this.throttle != null ? this.throttle.getWaitNanos() : 0;
+    final Throttle account = this.accountThrottle;
+    if (account != null) {
+      waitNanos = Math.max(waitNanos, account.getWaitNanos());
+    }
+    return waitNanos;
+  }
+
+  @Override
+  public String submitShortMessage(final String serviceType,
+                                   final TypeOfNumber sourceAddrTon, final NumberingPlanIndicator sourceAddrNpi,
+                                   final String sourceAddr,
+                                   final TypeOfNumber destAddrTon, final NumberingPlanIndicator destAddrNpi,
+                                   final String destinationAddr,
+                                   final ESMClass esmClass, final byte protocolId, final byte priorityFlag,
+                                   final String scheduleDeliveryTime, final String validityPeriod,
+                                   final RegisteredDelivery registeredDelivery, final byte replaceIfPresentFlag,
+                                   final DataCoding dataCoding, final byte smDefaultMsgId, final byte[] shortMessage,
+                                   final OptionalParameter... optionalParameters)
+      throws PDUException, ResponseTimeoutException, InvalidResponseException, NegativeResponseException, IOException {
+    final SubmitResponseListener listener = this.submitResponseListener;
+    if (listener == null) {
+      return super.submitShortMessage(serviceType, sourceAddrTon, sourceAddrNpi, sourceAddr,
+          destAddrTon, destAddrNpi, destinationAddr, esmClass, protocolId, priorityFlag,
+          scheduleDeliveryTime, validityPeriod, registeredDelivery, replaceIfPresentFlag,
+          dataCoding, smDefaultMsgId, shortMessage, optionalParameters);
+    }
+    final PoolMetrics poolMetrics = this.metrics;
+    if (poolMetrics != null) {
+      poolMetrics.incrementInFlight();
+    }
+    final long start = System.nanoTime();
+    if (pendingSubmits.getAndIncrement() == 0) {
+      lastProgressNanos = start;
+    }
+    try {
+      final String messageId = super.submitShortMessage(serviceType, sourceAddrTon, sourceAddrNpi, sourceAddr,
+          destAddrTon, destAddrNpi, destinationAddr, esmClass, protocolId, priorityFlag,
+          scheduleDeliveryTime, validityPeriod, registeredDelivery, replaceIfPresentFlag,
+          dataCoding, smDefaultMsgId, shortMessage, optionalParameters);
+      final long responseTimeNanos = System.nanoTime() - start;
+      recordResponseTime(responseTimeNanos);
+      listener.onSubmitResponse(this, 0, responseTimeNanos);
+      return messageId;
+    } catch (NegativeResponseException e) {
+      final long responseTimeNanos = System.nanoTime() - start;
+      recordResponseTime(responseTimeNanos);
+      listener.onSubmitResponse(this, e.getCommandStatus(), responseTimeNanos);
+      throw e;
+    } catch (ResponseTimeoutException e) {
+      recordResponseTimeout();
+      listener.onSubmitFailure(this, e);
+      throw e;
+    } catch (PDUException | InvalidResponseException | IOException e) {
+      listener.onSubmitFailure(this, e);
+      throw e;
+    } finally {
+      pendingSubmits.decrementAndGet();
+      checkDrained();
+      if (poolMetrics != null) {
+        poolMetrics.decrementInFlight();
+      }
+    }
+  }
+
+  /**
+   * @param externalKeepalive stop the enquire link thread of jSMPP after the bind, the enquire links are sent by a
+   *                          {@link KeepaliveScheduler}. Must be set before the bind.
+   */
+  public void setExternalKeepalive(final boolean externalKeepalive) {
+    this.externalKeepalive = externalKeepalive;
+  }
+
+  @Override
+  public String connectAndBind(final String host, final int port, final BindParameter bindParam, final long timeout)
+      throws IOException {
+    final String systemId = super.connectAndBind(host, port, bindParam, timeout);
+    if (externalKeepalive && enquireLinkSender != null) {
+      // The sender thread exits when interrupted, the no activity notifications of the reader then have no effect
+      enquireLinkSender.interrupt();
+    }
+    return systemId;
+  }
+
+  void enquireLink() throws ResponseTimeoutException, InvalidResponseException, IOException {
+    sendEnquireLink();
+  }
+
+  /**
+   * On a connection of a {@link CoalescingConnectionFactory}, mark the send command as writing, so a concurrent sender
+   * holds back its flush for this PDU.
+   */
+  @Override
+  protected Command executeSendCommand(final SendCommandTask task, final long timeout)
+      throws PDUException, ResponseTimeoutException, InvalidResponseException, NegativeResponseException, IOException {
+    final OutputStream out = connection().getOutputStream();
+    if (!(out instanceof CoalescingOutputStream)) {
+      return super.executeSendCommand(task, timeout);
+    }
+    final CoalescingOutputStream coalescingOut = (CoalescingOutputStream) out;
+    return super.executeSendCommand(new SendCommandTask() {
+      @Override
+      public void executeTask(final OutputStream os, final int sequenceNumber) throws PDUException, IOException {
+        coalescingOut.enter();
+        try {
+          task.executeTask(os, sequenceNumber);
+        } finally {
+          coalescingOut.exit();
+        }
+      }
+
+      @Override
+      public String getCommandName() {
+        return task.getCommandName();
+      }
+    }, timeout);
+  }
+
+  public String submitShortMessage(final SubmitRequest request)
+      throws PDUException, ResponseTimeoutException, InvalidResponseException, NegativeResponseException, IOException {
+    return submitShortMessage(request.getServiceType(),
+        request.getSourceAddrTon(), request.getSourceAddrNpi(), request.getSourceAddr(),
+        request.getDestAddrTon(), request.getDestAddrNpi(), request.getDestinationAddr(),
+        request.getEsmClass(), request.getProtocolId(), request.getPriorityFlag(),
+        request.getScheduleDeliveryTime(), request.getValidityPeriod(), request.getRegisteredDelivery(),
+        request.getReplaceIfPresentFlag(), request.getDataCoding(), request.getSmDefaultMsgId(),
+        request.getShortMessage(), request.getOptionalParameters());
+  }
+
+  /**
+   * Submit a short message without waiting for the submit_sm_resp and without holding a thread for the round trip. The
+   * slot in the send window and the rate permits are waited for without blocking, the submit_sm is written on the given
+   * executor, and the future is completed on the executor when the submit_sm_resp, a generic_nack, the transaction
+   * timer or the close of the session ends it. The slot is released at that moment.
+   * The submit_sm_resp is correlated to its request by sequence number, like the blocking submits of the session.
+   */
+  public CompletableFuture<MessageId> submitAsync(final SubmitRequest request, final Executor executor) {
+    final CompletableFuture<MessageId> future = new CompletableFuture<>();
+    acquireWindowAsync().thenCompose(w -> throttleAsync(1).whenComplete((v, throttleFailure) -> {
+      if (throttleFailure != null) {
+        release();
+      }
+    })).whenComplete((v, failure) -> {
+      if (failure != null) {
+        future.completeExceptionally(unwrap(failure));
+        return;
+      }
+      sendAsync(request, executor, future, null);
+    });
+    return future;
+  }
+
+  /**
+   * Like {@link #submitAsync(SubmitRequest, Executor)} for a submit that already holds a slot of the send window and
+   * its rate permits, e.g. one of a batch.
+   */
+  CompletableFuture<MessageId> submitAcquired(final SubmitRequest request, final Executor executor) {
+    final CompletableFuture<MessageId> future = new CompletableFuture<>();
+    sendAsync(request, executor, future, null);
+    return future;
+  }
+
+  /**
+   * @param written completed when the submit_sm is written, or exceptionally when it is not, may be null
+   */
+  private void sendAsync(final SubmitRequest request, final Executor executor, final CompletableFuture<MessageId> future,
+                         final CompletableFuture<Void> written) {
+    try {
+      executor.execute(() -> send(request, executor, future, written));
+    } catch (RejectedExecutionException e) {
+      release();
+      future.completeExceptionally(e);
+      written(written, e);
+    }
+  }
+
+  private void send(final SubmitRequest request, final Executor executor, final CompletableFuture<MessageId> future,
+                    final CompletableFuture<Void> written) {
+    try {
+      ensureTransmittable("submitShortMessage");
+    } catch (IOException e) {
+      release();
+      future.completeExceptionally(e);
+      written(written, e);
+      return;
+    }
+    final int sequenceNumber = sequence().nextValue();
+    final AsyncResponse response = new AsyncResponse(sequenceNumber, executor, future);
+    asyncResponses.put(sequenceNumber, response);
+    response.timeout = ThrottleScheduler.schedule(() -> {
+      if (asyncResponses.remove(sequenceNumber, response)) {
+        response.fail(new ResponseTimeoutException("No response after waiting for " + getTransactionTimer()
+            + " millis when executing submit_sm with session " + getSessionId() + " and sequence_number "
+            + sequenceNumber));
+      }
+    }, TimeUnit.MILLISECONDS.toNanos(getTransactionTimer()));
+    final OutputStream out = connection().getOutputStream();
+    final CoalescingOutputStream coalescingOut = out instanceof CoalescingOutputStream ? (CoalescingOutputStream) out : null;
+    try {
+      if (coalescingOut != null) {
+        coalescingOut.enter();
+      }
+      try {
+        pduSender().sendSubmitSm(out, sequenceNumber, request.getServiceType(),
+            request.getSourceAddrTon(), request.getSourceAddrNpi(), request.getSourceAddr(),
+            request.getDestAddrTon(), request.getDestAddrNpi(), request.getDestinationAddr(),
+            request.getEsmClass(), request.getProtocolId(), request.getPriorityFlag(),
+            request.getScheduleDeliveryTime(), request.getValidityPeriod(), request.getRegisteredDelivery(),
+            request.getReplaceIfPresentFlag(), request.getDataCoding(), request.getSmDefaultMsgId(),
+            request.getShortMessage(), request.getOptionalParameters());
+      } finally {
+        if (coalescingOut != null) {
+          coalescingOut.exit();
+        }
+      }
+      written(written, null);
+    } catch (PDUException e) {
+      if (asyncResponses.remove(sequenceNumber, response)) {
+        response.fail(e);
+      }
+      written(written, e);
+    } catch (IOException e) {
+      log.error("Failed sending submit_sm command", e);
+      if (asyncResponses.remove(sequenceNumber, response)) {
+        response.fail(e);
+      }
+      written(written, e);
+      close();
+    }
+  }
+
+  private static void written(final CompletableFuture<Void> written, final Throwable failure) {
+    if (written == null) {
+      return;
+    }
+    if (failure != null) {
+      written.completeExceptionally(failure);
+    } else {
+      written.complete(null);
+    }
+  }
+
+  /**
+   * The submit_sm_resp of an asynchronous submit is handed to its {@link AsyncResponse} instead of a waiting thread.
+   */
+  @Override
+  protected PendingResponse<Command> removePendingResponse(final int sequenceNumber) {
+    final AsyncResponse response = asyncResponses.remove(sequenceNumber);
+    return response != null ? response : super.removePendingResponse(sequenceNumber);
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    for (final Integer sequenceNumber : asyncResponses.keySet()) {
+      final AsyncResponse response = asyncResponses.remove(sequenceNumber);
+      if (response != null) {
+        response.fail(new IOException("Session " + getSessionId() + " is closed"));
+      }
+    }
+  }
+
+  /**
+   * Submit the segments of a concatenated message on this session, pipelined in order. The rate permits for all
+   * segments are acquired at once, so the segments are not interleaved with other messages by the throttle. Every
+   * segment waits for a slot in the send window once the previous one is written, not for its submit_sm_resp, so the
+   * SMSC receives them in order and in one round trip. No further segment is written after a failure is known, the
+   * segments already written are not recalled. Nothing waits with a thread.
+   *
+   * @return the message ids in the order of the segments, or the first failure
+   */
+  public CompletableFuture<List<MessageId>> submitAsync(final List<SubmitRequest> segments, final Executor executor) {
+    final CompletableFuture<List<MessageId>> future = new CompletableFuture<>();
+    if (segments.isEmpty()) {
+      future.complete(Collections.emptyList());
+      return future;
+    }
+    final MessageId[] messageIds = new MessageId[segments.size()];
+    final AtomicInteger remaining = new AtomicInteger(segments.size());
+    throttleAsync(segments.size()).whenComplete((v, throttleFailure) -> {
+      if (throttleFailure != null) {
+        future.completeExceptionally(unwrap(throttleFailure));
+        return;
+      }
+      CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+      for (int i = 0; i < segments.size(); i++) {
+        previous = submitSegment(segments, i, previous, messageIds, remaining, executor, future);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * @return completed when the segment is written, or exceptionally when it or an earlier segment was not
+   */
+  private CompletableFuture<Void> submitSegment(final List<SubmitRequest> segments, final int index,
+                                                final CompletableFuture<Void> previousWritten,
+                                                final MessageId[] messageIds, final AtomicInteger remaining,
+                                                final Executor executor,
+                                                final CompletableFuture<List<MessageId>> future) {
+    final CompletableFuture<Void> written = new CompletableFuture<>();
+    previousWritten.thenCompose(w -> acquireWindowAsync()).whenComplete((w, failure) -> {
+      if (failure != null) {
+        future.completeExceptionally(unwrap(failure));
+        written.completeExceptionally(failure);
+        return;
+      }
+      if (future.isDone()) {
+        // An earlier segment failed after it was written
+        release();
+        written.completeExceptionally(new CancellationException("Segment " + (index + 1) + " not sent"));
+        return;
+      }
+      final CompletableFuture<MessageId> response = new CompletableFuture<>();
+      response.whenComplete((messageId, responseFailure) -> {
+        if (responseFailure != null) {
+          future.completeExceptionally(unwrap(responseFailure));
+          return;
+        }
+        messageIds[index] = messageId;
+        if (remaining.decrementAndGet() == 0) {
+          future.complete(Arrays.asList(messageIds));
+        }
+      });
+      sendAsync(segments.get(index), executor, response, written);
+    });
+    return written;
+  }
+
+  private static Throwable unwrap(final Throwable failure) {
+    return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+  }
+
+  /**
+   * @return the Guava rate limiter of a session created with a rate, or null when the session was created with another
+   * {@link Throttle}, as the sessions of a {@link PooledSmppSessionFactory} are by default
+   * @deprecated use {@link #getThrottle()}, which is set for every throttle implementation
+   */
+  @Deprecated
   public RateLimiter getRateLimiter() {
-    return rateLimiter;
+    return throttle instanceof RateLimiterThrottle ? ((RateLimiterThrottle) throttle).getRateLimiter() : null;
   }
 
   public Semaphore getSemaphore() {
     return semaphore;
   }
+
+  /**
+   * An asynchronous submit waiting for its submit_sm_resp. It is removed from the table exactly once, by the response,
+   * the timeout, a send failure or the close of the session, and that one completes it.
+   */
+  private final class AsyncResponse extends PendingResponse<Command> {
+
+    private final int sequenceNumber;
+    private final Executor executor;
+    private final CompletableFuture<MessageId> future;
+    private final SubmitResponseListener listener;
+    private final PoolMetrics poolMetrics;
+    private final long start;
+    private volatile ScheduledFuture<?> timeout;
+
+    private AsyncResponse(final int sequenceNumber, final Executor executor, final CompletableFuture<MessageId> future) {
+      super(getTransactionTimer());
+      this.sequenceNumber = sequenceNumber;
+      this.executor = executor;
+      this.future = future;
+      this.listener = submitResponseListener;
+      this.poolMetrics = listener != null ? metrics : null;
+      this.start = System.nanoTime();
+      if (listener != null && pendingSubmits.getAndIncrement() == 0) {
+        lastProgressNanos = start;
+      }
+      if (poolMetrics != null) {
+        poolMetrics.incrementInFlight();
+      }
+    }
+
+    @Override
+    public void done(final Command response) {
+      final long responseTimeNanos = System.nanoTime() - start;
+      if (listener != null) {
+        recordResponseTime(responseTimeNanos);
+        listener.onSubmitResponse(ThrottledSMPPSession.this, response.getCommandStatus(), responseTimeNanos);
+      }
+      if (response.getCommandStatus() != 0) {
+        complete(null, new NegativeResponseException(response.getCommandStatus()));
+      } else if (response instanceof SubmitSmResp) {
+        try {
+          complete(new MessageId(((SubmitSmResp) response).getMessageId()), null);
+        } catch (PDUStringException e) {
+          complete(null, e);
+        }
+      } else {
+        complete(null, new InvalidResponseException("Unexpected response " + response.getCommandIdAsHex()
+            + " for submit_sm with sequence_number " + sequenceNumber));
+      }
+    }
+
+    @Override
+    public void doneWithInvalidResponse(final InvalidResponseException e) {
+      fail(e);
+    }
+
+    private void fail(final Exception cause) {
+      if (listener != null) {
+        if (cause instanceof ResponseTimeoutException) {
+          recordResponseTimeout();
+        }
+        listener.onSubmitFailure(ThrottledSMPPSession.this, cause);
+      }
+      complete(null, cause);
+    }
+
+    private void complete(final MessageId messageId, final Exception failure) {
+      final ScheduledFuture<?> scheduledTimeout = this.timeout;
+      if (scheduledTimeout != null) {
+        scheduledTimeout.cancel(false);
+      }
+      if (listener != null) {
+        pendingSubmits.decrementAndGet();
+      }
+      if (poolMetrics != null) {
+        poolMetrics.decrementInFlight();
+      }
+      release();
+      // Do not run the callbacks of the caller on the PDU reader or timer thread
+      final Runnable completion = () -> {
+        if (failure != null) {
+          future.completeExceptionally(failure);
+        } else {
+          future.complete(messageId);
+        }
+      };
+      try {
+        executor.execute(completion);
+      } catch (RejectedExecutionException e) {
+        completion.run();
+      }
+    }
+  }
 }
@@ -0,0 +1,143 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.jsmpp.session.connection.Connection;
+import org.jsmpp.session.connection.ConnectionFactory;
+import org.jsmpp.session.connection.socket.SocketConnection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates TLS connections that validate the certificate of the SMSC. All connections share one {@link SSLContext}, so
+ * a re-bind to the same host and port resumes the TLS session of an earlier bind with an abbreviated handshake instead
+ * of a full one, which matters after the mass disconnects of an SMSC restart.
+ */
+@Slf4j
+public class TlsConnectionFactory implements ConnectionFactory {
+
+  private final TlsSettings settings;
+  private final SSLSocketFactory socketFactory;
+  private final LongAdder handshakes = new LongAdder();
+  private final LongAdder resumedHandshakes = new LongAdder();
+  private final LatencyHistogram handshakeTime = new LatencyHistogram();
+
+  public TlsConnectionFactory(final TlsSettings settings) throws GeneralSecurityException {
+    this(createContext(settings), settings);
+  }
+
+  /**
+   * @param sslContext the context to create the sockets with, its client session cache is configured from the settings
+   */
+  public TlsConnectionFactory(final SSLContext sslContext, final TlsSettings settings) {
+    this.settings = settings;
+    final SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    sessionContext.setSessionCacheSize(settings.getSessionCacheSize());
+    sessionContext.setSessionTimeout(settings.getSessionTimeout());
+    this.socketFactory = sslContext.getSocketFactory();
+  }
+
+  private static SSLContext createContext(final TlsSettings settings) throws GeneralSecurityException {
+    final TrustManagerFactory trustManagerFactory =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    trustManagerFactory.init(settings.getTrustStore());
+    KeyManagerFactory keyManagerFactory = null;
+    if (settings.getKeyStore() != null) {
+      keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagerFactory.init(settings.getKeyStore(), settings.getKeyPassword());
+    }
+    final SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(keyManagerFactory != null ? keyManagerFactory.getKeyManagers() : null,
+        trustManagerFactory.getTrustManagers(), null);
+    return sslContext;
+  }
+
+  @Override
+  public Connection createConnection(final String host, final int port) throws IOException {
+    final Socket socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(host, port), settings.getConnectTimeout());
+      // Layering over a connected socket with the host name keys the session cache by host and port
+      final SSLSocket sslSocket = (SSLSocket) socketFactory.createSocket(socket, host, port, true);
+      sslSocket.setSSLParameters(parameters(sslSocket, host));
+      sslSocket.setSoTimeout(settings.getHandshakeTimeout());
+      final long startMillis = System.currentTimeMillis();
+      final long start = System.nanoTime();
+      sslSocket.startHandshake();
+      final long elapsedNanos = System.nanoTime() - start;
+      sslSocket.setSoTimeout(0);
+      recordHandshake(sslSocket.getSession(), startMillis, elapsedNanos);
+      return new SocketConnection(sslSocket);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  private SSLParameters parameters(final SSLSocket sslSocket, final String host) {
+    final SSLParameters parameters = sslSocket.getSSLParameters();
+    if (settings.getProtocols() != null) {
+      parameters.setProtocols(settings.getProtocols().toArray(new String[0]));
+    }
+    if (settings.getCipherSuites() != null) {
+      parameters.setCipherSuites(settings.getCipherSuites().toArray(new String[0]));
+    }
+    final String serverName = settings.getServerName() != null ? settings.getServerName() : host;
+    if (!isIpAddress(serverName)) {
+      parameters.setServerNames(Collections.singletonList(new SNIHostName(serverName)));
+    }
+    if (settings.isHostnameVerification()) {
+      parameters.setEndpointIdentificationAlgorithm("HTTPS");
+    }
+    return parameters;
+  }
+
+  private void recordHandshake(final SSLSession session, final long startMillis, final long elapsedNanos) {
+    handshakes.increment();
+    handshakeTime.record(elapsedNanos);
+    // A resumed session keeps the creation time of the full handshake that established it
+    final boolean resumed = session.getCreationTime() < startMillis;
+    if (resumed) {
+      resumedHandshakes.increment();
+    }
+    log.debug("TLS handshake with {} using {} {} in {}us{}", session.getPeerHost(), session.getProtocol(),
+        session.getCipherSuite(), TimeUnit.NANOSECONDS.toMicros(elapsedNanos), resumed ? " (resumed)" : "");
+  }
+
+  private static boolean isIpAddress(final String host) {
+    return host.indexOf(':') >= 0 || host.matches("[0-9.]+");
+  }
+
+  public TlsSettings getSettings() {
+    return settings;
+  }
+
+  public long getNumHandshakes() {
+    return handshakes.sum();
+  }
+
+  public long getNumResumedHandshakes() {
+    return resumedHandshakes.sum();
+  }
+
+  public LatencyHistogram getHandshakeTime() {
+    return handshakeTime;
+  }
+}
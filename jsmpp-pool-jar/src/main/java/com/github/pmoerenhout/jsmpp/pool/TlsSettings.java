@@ -0,0 +1,54 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.security.KeyStore;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The TLS settings of a {@link TlsConnectionFactory}. Unset values fall back to the defaults of the JVM, so an empty
+ * builder validates the SMSC certificate and host name against the default trust store.
+ */
+@Value
+@Builder(toBuilder = true)
+public class TlsSettings {
+
+  /**
+   * The certificates to trust, or null for the trust store of the JVM.
+   */
+  KeyStore trustStore;
+  /**
+   * The client certificate and key, for SMSCs that require one.
+   */
+  KeyStore keyStore;
+  char[] keyPassword;
+  /**
+   * The protocols to enable, e.g. TLSv1.3 and TLSv1.2.
+   */
+  List<String> protocols;
+  List<String> cipherSuites;
+  /**
+   * The server name sent in the SNI extension, defaults to the host connected to when it is not an IP address.
+   */
+  String serverName;
+  /**
+   * Verify that the certificate of the SMSC matches the host name.
+   */
+  @Builder.Default
+  boolean hostnameVerification = true;
+  @Builder.Default
+  int connectTimeout = 10000;
+  @Builder.Default
+  int handshakeTimeout = 10000;
+  /**
+   * The number of TLS sessions kept for resumption, 0 for no limit.
+   */
+  @Builder.Default
+  int sessionCacheSize = 1000;
+  /**
+   * The time in seconds a TLS session can be resumed, 0 for no limit.
+   */
+  @Builder.Default
+  int sessionTimeout = 86400;
+}
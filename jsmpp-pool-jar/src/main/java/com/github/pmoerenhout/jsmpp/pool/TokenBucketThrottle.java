@@ -0,0 +1,148 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Lock-free token bucket {@link Throttle}. Permits are reserved with a single compare-and-set on the theoretical
+ * arrival time of the next permit (GCRA), so concurrent callers never block each other and the waiting is done outside
+ * of any lock. By default up to 10ms worth of unused permits can be caught up, which absorbs the oversleeping of the
+ * waiting threads without allowing a noticeable burst. That default burst follows the rate when it is changed.
+ */
+public class TokenBucketThrottle implements Throttle {
+
+  private static final long NO_RESERVATION = -1L;
+
+  private final AtomicLong nextFreeNanos;
+  private final boolean fixedBurst;
+  private volatile int maxBurstPermits;
+  private volatile long intervalNanos;
+
+  public TokenBucketThrottle(final double permitsPerSecond) {
+    this.fixedBurst = false;
+    setRate(permitsPerSecond);
+    this.nextFreeNanos = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * @param maxBurstPermits the unused permits that can be caught up, kept when the rate is changed
+   */
+  public TokenBucketThrottle(final double permitsPerSecond, final int maxBurstPermits) {
+    if (maxBurstPermits < 1) {
+      throw new IllegalArgumentException("The maxBurstPermits parameter must be >= 1");
+    }
+    this.fixedBurst = true;
+    this.maxBurstPermits = maxBurstPermits;
+    setRate(permitsPerSecond);
+    this.nextFreeNanos = new AtomicLong(System.nanoTime());
+  }
+
+  @Override
+  public double getRate() {
+    return TimeUnit.SECONDS.toNanos(1) / (double) intervalNanos;
+  }
+
+  @Override
+  public void setRate(final double permitsPerSecond) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("The rate parameter must be > 0");
+    }
+    if (!fixedBurst) {
+      this.maxBurstPermits = Math.max(1, (int) (permitsPerSecond / 100));
+    }
+    this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+  }
+
+  public int getMaxBurstPermits() {
+    return maxBurstPermits;
+  }
+
+  @Override
+  public double acquire(final int permits) {
+    final long waitNanos = reserve(permits, Long.MAX_VALUE);
+    if (waitNanos > 0) {
+      Uninterruptibles.sleepUninterruptibly(waitNanos, TimeUnit.NANOSECONDS);
+    }
+    return waitNanos / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  @Override
+  public long tryAcquire(final int permits) {
+    checkPermits(permits);
+    final long cost = permits * intervalNanos;
+    while (true) {
+      final long now = System.nanoTime();
+      final long next = nextFreeNanos.get();
+      final long start = start(now, next);
+      if (start - now > 0) {
+        return start - now;
+      }
+      if (nextFreeNanos.compareAndSet(next, start + cost)) {
+        return 0;
+      }
+    }
+  }
+
+  @Override
+  public boolean tryAcquire(final int permits, final long timeout, final TimeUnit timeUnit) {
+    final long waitNanos = reserve(permits, timeUnit.toNanos(timeout));
+    if (waitNanos == NO_RESERVATION) {
+      return false;
+    }
+    if (waitNanos > 0) {
+      Uninterruptibles.sleepUninterruptibly(waitNanos, TimeUnit.NANOSECONDS);
+    }
+    return true;
+  }
+
+  @Override
+  public long getWaitNanos() {
+    final long now = System.nanoTime();
+    return Math.max(0L, start(now, nextFreeNanos.get()) - now);
+  }
+
+  @Override
+  public CompletableFuture<Void> acquireAsync(final int permits) {
+    final long waitNanos = reserve(permits, Long.MAX_VALUE);
+    if (waitNanos == 0) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return ThrottleScheduler.completeAfter(waitNanos);
+  }
+
+  /**
+   * Reserve the permits when they are available within {@code maxWaitNanos}.
+   *
+   * @return the nanoseconds to wait before the permits may be used, or -1 when nothing was reserved
+   */
+  private long reserve(final int permits, final long maxWaitNanos) {
+    checkPermits(permits);
+    final long cost = permits * intervalNanos;
+    while (true) {
+      final long now = System.nanoTime();
+      final long next = nextFreeNanos.get();
+      final long start = start(now, next);
+      final long waitNanos = Math.max(0L, start - now);
+      if (waitNanos > maxWaitNanos) {
+        return NO_RESERVATION;
+      }
+      if (nextFreeNanos.compareAndSet(next, start + cost)) {
+        return waitNanos;
+      }
+    }
+  }
+
+  private long start(final long now, final long next) {
+    final long earliest = now - (maxBurstPermits - 1) * intervalNanos;
+    return next - earliest > 0 ? next : earliest;
+  }
+
+  private static void checkPermits(final int permits) {
+    if (permits < 1) {
+      throw new IllegalArgumentException("The permits parameter must be >= 1");
+    }
+  }
+}
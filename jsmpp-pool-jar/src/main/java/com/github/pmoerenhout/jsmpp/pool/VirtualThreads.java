@@ -0,0 +1,80 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Virtual threads when running on Java 21 or later. The library is built for Java 8, so the virtual thread API is
+ * looked up by reflection.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+  private static final Method OF_VIRTUAL;
+  private static final Method NAME;
+  private static final Method FACTORY;
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    Method ofVirtual = null;
+    Method name = null;
+    Method factory = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      name = builderClass.getMethod("name", String.class, long.class);
+      factory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (ReflectiveOperationException e) {
+      log.debug("Virtual threads are not available on Java {}", System.getProperty("java.version"));
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {
+  }
+
+  public static boolean isAvailable() {
+    return NEW_THREAD_PER_TASK_EXECUTOR != null;
+  }
+
+  /**
+   * @param prefix the thread name prefix, a counter starting at 0 is appended
+   */
+  public static ThreadFactory newThreadFactory(final String prefix) {
+    checkAvailable();
+    try {
+      final Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+      return (ThreadFactory) FACTORY.invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to create a virtual thread factory", e);
+    }
+  }
+
+  /**
+   * An executor that starts a new virtual thread for every task, so it never has to be sized.
+   */
+  public static ExecutorService newThreadPerTaskExecutor(final String prefix) {
+    final ThreadFactory threadFactory = newThreadFactory(prefix);
+    try {
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to create a virtual thread executor", e);
+    }
+  }
+
+  static void checkAvailable() {
+    if (!isAvailable()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on Java "
+          + System.getProperty("java.version"));
+    }
+  }
+}
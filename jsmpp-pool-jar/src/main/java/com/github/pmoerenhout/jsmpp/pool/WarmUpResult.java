@@ -0,0 +1,27 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * The outcome of {@link PooledSMPPSession#warmUp}, one {@link BindOutcome} per requested bind.
+ */
+@Value
+public class WarmUpResult {
+
+  List<BindOutcome> outcomes;
+  long elapsedNanos;
+
+  public int getNumBound() {
+    return (int) outcomes.stream().filter(BindOutcome::isBound).count();
+  }
+
+  public int getNumFailed() {
+    return outcomes.size() - getNumBound();
+  }
+
+  public boolean isComplete() {
+    return getNumFailed() == 0;
+  }
+}
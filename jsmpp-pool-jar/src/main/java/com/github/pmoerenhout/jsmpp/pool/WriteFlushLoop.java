@@ -0,0 +1,105 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A selector thread writing the pending bytes of its {@link QueuedWriteConnection}s. Changes to the keys are queued as
+ * tasks and run on the loop thread.
+ */
+@Slf4j
+final class WriteFlushLoop implements Runnable {
+
+  private final Selector selector;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  WriteFlushLoop(final String name) throws IOException {
+    this.selector = Selector.open();
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  void execute(final Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  void register(final SocketChannel channel, final QueuedWriteConnection connection) {
+    execute(() -> {
+      try {
+        connection.registered(channel.register(selector, 0, connection));
+      } catch (ClosedChannelException e) {
+        connection.failed(e);
+      }
+    });
+  }
+
+  /**
+   * Let the selector drop the keys cancelled by closed connections.
+   */
+  void wakeup() {
+    selector.wakeup();
+  }
+
+  int getNumConnections() {
+    return selector.keys().size();
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      try {
+        selector.select();
+        runTasks();
+        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          final SelectionKey key = keys.next();
+          keys.remove();
+          final QueuedWriteConnection connection = (QueuedWriteConnection) key.attachment();
+          try {
+            if (key.isValid() && key.isWritable()) {
+              connection.onWritable();
+            }
+          } catch (IOException e) {
+            connection.failed(e);
+          }
+        }
+      } catch (IOException e) {
+        log.warn("Flush loop {} failed to select", thread.getName(), e);
+      } catch (RuntimeException e) {
+        log.error("Flush loop {} caught an unexpected exception", thread.getName(), e);
+      }
+    }
+    for (final SelectionKey key : selector.keys()) {
+      ((QueuedWriteConnection) key.attachment()).close();
+    }
+    try {
+      selector.close();
+    } catch (IOException e) {
+      log.debug("Closing the selector of {} failed", thread.getName(), e);
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  void close() {
+    running = false;
+    selector.wakeup();
+  }
+}
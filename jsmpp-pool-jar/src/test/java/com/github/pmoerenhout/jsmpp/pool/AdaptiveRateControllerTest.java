@@ -0,0 +1,120 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.jsmpp.SMPPConstant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The controller is driven by calling {@link AdaptiveRateController#onSubmitResponse} and
+ * {@link AdaptiveRateController#adjust()} directly, on a session bound to the test SMSC with a rate of 100 msg/s.
+ */
+class AdaptiveRateControllerTest {
+
+  private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private TestSmsc smsc;
+  private GenericObjectPool<ThrottledSMPPSession> pool;
+  private ThrottledSMPPSession session;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    smsc = new TestSmsc();
+    pool = new GenericObjectPool<>(smsc.createFactory(100, 10));
+    session = pool.borrowObject();
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.close();
+    smsc.close();
+  }
+
+  @Test
+  void invalidParameters() {
+    final AdaptiveRateController controller = new AdaptiveRateController();
+    assertThrows(IllegalArgumentException.class, () -> controller.setMinRate(0));
+    assertThrows(IllegalArgumentException.class, () -> controller.setDecreaseFactor(1));
+    assertThrows(IllegalArgumentException.class, () -> controller.setIncreaseRatio(0));
+    assertThrows(IllegalArgumentException.class, () -> controller.setLatencyPercentile(0));
+  }
+
+  @Test
+  void throttledResponseDecreasesOncePerDecrease() {
+    final AdaptiveRateController controller = new AdaptiveRateController();
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, MILLISECOND);
+    assertEquals(70, session.getRate(), 0.001);
+
+    // Sent a second ago, before the decrease: the SMSC had not seen the lower rate yet
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RMSGQFUL, TimeUnit.SECONDS.toNanos(1));
+    assertEquals(70, session.getRate(), 0.001);
+
+    // Sent after the decrease
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+    assertEquals(49, session.getRate(), 0.001);
+  }
+
+  @Test
+  void decreaseStopsAtTheMinimumRate() {
+    final AdaptiveRateController controller = new AdaptiveRateController();
+    controller.setMinRate(60);
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+    assertEquals(60, session.getRate(), 0.001);
+  }
+
+  @Test
+  void rateProbesBackUpToTheConfiguredRate() {
+    final AdaptiveRateController controller = new AdaptiveRateController();
+    controller.setIncreaseRatio(0.1);
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+    assertEquals(70, session.getRate(), 0.001);
+
+    // The interval of the decrease was congested
+    controller.adjust();
+    assertEquals(70, session.getRate(), 0.001);
+    controller.adjust();
+    assertEquals(80, session.getRate(), 0.001);
+    for (int i = 0; i < 5; i++) {
+      controller.adjust();
+    }
+    assertEquals(100, session.getRate(), 0.001);
+  }
+
+  @Test
+  void slowResponsesDecreaseTheRate() {
+    final AdaptiveRateController controller = new AdaptiveRateController();
+    controller.setLatencyThresholdMillis(100);
+    for (int i = 0; i < 10; i++) {
+      controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_ROK, 10 * MILLISECOND);
+    }
+    controller.adjust();
+    assertEquals(100, session.getRate(), 0.001);
+
+    for (int i = 0; i < 10; i++) {
+      controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_ROK, 200 * MILLISECOND);
+    }
+    controller.adjust();
+    assertEquals(70, session.getRate(), 0.001);
+  }
+
+  @Test
+  void accountRateFollowsTheCongestion() {
+    final Throttle accountThrottle = new TokenBucketThrottle(1000);
+    final AdaptiveRateController controller = new AdaptiveRateController(accountThrottle);
+    controller.onSubmitResponse(session, SMPPConstant.STAT_ESME_RTHROTTLED, 0);
+    assertEquals(700, accountThrottle.getRate(), 0.001);
+    assertEquals(70, session.getRate(), 0.001);
+
+    controller.adjust();
+    assertEquals(700, accountThrottle.getRate(), 0.001);
+    controller.adjust();
+    assertEquals(750, accountThrottle.getRate(), 0.001);
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * The hand-back is forced with a session throttled to 1 msg/s: its feeder sends one message right away, claims the next
+ * one and waits a second for its permit. The session is closed during that wait.
+ */
+class BatchSubmissionTest {
+
+  private TestSmsc smsc;
+  private ExecutorService executor;
+  private final List<GenericObjectPool<ThrottledSMPPSession>> pools = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    smsc = new TestSmsc();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    pools.forEach(GenericObjectPool::close);
+    executor.shutdownNow();
+    smsc.close();
+  }
+
+  @Test
+  void emptyBatchIsComplete() {
+    final BatchSubmission batch = new BatchSubmission(new ArrayList<>(), executor);
+    assertTrue(batch.getFuture().isDone());
+    assertTrue(batch.getFuture().join().isEmpty());
+  }
+
+  @Test
+  void resultsAreInTheOrderOfTheRequests() throws Exception {
+    final List<SubmitRequest> requests = requests(50);
+    final BatchSubmission batch = new BatchSubmission(requests, executor);
+    final ThrottledSMPPSession first = bind(0, 5);
+    final ThrottledSMPPSession second = bind(0, 5);
+    batch.addFeeder();
+    batch.addFeeder();
+    batch.feed(first);
+    batch.feed(second);
+
+    final List<SubmitResult> results = batch.getFuture().get(5, TimeUnit.SECONDS);
+    assertEquals(50, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertSame(requests.get(i), results.get(i).getRequest());
+      assertTrue(results.get(i).isSuccess());
+      assertNotNull(results.get(i).getMessageId());
+    }
+    assertEquals(50, smsc.getSubmits());
+  }
+
+  @Test
+  void claimedMessagesAreHandedBackToAnotherFeeder() throws Exception {
+    // Every submit_sm_resp takes 500ms, the fast session has a window of 1 and takes a message every 500ms
+    smsc.setSubmitDelayMillis(500);
+    final List<SubmitRequest> requests = requests(6);
+    final BatchSubmission batch = new BatchSubmission(requests, executor);
+    final ThrottledSMPPSession slow = bind(1, 10);
+    final ThrottledSMPPSession fast = bind(0, 1);
+    batch.addFeeder();
+    batch.addFeeder();
+    batch.feed(slow);
+    batch.feed(fast);
+
+    // The first message of the slow session is answered, its second one waits for a permit
+    Uninterruptibles.sleepUninterruptibly(700, TimeUnit.MILLISECONDS);
+    slow.close();
+
+    final List<SubmitResult> results = batch.getFuture().get(10, TimeUnit.SECONDS);
+    assertTrue(results.stream().allMatch(SubmitResult::isSuccess), "Failed: " + results);
+    assertEquals(6, smsc.getSubmits());
+  }
+
+  @Test
+  void unclaimedMessagesFailWhenTheLastFeederStops() throws Exception {
+    final List<SubmitRequest> requests = requests(3);
+    final BatchSubmission batch = new BatchSubmission(requests, executor);
+    final ThrottledSMPPSession slow = bind(1, 10);
+    batch.addFeeder();
+    batch.feed(slow);
+
+    Uninterruptibles.sleepUninterruptibly(300, TimeUnit.MILLISECONDS);
+    slow.close();
+
+    final List<SubmitResult> results = batch.getFuture().get(5, TimeUnit.SECONDS);
+    assertTrue(results.get(0).isSuccess());
+    for (final SubmitResult result : results.subList(1, 3)) {
+      assertFalse(result.isSuccess());
+      assertTrue(result.getFailure() instanceof IllegalStateException, "Failure " + result.getFailure());
+    }
+    assertEquals(1, smsc.getSubmits());
+  }
+
+  private ThrottledSMPPSession bind(final double messageRate, final int maxConcurrentRequests) throws Exception {
+    final GenericObjectPool<ThrottledSMPPSession> pool =
+        new GenericObjectPool<>(smsc.createFactory(messageRate, maxConcurrentRequests));
+    pools.add(pool);
+    return pool.borrowObject();
+  }
+
+  private static List<SubmitRequest> requests(final int count) {
+    final List<SubmitRequest> requests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      requests.add(SubmitRequest.builder()
+          .sourceAddr("31600000000")
+          .destinationAddr("31611111111")
+          .shortMessage(("Message " + i).getBytes(StandardCharsets.US_ASCII))
+          .build());
+    }
+    return requests;
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.SMPPConstant;
+import org.junit.jupiter.api.Test;
+
+class BindCircuitBreakerTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void invalidParameters() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new BindCircuitBreaker(0, Duration.ofSeconds(1), Duration.ofMinutes(1)));
+  }
+
+  @Test
+  void opensAfterTheFailureThreshold() {
+    final BindCircuitBreaker breaker = new BindCircuitBreaker();
+    breaker.recordFailure();
+    breaker.recordFailure();
+    assertEquals(BindCircuitBreaker.State.CLOSED, breaker.getState());
+    assertDoesNotThrow(breaker::acquireBind);
+
+    breaker.recordFailure();
+    assertEquals(BindCircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(3, breaker.getConsecutiveFailures());
+    assertThrows(BindCircuitOpenException.class, breaker::acquireBind);
+    assertEquals(1, breaker.getNumRejected());
+  }
+
+  @Test
+  void successResetsTheFailures() {
+    final BindCircuitBreaker breaker = new BindCircuitBreaker();
+    breaker.recordFailure();
+    breaker.recordFailure();
+    breaker.recordSuccess();
+    breaker.recordFailure();
+    assertEquals(BindCircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(1, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  void halfOpenPermitsASingleTrialBind() {
+    final BindCircuitBreaker breaker = new BindCircuitBreaker(1, Duration.ofSeconds(1), Duration.ofMinutes(1));
+    assertFalse(breaker.halfOpen(), "Half open while closed");
+    breaker.recordFailure();
+    assertTrue(breaker.halfOpen());
+    assertEquals(BindCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertDoesNotThrow(breaker::acquireBind);
+    assertThrows(BindCircuitOpenException.class, breaker::acquireBind);
+
+    breaker.recordSuccess();
+    assertEquals(BindCircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(0, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  void backoffDoublesWithEveryOpeningUpToTheMaximum() {
+    final BindCircuitBreaker breaker = new BindCircuitBreaker(1, Duration.ofSeconds(1), Duration.ofSeconds(4));
+    final List<Long> backoffs = new CopyOnWriteArrayList<>();
+    final List<Boolean> closes = new CopyOnWriteArrayList<>();
+    breaker.setListener(new BindCircuitBreaker.Listener() {
+      @Override
+      public void onOpen(final long backoffNanos) {
+        backoffs.add(backoffNanos);
+      }
+
+      @Override
+      public void onClose() {
+        closes.add(true);
+      }
+    });
+    breaker.recordFailure();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(breaker.halfOpen());
+      breaker.recordFailure();
+    }
+    assertEquals(4, backoffs.size());
+    // A random half of the backoff is added to the other half
+    final long[] backoff = { SECOND, 2 * SECOND, 4 * SECOND, 4 * SECOND };
+    for (int i = 0; i < backoff.length; i++) {
+      final long nanos = backoffs.get(i);
+      assertTrue(nanos >= backoff[i] / 2 && nanos <= backoff[i], "Backoff " + i + " " + nanos);
+    }
+
+    assertTrue(breaker.halfOpen());
+    breaker.recordSuccess();
+    assertEquals(1, closes.size());
+    breaker.recordFailure();
+    assertTrue(backoffs.get(4) <= SECOND, "The backoff did not start over");
+  }
+
+  @Test
+  void factoryHasNoBreakerByDefault() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc()) {
+      assertNull(smsc.createFactory(0, 10).getBindCircuitBreaker());
+    }
+  }
+
+  @Test
+  void poolRebindsWhenTheSmscIsBack() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc()) {
+      smsc.setBindStatus(SMPPConstant.STAT_ESME_RBINDFAIL);
+      final PooledSmppSessionFactory factory = smsc.createFactory(0, 10);
+      final BindCircuitBreaker breaker = new BindCircuitBreaker(2, Duration.ofSeconds(1), Duration.ofSeconds(1));
+      factory.setBindCircuitBreaker(breaker);
+      try (final PooledSMPPSession<ThrottledSMPPSession> pool = new PooledSMPPSession<>(factory, 2, 1, 2)) {
+        await(() -> breaker.getConsecutiveFailures() >= 1, "The warm-up did not bind");
+        assertThrows(Exception.class, pool::borrowObject);
+        await(() -> breaker.getState() != BindCircuitBreaker.State.CLOSED, "The breaker did not open");
+        final int binds = smsc.getBinds();
+        assertThrows(BindCircuitOpenException.class, () -> pool.getFactory().create());
+        assertEquals(binds, smsc.getBinds(), "The open breaker let a bind through");
+
+        smsc.setBindStatus(0);
+        await(() -> breaker.getState() == BindCircuitBreaker.State.CLOSED, "The re-binder did not close the breaker");
+        await(() -> pool.getNumIdle() >= 1, "The pool was not refilled");
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class CoalescingOutputStreamTest {
+
+  private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+  private final SocketStream socket = new SocketStream();
+
+  @Test
+  void writeOfAnIdleSessionIsImmediate() throws IOException {
+    final CoalescingOutputStream out = new CoalescingOutputStream(socket, 1024, MAX_DELAY_NANOS);
+    send(out, pdu(10));
+    assertEquals(10, socket.size());
+    assertEquals(1, socket.writes);
+    assertEquals(1, out.getNumFlushes());
+  }
+
+  @Test
+  void lastWriterFlushesForAll() throws IOException {
+    final CoalescingOutputStream out = new CoalescingOutputStream(socket, 1024, MAX_DELAY_NANOS);
+    out.enter();
+    out.enter();
+    out.enter();
+    for (int i = 0; i < 3; i++) {
+      out.write(pdu(10));
+      out.flush();
+      if (i < 2) {
+        out.exit();
+        assertEquals(0, socket.size());
+      }
+    }
+    out.exit();
+    assertEquals(30, socket.size());
+    assertEquals(1, socket.writes);
+    assertEquals(3, out.getNumWrites());
+    assertEquals(1, out.getNumFlushes());
+  }
+
+  @Test
+  void writeWithinTheMaxDelayIsDelayed() throws IOException {
+    final CoalescingOutputStream out = new CoalescingOutputStream(socket, 1024, MAX_DELAY_NANOS);
+    send(out, pdu(10));
+    send(out, pdu(10));
+    send(out, pdu(10));
+    assertEquals(10, socket.size());
+
+    await(() -> socket.size() == 30, "The delayed PDUs were not written");
+    assertEquals(2, socket.writes);
+  }
+
+  @Test
+  void bufferIsWrittenWhenThePduDoesNotFit() throws IOException {
+    final CoalescingOutputStream out = new CoalescingOutputStream(socket, 16, MAX_DELAY_NANOS);
+    out.enter();
+    out.write(pdu(10));
+    out.write(pdu(10));
+    assertEquals(10, socket.size());
+    // Larger than the buffer, written straight after the buffered PDU
+    out.write(pdu(20));
+    assertEquals(40, socket.size());
+    out.exit();
+  }
+
+  @Test
+  void failureOfADelayedWriteIsThrownToTheNextWriter() throws IOException {
+    final CoalescingOutputStream out = new CoalescingOutputStream(socket, 1024, MAX_DELAY_NANOS);
+    send(out, pdu(10));
+    socket.failure = new IOException("Broken pipe");
+    send(out, pdu(10));
+
+    await(() -> socket.closed, "The connection was not closed");
+    final IOException thrown = assertThrows(IOException.class, () -> send(out, pdu(10)));
+    assertSame(socket.failure, thrown.getCause());
+    assertTrue(thrown.getMessage().contains("coalesced"));
+  }
+
+  private static void send(final CoalescingOutputStream out, final byte[] pdu) throws IOException {
+    out.enter();
+    try {
+      out.write(pdu);
+      out.flush();
+    } finally {
+      out.exit();
+    }
+  }
+
+  private static byte[] pdu(final int length) {
+    return new byte[length];
+  }
+
+  private static final class SocketStream extends OutputStream {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private volatile int writes;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[]{ (byte) b }, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      writes++;
+      bytes.write(b, off, len);
+    }
+
+    private synchronized int size() {
+      return bytes.size();
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+final class Conditions {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  private Conditions() {
+  }
+
+  /**
+   * Wait until the condition holds, or fail the test after 5 seconds.
+   */
+  static void await(final BooleanSupplier condition, final String message) {
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        fail(message);
+      }
+      Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+    }
+  }
+}
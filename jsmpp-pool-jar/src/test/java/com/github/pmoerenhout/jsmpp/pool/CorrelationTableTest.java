@@ -0,0 +1,189 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CorrelationTableTest {
+
+  private static final int CAPACITY = 16;
+  private static final long NOW = 1000;
+  private static final long LATER = 2000;
+
+  @Test
+  void capacityIsAPowerOfTwo() {
+    assertThrows(IllegalArgumentException.class, () -> table(12));
+    assertEquals(16, CorrelationTable.capacityFor(1));
+    assertEquals(16, CorrelationTable.capacityFor(12));
+    assertEquals(32, CorrelationTable.capacityFor(13));
+    assertEquals(1024, CorrelationTable.capacityFor(768));
+  }
+
+  @Test
+  void putGetRemove() {
+    final CorrelationTable table = table(CAPACITY);
+    assertTrue(table.put(1, 11, LATER, NOW));
+    assertTrue(table.put(2, 22, LATER, NOW));
+    assertEquals(2, table.getSize());
+    assertEquals(11, table.get(1, NOW));
+    assertEquals(22, table.get(2, NOW));
+    assertEquals(CorrelationTable.NOT_FOUND, table.get(3, NOW));
+
+    assertTrue(table.put(1, 111, LATER, NOW));
+    assertEquals(2, table.getSize());
+    assertEquals(111, table.get(1, NOW));
+
+    assertEquals(111, table.remove(1, NOW));
+    assertEquals(1, table.getSize());
+    assertEquals(CorrelationTable.NOT_FOUND, table.get(1, NOW));
+    assertEquals(CorrelationTable.NOT_FOUND, table.remove(1, NOW));
+  }
+
+  @Test
+  void expiredEntryIsNotFound() {
+    final CorrelationTable table = table(CAPACITY);
+    assertTrue(table.put(1, 11, LATER, NOW));
+    assertEquals(CorrelationTable.NOT_FOUND, table.get(1, LATER));
+    assertEquals(CorrelationTable.NOT_FOUND, table.remove(1, LATER));
+    assertEquals(0, table.getSize());
+  }
+
+  @Test
+  void fullTable() {
+    final CorrelationTable table = table(CAPACITY);
+    for (int key = 0; key < 12; key++) {
+      assertTrue(table.put(key, key, LATER, NOW));
+    }
+    assertFalse(table.put(12, 12, LATER, NOW));
+    // A key already present is still replaced
+    assertTrue(table.put(5, 55, LATER, NOW));
+    assertEquals(55, table.get(5, NOW));
+    assertEquals(12, table.getSize());
+  }
+
+  @Test
+  void expiredSlotIsReused() {
+    final CorrelationTable table = table(CAPACITY);
+    final long[] keys = keysWithHome(13, 0, CAPACITY);
+    for (int i = 0; i < 12; i++) {
+      assertTrue(table.put(keys[i], i, i == 3 ? NOW : LATER, 0));
+    }
+    // The table is full, but the probe passes the expired entry
+    assertTrue(table.put(keys[12], 12, LATER, NOW + 1));
+    assertEquals(12, table.get(keys[12], NOW + 1));
+    assertEquals(12, table.getSize());
+    for (int i = 0; i < 12; i++) {
+      assertEquals(i == 3 ? CorrelationTable.NOT_FOUND : i, table.get(keys[i], NOW + 1));
+    }
+  }
+
+  @Test
+  void removeShiftsTheClusterBack() {
+    final CorrelationTable table = table(CAPACITY);
+    final long[] keys = keysWithHome(3, 0, CAPACITY);
+    for (final long key : keys) {
+      assertTrue(table.put(key, key + 100, LATER, NOW));
+    }
+    // Removing the first entry of the cluster must keep the others reachable
+    assertEquals(keys[0] + 100, table.remove(keys[0], NOW));
+    assertEquals(keys[1] + 100, table.get(keys[1], NOW));
+    assertEquals(keys[2] + 100, table.get(keys[2], NOW));
+    assertEquals(keys[1] + 100, table.remove(keys[1], NOW));
+    assertEquals(keys[2] + 100, table.get(keys[2], NOW));
+    assertEquals(1, table.getSize());
+  }
+
+  @Test
+  void removeDoesNotMoveAnEntryBeforeItsHome() {
+    final CorrelationTable table = table(CAPACITY);
+    final long first = keysWithHome(1, 0, CAPACITY)[0];
+    final long[] second = keysWithHome(2, 1, CAPACITY);
+    assertTrue(table.put(first, 1, LATER, NOW));
+    assertTrue(table.put(second[0], 2, LATER, NOW));
+    assertTrue(table.put(second[1], 3, LATER, NOW));
+    assertEquals(1, table.remove(first, NOW));
+    assertEquals(2, table.get(second[0], NOW));
+    assertEquals(3, table.get(second[1], NOW));
+    // Still found, so a put replaces the entry instead of adding a second one
+    assertTrue(table.put(second[1], 33, LATER, NOW));
+    assertEquals(2, table.getSize());
+  }
+
+  @Test
+  void removeWrapsAroundTheEnd() {
+    final CorrelationTable table = table(CAPACITY);
+    final long[] keys = keysWithHome(4, CAPACITY - 1, CAPACITY);
+    for (final long key : keys) {
+      assertTrue(table.put(key, key, LATER, NOW));
+    }
+    assertEquals(keys[0], table.remove(keys[0], NOW));
+    for (int i = 1; i < keys.length; i++) {
+      assertEquals(keys[i], table.get(keys[i], NOW));
+    }
+    assertEquals(keys.length - 1, table.getSize());
+  }
+
+  @Test
+  void sweepWrapsAroundTheEnd() {
+    final CorrelationTable table = table(CAPACITY);
+    // A cluster at the last slot continues at slot 0, the entries past slot 0 are swept before their predecessors
+    final long[] keys = keysWithHome(5, CAPACITY - 1, CAPACITY);
+    for (int i = 0; i < keys.length; i++) {
+      assertTrue(table.put(keys[i], keys[i], i % 2 == 0 ? NOW : LATER, 0));
+    }
+    assertEquals(3, table.sweep(NOW, 0, null, null));
+    assertEquals(2, table.getSize());
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(i % 2 == 0 ? CorrelationTable.NOT_FOUND : keys[i], table.get(keys[i], NOW));
+    }
+  }
+
+  @Test
+  void sweepMovesToTheTarget() {
+    final CorrelationTable table = table(CAPACITY);
+    final CorrelationTable target = table(CAPACITY);
+    table.put(1, 11, NOW, 0);
+    table.put(2, 22, NOW + 10, 0);
+    table.put(3, 33, LATER, 0);
+    final AtomicInteger moved = new AtomicInteger();
+    assertEquals(1, table.sweep(NOW, NOW + 100, target, moved::incrementAndGet));
+    assertEquals(1, moved.get());
+    assertEquals(1, table.getSize());
+    assertEquals(33, table.get(3, NOW));
+    assertEquals(1, target.getSize());
+    assertEquals(22, target.get(2, NOW));
+  }
+
+  @Test
+  void existingEntriesAreKept() {
+    final LongBuffer slots = LongBuffer.allocate(CAPACITY * CorrelationTable.SLOT_LONGS);
+    final CorrelationTable table = new CorrelationTable(slots);
+    table.put(1, 11, LATER, NOW);
+    table.put(2, 22, LATER, NOW);
+    final CorrelationTable reopened = new CorrelationTable(slots);
+    assertEquals(2, reopened.getSize());
+    assertEquals(11, reopened.get(1, NOW));
+    assertEquals(22, reopened.get(2, NOW));
+  }
+
+  private static CorrelationTable table(final int capacity) {
+    return new CorrelationTable(LongBuffer.allocate(capacity * CorrelationTable.SLOT_LONGS));
+  }
+
+  private static long[] keysWithHome(final int count, final int home, final int capacity) {
+    final long[] keys = new long[count];
+    int found = 0;
+    for (long key = 1; found < count; key++) {
+      if (((int) CorrelationTable.mix(key) & (capacity - 1)) == home) {
+        keys[found++] = key;
+      }
+    }
+    return keys;
+  }
+}
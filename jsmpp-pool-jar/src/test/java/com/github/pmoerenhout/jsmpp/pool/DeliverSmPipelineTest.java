@@ -0,0 +1,161 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.ESMClass;
+import org.jsmpp.bean.GSMSpecificFeature;
+import org.jsmpp.bean.MessageMode;
+import org.jsmpp.bean.MessageType;
+import org.jsmpp.bean.OptionalParameter;
+import org.jsmpp.extra.ProcessRequestException;
+import org.junit.jupiter.api.Test;
+
+class DeliverSmPipelineTest {
+
+  @Test
+  void keyOfADeliveryReceipt() {
+    final DeliverSm tlv = receipt("12345", "id:67890 sub:001 dlvrd:001 stat:DELIVRD");
+    tlv.setOptionalParameters(new OptionalParameter.COctetString(OptionalParameter.Tag.RECEIPTED_MESSAGE_ID.code(), "abc"));
+    assertEquals("abc", DeliverSmPipeline.messageIdKey(tlv));
+    assertEquals("67890", DeliverSmPipeline.messageIdKey(receipt("12345", "id:67890 sub:001 dlvrd:001 stat:DELIVRD")));
+    assertEquals("12345", DeliverSmPipeline.messageIdKey(receipt("12345", "stat:DELIVRD")));
+
+    final DeliverSm message = receipt("12345", "id:67890");
+    message.setEsmClass((byte) 0);
+    assertEquals("12345", DeliverSmPipeline.messageIdKey(message));
+  }
+
+  @Test
+  void receiptsOfAMessageAreHandledInOrder() throws Exception {
+    final Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+    final DeliverSmPipeline pipeline = new DeliverSmPipeline(deliverSm -> {
+      final String text = new String(deliverSm.getShortMessage(), StandardCharsets.ISO_8859_1);
+      handled.computeIfAbsent(text.substring(3, 4), id -> new CopyOnWriteArrayList<>()).add(deliverSm.getSequenceNumber());
+    }, AckMode.ON_QUEUE, 4, 16);
+    for (int i = 0; i < 100; i++) {
+      final DeliverSm deliverSm = receipt("31611111111", "id:" + (i % 10) + " stat:DELIVRD");
+      deliverSm.setSequenceNumber(i);
+      pipeline.onAcceptDeliverSm(deliverSm);
+    }
+    pipeline.close();
+
+    assertEquals(100, pipeline.getNumHandled());
+    assertEquals(10, handled.size());
+    for (final List<Integer> sequenceNumbers : handled.values()) {
+      final List<Integer> sorted = new ArrayList<>(sequenceNumbers);
+      sorted.sort(Integer::compare);
+      assertEquals(sorted, sequenceNumbers);
+    }
+  }
+
+  @Test
+  void fullPartitionHoldsBackTheResponse() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final DeliverSmPipeline pipeline = new DeliverSmPipeline(deliverSm -> release.await(), AckMode.ON_QUEUE, 1, 1);
+    pipeline.setMaxDelayMillis(100);
+    try {
+      pipeline.onAcceptDeliverSm(receipt("31611111111", "id:1"));
+      await(() -> pipeline.getQueued() == 0, "The worker did not take the deliver_sm");
+      pipeline.onAcceptDeliverSm(receipt("31611111111", "id:1"));
+
+      final ProcessRequestException rejected = assertThrows(ProcessRequestException.class,
+          () -> pipeline.onAcceptDeliverSm(receipt("31611111111", "id:1")));
+      assertEquals(SMPPConstant.STAT_ESME_RX_T_APPN, rejected.getErrorCode());
+      assertEquals(1, pipeline.getNumDelayed());
+      assertEquals(1, pipeline.getNumRejected());
+      assertEquals(2, pipeline.getNumAccepted());
+    } finally {
+      release.countDown();
+      pipeline.close();
+    }
+    assertEquals(2, pipeline.getNumHandled());
+  }
+
+  @Test
+  void failedHandlerIsAnsweredWithOnCommit() {
+    final DeliverSmPipeline pipeline = new DeliverSmPipeline(deliverSm -> {
+      if (deliverSm.getSourceAddr().equals("1")) {
+        throw new IllegalStateException("Database is down");
+      }
+    }, AckMode.ON_COMMIT, 2, 16);
+    try {
+      final ProcessRequestException failure = assertThrows(ProcessRequestException.class,
+          () -> pipeline.onAcceptDeliverSm(message("1")));
+      assertEquals(SMPPConstant.STAT_ESME_RX_T_APPN, failure.getErrorCode());
+      assertDoesNotThrow(() -> pipeline.onAcceptDeliverSm(message("2")));
+      assertEquals(1, pipeline.getNumFailed());
+      assertEquals(1, pipeline.getNumHandled());
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  @Test
+  void deliveryThatIsNotCommittedInTimeIsSkipped() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> handled = new CopyOnWriteArrayList<>();
+    final DeliverSmPipeline pipeline = new DeliverSmPipeline(deliverSm -> {
+      release.await(5, TimeUnit.SECONDS);
+      handled.add(deliverSm.getSourceAddr());
+    }, AckMode.ON_COMMIT, 1, 16);
+    pipeline.setMaxDelayMillis(100);
+    final Thread first = new Thread(() -> {
+      try {
+        pipeline.onAcceptDeliverSm(message("1"));
+      } catch (ProcessRequestException e) {
+        // expires as well
+      }
+    });
+    first.start();
+    await(() -> pipeline.getNumAccepted() == 1 && pipeline.getQueued() == 0, "The worker did not take the deliver_sm");
+
+    assertThrows(ProcessRequestException.class, () -> pipeline.onAcceptDeliverSm(message("2")));
+    release.countDown();
+    first.join();
+    pipeline.close();
+    assertEquals(1, pipeline.getNumExpired());
+    assertEquals(1, handled.size());
+    assertEquals("1", handled.get(0));
+  }
+
+  @Test
+  void dataSmWithoutDelegateIsRejected() {
+    final DeliverSmPipeline pipeline = new DeliverSmPipeline(deliverSm -> {
+    }, AckMode.ON_QUEUE, 1, 1);
+    try {
+      final ProcessRequestException rejected = assertThrows(ProcessRequestException.class,
+          () -> pipeline.onAcceptDataSm(null, null));
+      assertEquals(SMPPConstant.STAT_ESME_RINVCMDID, rejected.getErrorCode());
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  private static DeliverSm receipt(final String sourceAddr, final String text) {
+    final DeliverSm deliverSm = message(sourceAddr);
+    deliverSm.setEsmClass(new ESMClass(MessageMode.DEFAULT, MessageType.SMSC_DEL_RECEIPT, GSMSpecificFeature.DEFAULT).value());
+    deliverSm.setShortMessage(text.getBytes(StandardCharsets.ISO_8859_1));
+    return deliverSm;
+  }
+
+  private static DeliverSm message(final String sourceAddr) {
+    final DeliverSm deliverSm = new DeliverSm();
+    deliverSm.setSourceAddr(sourceAddr);
+    deliverSm.setShortMessage(new byte[0]);
+    return deliverSm;
+  }
+}
@@ -0,0 +1,109 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.jsmpp.util.DeliveryReceiptState;
+import org.junit.jupiter.api.Test;
+
+class DeliveryReceiptViewTest {
+
+  private final DeliveryReceiptView view = new DeliveryReceiptView();
+
+  @Test
+  void wrapReceipt() {
+    final String receipt = "id:0123456789 sub:001 dlvrd:001 submit date:2310171230 done date:231017123145 stat:DELIVRD "
+        + "err:000 text:Hello world";
+    assertTrue(view.wrap(bytes(receipt)));
+    assertEquals(123456789L, view.getId(10));
+    assertEquals(0x123456789L, view.getId(16));
+    assertTrue(view.idEquals("0123456789"));
+    assertFalse(view.idEquals("123456789"));
+    assertEquals("0123456789", view.getIdAsString());
+    assertEquals(3, view.getIdOffset());
+    assertEquals(10, view.getIdLength());
+    assertEquals(1, view.getSubmitted());
+    assertEquals(1, view.getDelivered());
+    assertEquals(epochMillis(2023, 10, 17, 12, 30, 0), view.getSubmitDate());
+    assertEquals(epochMillis(2023, 10, 17, 12, 31, 45), view.getDoneDate());
+    assertEquals(DeliveryReceiptState.DELIVRD, view.getState());
+    assertEquals(0, view.getError());
+    assertEquals("Hello world", new String(view.getSource(), view.getTextOffset(), view.getTextLength(),
+        StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void fieldsInAnyOrderAndCase() {
+    assertTrue(view.wrap(bytes("STAT:undeliv Err:012 ID:ABC Done Date:2402290000")));
+    assertEquals(0xabcL, view.getId(16));
+    assertEquals(-1, view.getId(10));
+    assertEquals(DeliveryReceiptState.UNDELIV, view.getState());
+    assertEquals(12, view.getError());
+    assertEquals(epochMillis(2024, 2, 29, 0, 0, 0), view.getDoneDate());
+    assertEquals(-1, view.getSubmitted());
+    assertEquals(-1, view.getDelivered());
+    assertEquals(-1, view.getSubmitDate());
+    assertEquals(-1, view.getTextOffset());
+  }
+
+  @Test
+  void invalidFields() {
+    assertTrue(view.wrap(bytes("id:1 sub:x dlvrd: submit date:2313011200 done date:23101 stat:GONE err:-1")));
+    assertEquals(1, view.getId(10));
+    assertEquals(-1, view.getSubmitted());
+    assertEquals(-1, view.getDelivered());
+    assertEquals(-1, view.getSubmitDate());
+    assertEquals(-1, view.getDoneDate());
+    assertNull(view.getState());
+    assertEquals(-1, view.getError());
+  }
+
+  @Test
+  void notAReceipt() {
+    assertFalse(view.wrap(null));
+    assertFalse(view.wrap(bytes("Hello world")));
+    // A key in the middle of a word is not a field
+    assertFalse(view.wrap(bytes("paid:123")));
+    // The text is the last field, an id in the text does not count
+    assertFalse(view.wrap(bytes("stat:DELIVRD text:id:123")));
+  }
+
+  @Test
+  void wrapReusesTheView() {
+    assertTrue(view.wrap(bytes("id:1 stat:DELIVRD err:5")));
+    assertTrue(view.wrap(bytes("id:2")));
+    assertEquals(2, view.getId(10));
+    assertNull(view.getState());
+    assertEquals(-1, view.getError());
+  }
+
+  @Test
+  void wrapRange() {
+    final byte[] source = bytes("xxid:42 sub:007yy");
+    assertTrue(view.wrap(source, 2, 13));
+    assertEquals(42, view.getId(10));
+    assertEquals(7, view.getSubmitted());
+  }
+
+  @Test
+  void offsetSeconds() {
+    view.setOffsetSeconds(2 * 3600);
+    assertTrue(view.wrap(bytes("id:1 submit date:2310171230")));
+    assertEquals(epochMillis(2023, 10, 17, 10, 30, 0), view.getSubmitDate());
+  }
+
+  private static byte[] bytes(final String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static long epochMillis(final int year, final int month, final int day, final int hour, final int minute,
+                                  final int second) {
+    return LocalDateTime.of(year, month, day, hour, minute, second).toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+}
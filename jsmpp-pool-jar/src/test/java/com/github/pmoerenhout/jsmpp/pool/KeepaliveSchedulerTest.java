@@ -0,0 +1,97 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.jsmpp.extra.SessionState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+class KeepaliveSchedulerTest {
+
+  private static final SubmitRequest REQUEST = SubmitRequest.builder()
+      .sourceAddr("31600000000")
+      .destinationAddr("31611111111")
+      .shortMessage("Hello".getBytes(StandardCharsets.US_ASCII))
+      .build();
+
+  private TestSmsc smsc;
+  private KeepaliveScheduler keepalive;
+  private GenericObjectPool<ThrottledSMPPSession> pool;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    smsc = new TestSmsc();
+    keepalive = new KeepaliveScheduler(20, TimeUnit.MILLISECONDS, 64, 2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+    keepalive.close();
+    smsc.close();
+  }
+
+  @Test
+  void invalidParameters() {
+    assertThrows(IllegalArgumentException.class, () -> new KeepaliveScheduler(20, TimeUnit.MILLISECONDS, 100, 2));
+    assertThrows(IllegalArgumentException.class, () -> new KeepaliveScheduler(20, TimeUnit.MILLISECONDS, 64, 0));
+  }
+
+  @Test
+  void idleBindIsPinged() throws Exception {
+    final ThrottledSMPPSession session = bind(200, 1000);
+    assertEquals(1, keepalive.getNumSessions());
+    await(() -> keepalive.getNumSent() >= 2, "The idle bind was not pinged");
+    assertTrue(smsc.getEnquireLinks() >= 2);
+    assertEquals(SessionState.BOUND_TRX, session.getSessionState());
+  }
+
+  @Test
+  void activeBindIsNotPinged() throws Exception {
+    final ThrottledSMPPSession session = bind(200, 1000);
+    final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(600);
+    while (System.nanoTime() < end) {
+      session.submitAsync(REQUEST, ForkJoinPool.commonPool()).get(5, TimeUnit.SECONDS);
+      Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+    }
+    assertEquals(0, smsc.getEnquireLinks());
+    assertTrue(keepalive.getNumSkipped() >= 1, "The deadline of the active bind did not move");
+  }
+
+  @Test
+  void bindThatFailsItsEnquireLinkIsClosed() throws Exception {
+    smsc.setMuteEnquireLink(true);
+    final ThrottledSMPPSession session = bind(200, 300);
+    await(() -> keepalive.getNumFailed() == 1, "The enquire link did not fail");
+    await(() -> session.getSessionState() == SessionState.CLOSED, "The bind was not closed");
+    assertEquals(0, keepalive.getNumSessions());
+  }
+
+  @Test
+  void destroyedBindIsUnregistered() throws Exception {
+    final ThrottledSMPPSession session = bind(200, 1000);
+    assertEquals(1, keepalive.getNumSessions());
+    pool.invalidateObject(session);
+    assertEquals(0, keepalive.getNumSessions());
+  }
+
+  private ThrottledSMPPSession bind(final int enquireLinkTimer, final long transactionTimer) throws Exception {
+    final PooledSmppSessionFactory factory = smsc.createFactory(enquireLinkTimer, transactionTimer, 0, 10);
+    factory.setKeepaliveScheduler(keepalive);
+    pool = new GenericObjectPool<>(factory);
+    return pool.borrowObject();
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class MessageIdsTest {
+
+  @Test
+  void parseDecimal() {
+    assertEquals(0, MessageIds.parse("0", 10));
+    assertEquals(1234567890L, MessageIds.parse("1234567890", 10));
+    assertEquals(Long.MAX_VALUE, MessageIds.parse(Long.toString(Long.MAX_VALUE), 10));
+  }
+
+  @Test
+  void parseHexInEitherCase() {
+    assertEquals(255, MessageIds.parse("ff", 16));
+    assertEquals(255, MessageIds.parse("FF", 16));
+    assertEquals(0x7fffffffffffffffL, MessageIds.parse("7fffffffffffffff", 16));
+  }
+
+  @Test
+  void parseInvalid() {
+    assertEquals(-1, MessageIds.parse("", 10));
+    assertEquals(-1, MessageIds.parse("12a", 10));
+    assertEquals(-1, MessageIds.parse("fg", 16));
+    assertEquals(-1, MessageIds.parse("-1", 10));
+    assertEquals(-1, MessageIds.parse("1\u00E9", 10));
+  }
+
+  @Test
+  void parseOverflow() {
+    assertEquals(-1, MessageIds.parse("9223372036854775808", 10));
+    assertEquals(-1, MessageIds.parse("99999999999999999999", 10));
+    assertEquals(-1, MessageIds.parse("8000000000000000", 16));
+    assertEquals(-1, MessageIds.parse("10000000000000000", 16));
+  }
+
+  @Test
+  void parseBytesAtOffset() {
+    final byte[] source = "id:0A1b2C rest".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(0x0a1b2cL, MessageIds.parse(source, 3, 6, 16));
+    assertEquals(-1, MessageIds.parse(source, 3, 6, 10));
+    assertEquals(-1, MessageIds.parse(source, 3, 0, 16));
+  }
+
+  @Test
+  void formatHex() {
+    final byte[] target = new byte[20];
+    assertEquals(1, MessageIds.formatHex(0, target, 2));
+    assertEquals("0", new String(target, 2, 1, StandardCharsets.US_ASCII));
+    assertEquals(5, MessageIds.formatHex(0x0a1b2cL, target, 2));
+    assertEquals("A1B2C", new String(target, 2, 5, StandardCharsets.US_ASCII));
+    assertEquals(16, MessageIds.formatHex(-1L, target, 0));
+    assertEquals("FFFFFFFFFFFFFFFF", new String(target, 0, 16, StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void appendHex() {
+    assertEquals("0", MessageIds.appendHex(new StringBuilder(), 0).toString());
+    assertEquals("x7FFFFFFFFFFFFFFF", MessageIds.appendHex(new StringBuilder("x"), Long.MAX_VALUE).toString());
+    assertEquals("1000", MessageIds.appendHex(new StringBuilder(), 0x1000).toString());
+  }
+
+  @Test
+  void hexRoundTrip() {
+    final byte[] target = new byte[16];
+    for (final long id : new long[]{ 1, 15, 16, 0xdeadbeefL, Long.MAX_VALUE }) {
+      final int length = MessageIds.formatHex(id, target, 0);
+      assertEquals(id, MessageIds.parse(target, 0, length, 16));
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsmpp.bean.Alphabet;
+import org.jsmpp.bean.GeneralDataCoding;
+import org.jsmpp.bean.OptionalParameter;
+import org.junit.jupiter.api.Test;
+
+class MessageSegmenterTest {
+
+  private static final SubmitRequest TEMPLATE = SubmitRequest.builder()
+      .sourceAddr("Test")
+      .destinationAddr("31612345678")
+      .build();
+
+  private final MessageSegmenter udh = new MessageSegmenter(Concatenation.UDH);
+  private final MessageSegmenter sar = new MessageSegmenter(Concatenation.SAR);
+
+  @Test
+  void selectEncoding() {
+    assertEquals(MessageEncoding.GSM7, MessageSegmenter.selectEncoding(""));
+    assertEquals(MessageEncoding.GSM7, MessageSegmenter.selectEncoding("Hello @ \u00A3 \u00E8 [\u20AC] \u0394"));
+    assertEquals(MessageEncoding.LATIN1, MessageSegmenter.selectEncoding("Cr\u00E8me br\u00FBl\u00E9e"));
+    assertEquals(MessageEncoding.UCS2, MessageSegmenter.selectEncoding("\u3053\u3093\u306B\u3061\u306F"));
+    // Each character fits one of the encodings, together only UCS-2 holds both
+    assertEquals(MessageEncoding.UCS2, MessageSegmenter.selectEncoding("\u0394\u00E2"));
+    assertEquals(MessageEncoding.UCS2, MessageSegmenter.selectEncoding("\u20AC\u00E2"));
+  }
+
+  @Test
+  void encode() {
+    final byte[] buffer = new byte[16];
+    assertEquals(3, MessageSegmenter.encode("a\u20AC", MessageEncoding.GSM7, buffer));
+    assertArrayEquals(new byte[]{ 'a', GsmAlphabet.ESCAPE, 0x65 }, Arrays.copyOf(buffer, 3));
+    assertEquals(1, MessageSegmenter.encode("\u0394", MessageEncoding.GSM7, buffer));
+    assertEquals(0x10, buffer[0]);
+    assertEquals(2, MessageSegmenter.encode("\u00E2b", MessageEncoding.LATIN1, buffer));
+    assertArrayEquals("\u00E2b".getBytes(StandardCharsets.ISO_8859_1), Arrays.copyOf(buffer, 2));
+    assertEquals(4, MessageSegmenter.encode("\u0394\u00E2", MessageEncoding.UCS2, buffer));
+    assertArrayEquals("\u0394\u00E2".getBytes(StandardCharsets.UTF_16BE), Arrays.copyOf(buffer, 4));
+  }
+
+  @Test
+  void singleSegmentBoundaries() {
+    assertSingle(repeat('a', 160), Alphabet.ALPHA_DEFAULT, 160);
+    assertSingle(repeat('\u00E2', 140), Alphabet.ALPHA_LATIN1, 140);
+    assertSingle(repeat('\u3042', 70), Alphabet.ALPHA_UCS2, 140);
+    // The euro sign takes two septets
+    assertSingle(repeat('a', 158) + "\u20AC", Alphabet.ALPHA_DEFAULT, 160);
+  }
+
+  @Test
+  void gsmSegments() {
+    final List<SubmitRequest> segments = udh.segment(TEMPLATE, repeat('a', 161));
+    assertEquals(2, segments.size());
+    assertEquals(6 + 153, segments.get(0).getShortMessage().length);
+    assertEquals(6 + 8, segments.get(1).getShortMessage().length);
+    assertUdh(segments);
+  }
+
+  @Test
+  void latin1Segments() {
+    final List<SubmitRequest> segments = udh.segment(TEMPLATE, repeat('\u00E2', 141));
+    assertEquals(2, segments.size());
+    assertEquals(6 + 134, segments.get(0).getShortMessage().length);
+    assertEquals(6 + 7, segments.get(1).getShortMessage().length);
+    assertEquals(new GeneralDataCoding(Alphabet.ALPHA_LATIN1).toByte(), segments.get(0).getDataCoding().toByte());
+  }
+
+  @Test
+  void ucs2Segments() {
+    final List<SubmitRequest> segments = udh.segment(TEMPLATE, repeat('\u3042', 71));
+    assertEquals(2, segments.size());
+    assertEquals(6 + 134, segments.get(0).getShortMessage().length);
+    assertEquals(6 + 8, segments.get(1).getShortMessage().length);
+  }
+
+  @Test
+  void gsmEscapeIsNotSplit() {
+    // The escape of the euro sign would be the last octet of the first segment
+    final List<SubmitRequest> segments = udh.segment(TEMPLATE, repeat('a', 152) + "\u20AC" + repeat('a', 20));
+    assertEquals(2, segments.size());
+    assertEquals(6 + 152, segments.get(0).getShortMessage().length);
+    final byte[] second = segments.get(1).getShortMessage();
+    assertEquals(6 + 22, second.length);
+    assertEquals(GsmAlphabet.ESCAPE, second[6]);
+    assertEquals(0x65, second[7]);
+  }
+
+  @Test
+  void surrogatePairIsNotSplit() {
+    // The high surrogate would be the last character of the first segment
+    final List<SubmitRequest> segments = udh.segment(TEMPLATE, repeat('a', 66) + "\uD83D\uDE00" + repeat('a', 10));
+    assertEquals(2, segments.size());
+    assertEquals(6 + 132, segments.get(0).getShortMessage().length);
+    final byte[] second = segments.get(1).getShortMessage();
+    assertEquals(6 + 24, second.length);
+    assertEquals("\uD83D\uDE00", new String(second, 6, 4, StandardCharsets.UTF_16BE));
+  }
+
+  @Test
+  void sarSegments() {
+    // Without a UDH a segment holds as much as a single message
+    assertEquals(2, sar.segment(TEMPLATE, repeat('a', 320)).size());
+    assertEquals(2, sar.segment(TEMPLATE, repeat('\u3042', 140)).size());
+    final List<SubmitRequest> segments = sar.segment(TEMPLATE, repeat('a', 321));
+    assertEquals(3, segments.size());
+    int ref = -1;
+    for (int i = 0; i < segments.size(); i++) {
+      final SubmitRequest segment = segments.get(i);
+      assertEquals(0, segment.getEsmClass().value() & 0x40);
+      assertEquals(i < 2 ? 160 : 1, segment.getShortMessage().length);
+      final OptionalParameter[] optionalParameters = segment.getOptionalParameters();
+      assertEquals(3, optionalParameters.length);
+      final short segmentRef = ((OptionalParameter.Sar_msg_ref_num) optionalParameters[0]).getValue();
+      if (i == 0) {
+        ref = segmentRef;
+      }
+      assertEquals(ref, segmentRef);
+      assertEquals(3, ((OptionalParameter.Sar_total_segments) optionalParameters[1]).getValue());
+      assertEquals(i + 1, ((OptionalParameter.Sar_segment_seqnum) optionalParameters[2]).getValue());
+    }
+  }
+
+  @Test
+  void textOfSegmentsIsComplete() {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      text.append((char) ('a' + i % 26));
+    }
+    final StringBuilder joined = new StringBuilder();
+    for (final SubmitRequest segment : udh.segment(TEMPLATE, text)) {
+      final byte[] shortMessage = segment.getShortMessage();
+      joined.append(new String(shortMessage, 6, shortMessage.length - 6, StandardCharsets.US_ASCII));
+    }
+    assertEquals(text.toString(), joined.toString());
+  }
+
+  @Test
+  void tooManySegments() {
+    assertEquals(255, udh.segment(TEMPLATE, repeat('a', 255 * 153)).size());
+    assertThrows(IllegalArgumentException.class, () -> udh.segment(TEMPLATE, repeat('a', 255 * 153 + 1)));
+    assertEquals(255, sar.segment(TEMPLATE, repeat('a', 255 * 160)).size());
+    assertThrows(IllegalArgumentException.class, () -> sar.segment(TEMPLATE, repeat('a', 255 * 160 + 1)));
+  }
+
+  private void assertSingle(final String text, final Alphabet alphabet, final int octets) {
+    for (final MessageSegmenter segmenter : new MessageSegmenter[]{ udh, sar }) {
+      final List<SubmitRequest> segments = segmenter.segment(TEMPLATE, text);
+      assertEquals(1, segments.size());
+      final SubmitRequest segment = segments.get(0);
+      assertEquals(octets, segment.getShortMessage().length);
+      assertEquals(new GeneralDataCoding(alphabet).toByte(), segment.getDataCoding().toByte());
+      assertEquals(0, segment.getEsmClass().value() & 0x40);
+      assertEquals(0, segment.getOptionalParameters().length);
+    }
+  }
+
+  private static void assertUdh(final List<SubmitRequest> segments) {
+    final byte ref = segments.get(0).getShortMessage()[3];
+    for (int i = 0; i < segments.size(); i++) {
+      final SubmitRequest segment = segments.get(i);
+      assertTrue((segment.getEsmClass().value() & 0x40) != 0);
+      final byte[] header = Arrays.copyOf(segment.getShortMessage(), 6);
+      assertArrayEquals(new byte[]{ 0x05, 0x00, 0x03, ref, (byte) segments.size(), (byte) (i + 1) }, header);
+    }
+  }
+
+  private static String repeat(final char c, final int count) {
+    final char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+}
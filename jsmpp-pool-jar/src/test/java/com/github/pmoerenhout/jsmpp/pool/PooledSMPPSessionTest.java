@@ -0,0 +1,54 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.util.MessageId;
+import org.junit.jupiter.api.Test;
+
+class PooledSMPPSessionTest {
+
+  private static final SubmitRequest REQUEST = SubmitRequest.builder()
+      .sourceAddr("31600000000")
+      .destinationAddr("31611111111")
+      .shortMessage("Hello".getBytes(StandardCharsets.US_ASCII))
+      .build();
+
+  @Test
+  void submitAsyncDoesNotWaitForTheBind() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc();
+         final PooledSMPPSession<ThrottledSMPPSession> pool = new PooledSMPPSession<>(smsc.createFactory(0, 10), 2, 0, 2)) {
+      smsc.setBindDelayMillis(1000);
+      final long start = System.nanoTime();
+      final CompletableFuture<MessageId> submitted = pool.submitAsync(REQUEST);
+      final CompletableFuture<List<MessageId>> segments = pool.submitLongMessage(REQUEST, "Hello");
+      assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500, "The caller waited for the bind");
+      assertFalse(submitted.isDone());
+
+      assertNotNull(submitted.get(5, TimeUnit.SECONDS));
+      assertEquals(1, segments.get(5, TimeUnit.SECONDS).size());
+      assertEquals(2, smsc.getSubmits());
+    }
+  }
+
+  @Test
+  void submitAsyncFailsWhenNoSessionCanBeBound() throws Exception {
+    final TestSmsc smsc = new TestSmsc();
+    final PooledSmppSessionFactory factory = smsc.createFactory(0, 10);
+    smsc.close();
+    try (final PooledSMPPSession<ThrottledSMPPSession> pool = new PooledSMPPSession<>(factory, 1, 0, 1)) {
+      final ExecutionException failure = assertThrows(ExecutionException.class,
+          () -> pool.submitAsync(REQUEST).get(5, TimeUnit.SECONDS));
+      assertNotNull(failure.getCause());
+    }
+  }
+}
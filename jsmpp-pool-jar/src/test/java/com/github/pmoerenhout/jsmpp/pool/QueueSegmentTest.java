@@ -0,0 +1,147 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class QueueSegmentTest {
+
+  private static final int SIZE = 4096;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void replayPendingRecords() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, SIZE);
+    final int first = append(segment, "first");
+    append(segment, "second");
+    append(segment, "third");
+    assertFalse(segment.complete(first, QueueSegment.ACKED));
+    segment.close();
+
+    final List<String> replayed = new ArrayList<>();
+    final QueueSegment reopened = QueueSegment.open(directory, 1, SIZE);
+    assertEquals(2, reopened.replay((payload, offset) -> replayed.add(string(payload))));
+    assertEquals(2, reopened.getPending());
+    reopened.close();
+    assertEquals(Arrays.asList("second", "third"), replayed);
+  }
+
+  @Test
+  void recordWithoutLengthEndsTheReplay() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, SIZE);
+    append(segment, "first");
+    final int torn = append(segment, "second");
+    segment.close();
+    // A crash before the length of the second record was written
+    writeInt(torn, 0);
+
+    final List<String> replayed = new ArrayList<>();
+    final QueueSegment reopened = QueueSegment.open(directory, 1, SIZE);
+    assertEquals(1, reopened.replay((payload, offset) -> replayed.add(string(payload))));
+    assertEquals(Arrays.asList("first"), replayed);
+    // The next record overwrites the torn one
+    assertEquals(torn, append(reopened, "third"));
+    reopened.close();
+  }
+
+  @Test
+  void recordWithBadChecksumEndsTheReplay() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, SIZE);
+    append(segment, "first");
+    final int torn = append(segment, "second");
+    append(segment, "third");
+    segment.close();
+    // The payload of the second record did not fully reach the disk
+    writeInt(torn + QueueSegment.HEADER_SIZE, 0);
+
+    final List<String> replayed = new ArrayList<>();
+    final QueueSegment reopened = QueueSegment.open(directory, 1, SIZE);
+    assertEquals(1, reopened.replay((payload, offset) -> replayed.add(string(payload))));
+    reopened.close();
+    assertEquals(Arrays.asList("first"), replayed);
+  }
+
+  @Test
+  void recordLongerThanTheSegmentEndsTheReplay() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, SIZE);
+    final int torn = append(segment, "first");
+    segment.close();
+    writeInt(torn, SIZE);
+
+    final QueueSegment reopened = QueueSegment.open(directory, 1, SIZE);
+    assertEquals(0, reopened.replay((payload, offset) -> {
+      throw new AssertionError("Replayed a torn record");
+    }));
+    reopened.close();
+  }
+
+  @Test
+  void fullSegment() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, 64);
+    assertEquals(0, segment.append(40, buffer -> buffer.put(new byte[40])));
+    assertEquals(-1, segment.append(20, buffer -> buffer.put(new byte[20])));
+    segment.close();
+  }
+
+  @Test
+  void deleteWhenSealedAndCompleted() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 7, SIZE);
+    final Path path = directory.resolve(String.format("%020d.log", 7));
+    assertEquals(7, QueueSegment.parseId(path));
+    final int first = append(segment, "first");
+    final int second = append(segment, "second");
+    assertFalse(segment.seal());
+    assertFalse(segment.complete(first, QueueSegment.ACKED));
+    assertTrue(segment.complete(second, QueueSegment.FAILED));
+    segment.delete();
+    assertFalse(Files.exists(path));
+  }
+
+  @Test
+  void completeAfterCloseIsIgnored() throws IOException {
+    final QueueSegment segment = QueueSegment.open(directory, 1, SIZE);
+    final int offset = append(segment, "first");
+    assertFalse(segment.seal());
+    segment.close();
+    assertFalse(segment.complete(offset, QueueSegment.ACKED));
+
+    final QueueSegment reopened = QueueSegment.open(directory, 1, SIZE);
+    assertEquals(1, reopened.replay((payload, o) -> { }));
+    reopened.close();
+  }
+
+  private int append(final QueueSegment segment, final String payload) {
+    final byte[] bytes = payload.getBytes(StandardCharsets.US_ASCII);
+    return segment.append(bytes.length, buffer -> buffer.put(bytes));
+  }
+
+  private void writeInt(final int position, final int value) throws IOException {
+    try (FileChannel channel = FileChannel.open(directory.resolve(String.format("%020d.log", 1)),
+        StandardOpenOption.WRITE)) {
+      final ByteBuffer buffer = ByteBuffer.allocate(4).putInt(0, value);
+      channel.write(buffer, position);
+    }
+  }
+
+  private static String string(final ByteBuffer payload) {
+    final byte[] bytes = new byte[payload.remaining()];
+    payload.get(bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+}
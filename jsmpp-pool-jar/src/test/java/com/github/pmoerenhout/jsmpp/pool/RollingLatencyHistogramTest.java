@@ -0,0 +1,59 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+class RollingLatencyHistogramTest {
+
+  private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  void invalidWindow() {
+    assertThrows(IllegalArgumentException.class, () -> new RollingLatencyHistogram(Duration.ZERO));
+  }
+
+  @Test
+  void resetClearsTheHistogram() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(5 * MILLISECOND);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMaxNanos());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    histogram.record(MILLISECOND);
+    assertEquals(1, histogram.getCount());
+    assertEquals(MILLISECOND, histogram.getMaxNanos());
+  }
+
+  @Test
+  void valuesExpireAfterTwoWindows() {
+    final RollingLatencyHistogram histogram = new RollingLatencyHistogram(Duration.ofMillis(200));
+    histogram.record(100 * MILLISECOND);
+    histogram.record(100 * MILLISECOND);
+    assertEquals(2, histogram.getCount());
+
+    // The first window became the previous one and still counts
+    Uninterruptibles.sleepUninterruptibly(250, TimeUnit.MILLISECONDS);
+    histogram.record(MILLISECOND);
+    assertEquals(3, histogram.getCount());
+    assertEquals(100 * MILLISECOND, histogram.getValueAtPercentile(90), 13 * MILLISECOND);
+
+    // The first window is reset and reused for the current one
+    Uninterruptibles.sleepUninterruptibly(250, TimeUnit.MILLISECONDS);
+    histogram.record(2 * MILLISECOND);
+    assertEquals(2, histogram.getCount());
+    assertEquals(2 * MILLISECOND, histogram.getValueAtPercentile(100), MILLISECOND / 4);
+
+    // Idle for more than two windows
+    Uninterruptibles.sleepUninterruptibly(450, TimeUnit.MILLISECONDS);
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SessionDispatcherTest {
+
+  private TestSmsc smsc;
+  private GenericObjectPool<ThrottledSMPPSession> pool;
+  private ExecutorService refillExecutor;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    smsc = new TestSmsc();
+    pool = new GenericObjectPool<>(smsc.createFactory(0, 10));
+    pool.setMaxTotal(2);
+    refillExecutor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    refillExecutor.shutdownNow();
+    pool.close();
+    smsc.close();
+  }
+
+  @Test
+  void startDoesNotWaitForTheBinds() {
+    smsc.setBindDelayMillis(500);
+    final SessionDispatcher<ThrottledSMPPSession> dispatcher =
+        new SessionDispatcher<>(pool, 2, DispatchStrategy.ROUND_ROBIN, refillExecutor);
+    final long start = System.nanoTime();
+    dispatcher.start();
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250, "start() waited for the binds");
+    assertThrows(NoSuchElementException.class, dispatcher::next);
+
+    await(() -> dispatcher.getNumBound() == 2, "The slots were not filled");
+    dispatcher.close();
+    assertEquals(2, pool.getNumIdle());
+  }
+
+  @Test
+  void roundRobinAlternatesTheSessions() throws Exception {
+    final SessionDispatcher<ThrottledSMPPSession> dispatcher =
+        new SessionDispatcher<>(pool, 2, DispatchStrategy.ROUND_ROBIN, refillExecutor);
+    dispatcher.start();
+    await(() -> dispatcher.getNumBound() == 2, "The slots were not filled");
+    assertNotSame(dispatcher.next(), dispatcher.next());
+    assertEquals(2, dispatcher.getBoundSessions().size());
+    dispatcher.close();
+  }
+
+  @Test
+  void closedSessionsAreReplaced() {
+    final SessionDispatcher<ThrottledSMPPSession> dispatcher =
+        new SessionDispatcher<>(pool, 2, DispatchStrategy.LEAST_OUTSTANDING, refillExecutor);
+    dispatcher.start();
+    await(() -> dispatcher.getNumBound() == 2, "The slots were not filled");
+
+    smsc.disconnectAll();
+    await(() -> dispatcher.getNumBound() == 0, "The sessions did not see the disconnect");
+    await(() -> {
+      try {
+        dispatcher.next();
+      } catch (Exception e) {
+        return false;
+      }
+      return dispatcher.getNumBound() == 2;
+    }, "The slots were not refilled");
+    assertEquals(4, smsc.getBinds());
+    assertEquals(2, pool.getDestroyedCount());
+    dispatcher.close();
+  }
+
+  @Test
+  void closedSessionIsInvalidatedWhenTheExecutorIsShutDown() {
+    final SessionDispatcher<ThrottledSMPPSession> dispatcher =
+        new SessionDispatcher<>(pool, 2, DispatchStrategy.ROUND_ROBIN, refillExecutor);
+    dispatcher.start();
+    await(() -> dispatcher.getNumBound() == 2, "The slots were not filled");
+    refillExecutor.shutdown();
+
+    smsc.disconnectAll();
+    await(() -> dispatcher.getNumBound() == 0, "The sessions did not see the disconnect");
+    assertThrows(NoSuchElementException.class, dispatcher::next);
+    assertEquals(2, pool.getDestroyedCount());
+    assertEquals(0, pool.getNumActive());
+    dispatcher.close();
+  }
+}
@@ -0,0 +1,150 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * The routes without a pool are only picked, never submitted on.
+ */
+class SmscRouterTest {
+
+  private static final IOException FAILURE = new IOException("Connection refused");
+
+  @Test
+  void longestPrefixWins() {
+    final SmscRouter router = new SmscRouter(RoutingStrategy.WEIGHTED);
+    final SmscRoute any = router.addRoute(new SmscRoute("any", null, 1, 3));
+    final SmscRoute nl = router.addRoute(new SmscRoute("nl", null, 1, 3, "31"));
+    final SmscRoute mobile = router.addRoute(new SmscRoute("nl-mobile", null, 1, 3, "316", "3197"));
+
+    assertSame(mobile, router.route("31612345678"));
+    assertSame(mobile, router.route("31970123456"));
+    assertSame(nl, router.route("31201234567"));
+    assertSame(any, router.route("4915112345678"));
+    assertSame(any, router.route(null));
+  }
+
+  @Test
+  void noMatchingRoute() {
+    final SmscRouter router = new SmscRouter(RoutingStrategy.WEIGHTED);
+    router.addRoute(new SmscRoute("nl", null, 1, 3, "31"));
+    assertThrows(NoSuchElementException.class, () -> router.route("4915112345678"));
+  }
+
+  @Test
+  void routeThatIsDownIsSkipped() {
+    final SmscRouter router = new SmscRouter(RoutingStrategy.WEIGHTED);
+    final SmscRoute a = router.addRoute(new SmscRoute("a", null, 1, 3));
+    final SmscRoute b = router.addRoute(new SmscRoute("b", null, 1, 3));
+
+    a.recordFailure(FAILURE);
+    a.recordFailure(FAILURE);
+    assertTrue(a.isAvailable(), "Down before the failure threshold");
+    a.recordFailure(FAILURE);
+    assertTrue(a.isDown());
+    assertFalse(a.isAvailable());
+    for (int i = 0; i < 100; i++) {
+      assertSame(b, router.route("31612345678"));
+    }
+
+    // With every candidate down the best ones are still tried
+    b.recordFailure(FAILURE);
+    b.recordFailure(FAILURE);
+    b.recordFailure(FAILURE);
+    final Set<SmscRoute> picked = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      picked.add(router.route("31612345678"));
+    }
+    assertEquals(2, picked.size());
+
+    a.recordSuccess();
+    assertFalse(a.isDown());
+    assertTrue(a.isAvailable());
+  }
+
+  @Test
+  void downRouteFallsBackToAShorterPrefix() {
+    final SmscRouter router = new SmscRouter(RoutingStrategy.WEIGHTED);
+    final SmscRoute any = router.addRoute(new SmscRoute("any", null, 1, 3));
+    final SmscRoute nl = router.addRoute(new SmscRoute("nl", null, 1, 1, "31"));
+    nl.recordFailure(FAILURE);
+    assertSame(any, router.route("31612345678"));
+  }
+
+  @Test
+  void backoffDoublesOnEveryFurtherFailure() {
+    final SmscRoute once = new SmscRoute("once", null, 1, 1);
+    final SmscRoute twice = new SmscRoute("twice", null, 1, 1);
+    once.recordFailure(FAILURE);
+    twice.recordFailure(FAILURE);
+    twice.recordFailure(FAILURE);
+    assertFalse(once.isAvailable());
+    assertFalse(twice.isAvailable());
+
+    // once is down for 1 second, twice for 2 seconds
+    Uninterruptibles.sleepUninterruptibly(1200, TimeUnit.MILLISECONDS);
+    assertTrue(once.isAvailable());
+    assertTrue(once.isDown(), "A route is only up again after a success");
+    assertFalse(twice.isAvailable());
+  }
+
+  @Test
+  void submitFailsOverWhenThePoolHasNoSession() throws Exception {
+    final TestSmsc down = new TestSmsc();
+    final PooledSmppSessionFactory downFactory = down.createFactory(0, 10);
+    down.close();
+    try (final TestSmsc smsc = new TestSmsc();
+         final SmscRouter router = new SmscRouter(RoutingStrategy.WEIGHTED)) {
+      final SmscRoute a = router.addRoute("a", new PooledSMPPSession<>(downFactory, 1, 0, 1), 1);
+      final SmscRoute b = router.addRoute("b", new PooledSMPPSession<>(smsc.createFactory(0, 10), 1, 0, 1), 1);
+      final SubmitRequest request = SubmitRequest.builder()
+          .sourceAddr("31600000000")
+          .destinationAddr("31611111111")
+          .shortMessage("Hello".getBytes(StandardCharsets.US_ASCII))
+          .build();
+      for (int i = 0; i < 10; i++) {
+        assertNotNull(router.submitShortMessage(request));
+      }
+      assertEquals(10, smsc.getSubmits());
+      assertTrue(a.isDown());
+      assertFalse(b.isDown());
+    }
+  }
+
+  @Test
+  void rateBudgetNeedsAThrottledPool() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc();
+         final SmscRouter router = new SmscRouter(RoutingStrategy.RATE_BUDGET)) {
+      final PooledSMPPSession<ThrottledSMPPSession> unthrottled = new PooledSMPPSession<>(smsc.createFactory(0, 10), 1, 0, 1);
+      try {
+        final IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+            () -> router.addRoute("unthrottled", unthrottled, 1));
+        assertTrue(rejected.getMessage().contains("unthrottled"));
+      } finally {
+        unthrottled.close();
+      }
+
+      final PooledSMPPSession<ThrottledSMPPSession> throttled =
+          new PooledSMPPSession<>(smsc.createFactory(100, 10), 1, 1, 1, Duration.ofSeconds(5));
+      final SmscRoute route = router.addRoute("throttled", throttled, 2);
+      assertEquals(200, route.getWeight(RoutingStrategy.RATE_BUDGET), 1);
+      assertEquals(2, route.getWeight(RoutingStrategy.WEIGHTED), 0.001);
+    }
+  }
+}
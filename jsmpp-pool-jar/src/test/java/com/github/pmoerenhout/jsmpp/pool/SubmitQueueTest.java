@@ -0,0 +1,78 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.util.MessageId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+class SubmitQueueTest {
+
+  private static final SubmitRequest REQUEST = SubmitRequest.builder()
+      .sourceAddr("31600000000")
+      .destinationAddr("31611111111")
+      .shortMessage("Hello".getBytes(StandardCharsets.US_ASCII))
+      .build();
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void throttledSubmitsAreRetried() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc();
+         final PooledSMPPSession<ThrottledSMPPSession> pool = new PooledSMPPSession<>(smsc.createFactory(0, 2), 1, 0, 1);
+         final SubmitQueue queue = new SubmitQueue(pool, directory)) {
+      smsc.setSubmitStatus(SMPPConstant.STAT_ESME_RTHROTTLED);
+      queue.setRetryDelayMillis(50);
+      final List<CompletableFuture<MessageId>> futures = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        futures.add(queue.enqueue(REQUEST));
+      }
+      queue.start();
+      await(() -> queue.getNumRetried() >= 3, "The throttled submits were not retried");
+
+      smsc.setSubmitStatus(0);
+      for (final CompletableFuture<MessageId> future : futures) {
+        assertNotNull(future.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(3, queue.getNumAcked());
+      assertEquals(0, queue.getSize());
+    }
+  }
+
+  @Test
+  void timedOutSubmitIsNotRetried() throws Exception {
+    try (final TestSmsc smsc = new TestSmsc();
+         final PooledSMPPSession<ThrottledSMPPSession> pool = new PooledSMPPSession<>(smsc.createFactory(0, 2), 1, 0, 1);
+         final SubmitQueue queue = new SubmitQueue(pool, directory)) {
+      smsc.setHoldSubmitResponses(true);
+      queue.setRetryDelayMillis(50);
+      queue.start();
+      final CompletableFuture<MessageId> future = queue.enqueue(REQUEST);
+
+      final ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+      assertTrue(failure.getCause() instanceof ResponseTimeoutException, "Failure " + failure.getCause());
+      Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+      assertEquals(1, smsc.getSubmits(), "The timed out submit was sent again");
+      assertEquals(0, queue.getNumRetried());
+      assertEquals(1, queue.getNumTimedOut());
+      assertEquals(0, queue.getSize());
+    }
+  }
+}
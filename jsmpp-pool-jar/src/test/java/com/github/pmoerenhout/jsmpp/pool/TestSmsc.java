@@ -0,0 +1,247 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * A minimal SMSC on a local port for the tests. It answers the binds, submit_sm, enquire_link and unbind of any
+ * connection, with the delays and command status the test sets.
+ */
+class TestSmsc implements AutoCloseable {
+
+  private static final int BIND_RECEIVER = 0x00000001;
+  private static final int BIND_TRANSMITTER = 0x00000002;
+  private static final int SUBMIT_SM = 0x00000004;
+  private static final int UNBIND = 0x00000006;
+  private static final int BIND_TRANSCEIVER = 0x00000009;
+  private static final int ENQUIRE_LINK = 0x00000015;
+  private static final int RESPONSE = 0x80000000;
+
+  private final ServerSocket serverSocket;
+  private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+  private final AtomicInteger binds = new AtomicInteger();
+  private final AtomicInteger submits = new AtomicInteger();
+  private final AtomicInteger enquireLinks = new AtomicInteger();
+  private final Queue<HeldResponse> heldResponses = new ConcurrentLinkedQueue<>();
+  private volatile long bindDelayMillis;
+  private volatile int bindStatus;
+  private volatile long submitDelayMillis;
+  private volatile int submitStatus;
+  private volatile boolean muteEnquireLink;
+  private volatile boolean holdSubmitResponses;
+  private volatile boolean closed;
+
+  TestSmsc() throws IOException {
+    this.serverSocket = new ServerSocket(0);
+    final Thread acceptor = new Thread(this::accept, "test-smsc-" + serverSocket.getLocalPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  PooledSmppSessionFactory createFactory(final double messageRate, final int maxConcurrentRequests) {
+    return createFactory(60000, 2000, messageRate, maxConcurrentRequests);
+  }
+
+  PooledSmppSessionFactory createFactory(final int enquireLinkTimer, final long transactionTimer,
+                                         final double messageRate, final int maxConcurrentRequests) {
+    return new PooledSmppSessionFactory("localhost", getPort(), false, "test", "secret", "", null, null,
+        enquireLinkTimer, transactionTimer, 2000, messageRate, maxConcurrentRequests, 1);
+  }
+
+  void setBindDelayMillis(final long bindDelayMillis) {
+    this.bindDelayMillis = bindDelayMillis;
+  }
+
+  /**
+   * @param bindStatus the command_status of the bind responses, e.g. {@code 0x0d} for ESME_RBINDFAIL
+   */
+  void setBindStatus(final int bindStatus) {
+    this.bindStatus = bindStatus;
+  }
+
+  void setSubmitDelayMillis(final long submitDelayMillis) {
+    this.submitDelayMillis = submitDelayMillis;
+  }
+
+  /**
+   * @param submitStatus the command_status of the submit_sm_resp, e.g. {@code 0x58} for ESME_RTHROTTLED
+   */
+  void setSubmitStatus(final int submitStatus) {
+    this.submitStatus = submitStatus;
+  }
+
+  void setMuteEnquireLink(final boolean muteEnquireLink) {
+    this.muteEnquireLink = muteEnquireLink;
+  }
+
+  /**
+   * Hold the submit_sm_resp PDUs until {@link #releaseSubmitResponses()}.
+   */
+  void setHoldSubmitResponses(final boolean holdSubmitResponses) {
+    this.holdSubmitResponses = holdSubmitResponses;
+  }
+
+  void releaseSubmitResponses() {
+    HeldResponse response;
+    while ((response = heldResponses.poll()) != null) {
+      try {
+        respond(response.out, SUBMIT_SM, response.commandStatus, response.sequenceNumber, response.body);
+      } catch (IOException e) {
+        // the connection is gone
+      }
+    }
+  }
+
+  int getBinds() {
+    return binds.get();
+  }
+
+  int getSubmits() {
+    return submits.get();
+  }
+
+  int getEnquireLinks() {
+    return enquireLinks.get();
+  }
+
+  /**
+   * Drop all connections, the sessions on them see a closed socket.
+   */
+  void disconnectAll() {
+    for (final Socket socket : sockets) {
+      closeQuietly(socket);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      // ignore
+    }
+    disconnectAll();
+  }
+
+  private void accept() {
+    while (!closed) {
+      try {
+        final Socket socket = serverSocket.accept();
+        sockets.add(socket);
+        final Thread thread = new Thread(() -> serve(socket), "test-smsc-connection-" + socket.getPort());
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(final Socket socket) {
+    try {
+      final DataInputStream in = new DataInputStream(socket.getInputStream());
+      final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      while (true) {
+        final int length = in.readInt();
+        final int commandId = in.readInt();
+        in.readInt();
+        final int sequenceNumber = in.readInt();
+        in.readFully(new byte[length - 16]);
+        switch (commandId) {
+          case BIND_RECEIVER:
+          case BIND_TRANSMITTER:
+          case BIND_TRANSCEIVER:
+            binds.incrementAndGet();
+            sleep(bindDelayMillis);
+            respond(out, commandId, bindStatus, sequenceNumber, new byte[]{ 's', 0 });
+            break;
+          case SUBMIT_SM:
+            final int submit = submits.incrementAndGet();
+            sleep(submitDelayMillis);
+            final byte[] messageId = { (byte) ('0' + submit % 10), 0 };
+            if (holdSubmitResponses) {
+              heldResponses.add(new HeldResponse(out, submitStatus, sequenceNumber, messageId));
+            } else {
+              respond(out, commandId, submitStatus, sequenceNumber, messageId);
+            }
+            break;
+          case ENQUIRE_LINK:
+            enquireLinks.incrementAndGet();
+            if (!muteEnquireLink) {
+              respond(out, commandId, 0, sequenceNumber, new byte[0]);
+            }
+            break;
+          case UNBIND:
+            respond(out, commandId, 0, sequenceNumber, new byte[0]);
+            closeQuietly(socket);
+            return;
+          default:
+            // responses of the client, e.g. deliver_sm_resp
+            break;
+        }
+      }
+    } catch (IOException e) {
+      closeQuietly(socket);
+    } finally {
+      sockets.remove(socket);
+    }
+  }
+
+  private static void respond(final DataOutputStream out, final int commandId, final int commandStatus,
+                              final int sequenceNumber, final byte[] body) throws IOException {
+    synchronized (out) {
+      out.writeInt(16 + body.length);
+      out.writeInt(commandId | RESPONSE);
+      out.writeInt(commandStatus);
+      out.writeInt(sequenceNumber);
+      out.write(body);
+      out.flush();
+    }
+  }
+
+  private static void sleep(final long millis) {
+    if (millis > 0) {
+      Uninterruptibles.sleepUninterruptibly(millis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static final class HeldResponse {
+
+    private final DataOutputStream out;
+    private final int commandStatus;
+    private final int sequenceNumber;
+    private final byte[] body;
+
+    private HeldResponse(final DataOutputStream out, final int commandStatus, final int sequenceNumber,
+                         final byte[] body) {
+      this.out = out;
+      this.commandStatus = commandStatus;
+      this.sequenceNumber = sequenceNumber;
+      this.body = body;
+    }
+  }
+
+  private static void closeQuietly(final Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+}
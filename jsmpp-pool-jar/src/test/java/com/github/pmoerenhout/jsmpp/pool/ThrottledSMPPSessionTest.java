@@ -0,0 +1,123 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static com.github.pmoerenhout.jsmpp.pool.Conditions.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.jsmpp.SMPPConstant;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.util.MessageId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+class ThrottledSMPPSessionTest {
+
+  private static final SubmitRequest TEMPLATE = SubmitRequest.builder()
+      .sourceAddr("31600000000")
+      .destinationAddr("31611111111")
+      .build();
+
+  private final MessageSegmenter segmenter = new MessageSegmenter(Concatenation.UDH);
+  private TestSmsc smsc;
+  private ExecutorService executor;
+  private GenericObjectPool<ThrottledSMPPSession> pool;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    smsc = new TestSmsc();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+    executor.shutdownNow();
+    smsc.close();
+  }
+
+  @Test
+  void submitAsync() throws Exception {
+    final ThrottledSMPPSession session = bind(10);
+    final SubmitRequest request = TEMPLATE.toBuilder()
+        .shortMessage("Hello".getBytes(StandardCharsets.US_ASCII))
+        .build();
+    final MessageId messageId = session.submitAsync(request, executor).get(5, TimeUnit.SECONDS);
+    assertEquals("1", messageId.getValue());
+    assertEquals(10, session.getAvailablePermits());
+  }
+
+  @Test
+  void segmentsArePipelined() throws Exception {
+    final ThrottledSMPPSession session = bind(10);
+    smsc.setHoldSubmitResponses(true);
+    final List<SubmitRequest> segments = segmenter.segment(TEMPLATE, repeat(400));
+    assertEquals(3, segments.size());
+
+    final CompletableFuture<List<MessageId>> future = session.submitAsync(segments, executor);
+    await(() -> smsc.getSubmits() == 3, "The segments waited for the responses of the previous ones");
+    assertFalse(future.isDone());
+
+    smsc.releaseSubmitResponses();
+    final List<MessageId> messageIds = future.get(5, TimeUnit.SECONDS);
+    assertEquals(3, messageIds.size());
+    assertEquals("1", messageIds.get(0).getValue());
+    assertEquals("3", messageIds.get(2).getValue());
+    assertEquals(10, session.getAvailablePermits());
+  }
+
+  @Test
+  void segmentsWaitForTheSendWindow() throws Exception {
+    final ThrottledSMPPSession session = bind(2);
+    smsc.setHoldSubmitResponses(true);
+    final CompletableFuture<List<MessageId>> future = session.submitAsync(segmenter.segment(TEMPLATE, repeat(400)),
+        executor);
+    await(() -> smsc.getSubmits() == 2, "The segments were not written");
+    Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+    assertEquals(2, smsc.getSubmits());
+
+    smsc.releaseSubmitResponses();
+    await(() -> smsc.getSubmits() == 3, "The last segment was not written");
+    smsc.releaseSubmitResponses();
+    assertEquals(3, future.get(5, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  void failedSegmentFailsTheMessage() throws Exception {
+    final ThrottledSMPPSession session = bind(10);
+    smsc.setSubmitStatus(SMPPConstant.STAT_ESME_RTHROTTLED);
+    final CompletableFuture<List<MessageId>> future = session.submitAsync(segmenter.segment(TEMPLATE, repeat(400)),
+        executor);
+    final ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertTrue(failure.getCause() instanceof NegativeResponseException, "Failure " + failure.getCause());
+    await(() -> session.getAvailablePermits() == 10, "A slot of the send window was not released");
+  }
+
+  private ThrottledSMPPSession bind(final int maxConcurrentRequests) throws Exception {
+    pool = new GenericObjectPool<>(smsc.createFactory(0, maxConcurrentRequests));
+    return pool.borrowObject();
+  }
+
+  private static String repeat(final int count) {
+    final StringBuilder text = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      text.append((char) ('a' + i % 26));
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,124 @@
+package com.github.pmoerenhout.jsmpp.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Where a permit must not be granted yet the throttle runs at one permit per second or slower, so the assertions do not
+ * depend on the speed of the machine.
+ */
+class TokenBucketThrottleTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void invalidParameters() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucketThrottle(0));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucketThrottle(-1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucketThrottle(10, 0));
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(10);
+    assertThrows(IllegalArgumentException.class, () -> throttle.tryAcquire(0));
+    assertThrows(IllegalArgumentException.class, () -> throttle.acquire(0));
+    assertThrows(IllegalArgumentException.class, () -> throttle.setRate(0));
+  }
+
+  @Test
+  void rateAndBurst() {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(1000);
+    assertEquals(1000, throttle.getRate(), 0.001);
+    assertEquals(10, throttle.getMaxBurstPermits());
+    throttle.setRate(50);
+    assertEquals(50, throttle.getRate(), 0.001);
+    assertEquals(1, throttle.getMaxBurstPermits());
+
+    final TokenBucketThrottle fixed = new TokenBucketThrottle(1000, 5);
+    fixed.setRate(10000);
+    assertEquals(10000, fixed.getRate(), 0.001);
+    assertEquals(5, fixed.getMaxBurstPermits());
+  }
+
+  @Test
+  void tryAcquireReturnsTheWait() {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(1);
+    assertEquals(0, throttle.tryAcquire(1));
+    final long waitNanos = throttle.tryAcquire(1);
+    assertTrue(waitNanos > 0 && waitNanos <= SECOND, "Wait " + waitNanos);
+    assertTrue(throttle.getWaitNanos() > 0);
+    // Nothing was reserved, the wait did not grow
+    assertTrue(throttle.tryAcquire(1) <= waitNanos);
+  }
+
+  @Test
+  void permitsReserveTheirCost() {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(1);
+    assertEquals(0, throttle.tryAcquire(3));
+    assertTrue(throttle.getWaitNanos() > 2 * SECOND);
+  }
+
+  @Test
+  void tryAcquireWithTimeout() {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(0.1);
+    assertTrue(throttle.tryAcquire(1, 0, TimeUnit.MILLISECONDS));
+    assertFalse(throttle.tryAcquire(1, 100, TimeUnit.MILLISECONDS));
+    assertTrue(throttle.getWaitNanos() > 9 * SECOND);
+  }
+
+  @Test
+  void acquireWaits() {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(100);
+    final long start = System.nanoTime();
+    for (int i = 0; i < 11; i++) {
+      throttle.acquire(1);
+    }
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+  }
+
+  @Test
+  void acquireAsync() throws Exception {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(10);
+    assertTrue(throttle.acquireAsync(1).isDone());
+    final CompletableFuture<Void> second = throttle.acquireAsync(1);
+    assertFalse(second.isDone());
+    second.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void concurrentCallersShareThePermits() throws Exception {
+    final TokenBucketThrottle throttle = new TokenBucketThrottle(1);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicInteger granted = new AtomicInteger();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      final Thread thread = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int j = 0; j < 100; j++) {
+          if (throttle.tryAcquire(1) == 0) {
+            granted.incrementAndGet();
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(1, granted.get());
+  }
+}